@@ -0,0 +1,58 @@
+package agents;
+
+import agents.mechanics.BenchmarkGraphs;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Level;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.TearDown;
+import org.openjdk.jmh.annotations.Warmup;
+
+import java.io.IOException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Reading an environment file (what the agents do in readGrid), without the cache of Environment.load.
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MILLISECONDS)
+@Warmup(iterations = 3, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+public class EnvironmentBenchmark {
+
+    @Param({"50", "200", "1000"})
+    public int numberOfCities;
+
+    @Param({"0.1", "0.5", "1.0"})
+    public double density;
+
+    private Path environmentFile;
+
+    @Setup(Level.Trial)
+    public void setup() throws IOException {
+        environmentFile = Files.createTempFile("environment", ".txt");
+        BenchmarkGraphs.writeEnvironment(environmentFile, numberOfCities, density, 1);
+    }
+
+    @TearDown(Level.Trial)
+    public void tearDown() throws IOException {
+        Files.delete(environmentFile);
+    }
+
+    @Benchmark
+    public Environment readGrid() {
+        return Environment.read(environmentFile.toString());
+    }
+
+}
@@ -0,0 +1,88 @@
+package agents.mechanics;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Level;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+import org.openjdk.jmh.infra.Blackhole;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * The per-step rules of an ant (the probabilities of the next cities, their ordering and the tour checks),
+ * on random instances of the given size and density.
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+@Warmup(iterations = 3, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+public class AntAgentMechanicsBenchmark {
+
+    @Param({"50", "200", "1000"})
+    public int numberOfCities;
+
+    @Param({"0.1", "0.5", "1.0"})
+    public double density;
+
+    private CityGraph cityGraph;
+    private double[] choiceInfo;
+    private long currentCity;
+    private List<Long> availableCities;
+    private List<Double> probabilities;
+    private VisitedCitySet halfVisitedCities;
+
+    @Setup(Level.Trial)
+    public void setup() {
+        cityGraph = BenchmarkGraphs.randomGraph(numberOfCities, density, 1);
+        double[] pheromoneLevel = new double[cityGraph.getNumberOfEdges()];
+        Arrays.fill(pheromoneLevel, 1.0);
+        choiceInfo = new double[pheromoneLevel.length];
+        AntAgentMechanics.updateChoiceInfo(choiceInfo, pheromoneLevel,
+                AntAgentMechanics.getHeuristicValues(cityGraph, 2.0));
+        // the city with the most neighbours:
+        currentCity = 1;
+        for (int city = 2; city <= numberOfCities; city++) {
+            if (cityGraph.degree(city) > cityGraph.degree(currentCity)) currentCity = city;
+        }
+        availableCities = new ArrayList<>();
+        for (int slot = cityGraph.firstSlot(currentCity); slot < cityGraph.endSlot(currentCity); slot++) {
+            availableCities.add((long) cityGraph.getTarget(cityGraph.edgeAt(slot)));
+        }
+        probabilities = AntAgentMechanics.getNextStateProbability(currentCity, availableCities, cityGraph,
+                choiceInfo);
+        halfVisitedCities = VisitedCitySet.empty(numberOfCities);
+        for (int city = 1; city <= numberOfCities; city += 2) halfVisitedCities = halfVisitedCities.with(city);
+    }
+
+    @Benchmark
+    public List<Double> nextStateProbability() {
+        return AntAgentMechanics.getNextStateProbability(currentCity, availableCities, cityGraph, choiceInfo);
+    }
+
+    @Benchmark
+    public List<Long> sortEdges() {
+        return AntAgentMechanics.sortEdges(availableCities, probabilities);
+    }
+
+    @Benchmark
+    public void tourChecks(Blackhole blackhole) {
+        for (long city = 1; city <= numberOfCities; city++) {
+            blackhole.consume(AntAgentMechanics.possibleNextCity(halfVisitedCities, 1, city));
+            blackhole.consume(AntAgentMechanics.tourCondition(halfVisitedCities, 1, city));
+        }
+    }
+
+}
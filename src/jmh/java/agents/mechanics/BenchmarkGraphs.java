@@ -0,0 +1,47 @@
+package agents.mechanics;
+
+import agents.AntAgent;
+import agents.Environment;
+import agents.InstanceGenerator;
+
+import java.io.IOException;
+import java.nio.file.Path;
+import java.util.ArrayList;
+import java.util.List;
+
+/**
+ * Random instances for the benchmarks (the "random" kind of InstanceGenerator): the cities 1..n are connected by
+ * a ring (so a hamiltonian cycle always exists), and every other pair of cities is connected with the probability
+ * density. The roads are bidirectional, with random lengths in [0.1, 1).
+ */
+public class BenchmarkGraphs {
+
+    /**
+     * @return the roads, one per pair of cities, like the lines of an environment file.
+     */
+    public static List<AntAgent.CityRoad> randomRoads(int numberOfCities, double density, long seed) {
+        return InstanceGenerator.generate(InstanceGenerator.RANDOM, numberOfCities, density, seed);
+    }
+
+    /**
+     * @return the graph of the roads, in both directions (like Environment.read).
+     */
+    public static CityGraph randomGraph(int numberOfCities, double density, long seed) {
+        List<AntAgent.CityRoad> cityGrid = new ArrayList<>();
+        for (AntAgent.CityRoad road : randomRoads(numberOfCities, density, seed)) {
+            cityGrid.add(road);
+            cityGrid.add(new AntAgent.CityRoad(road.getTargetId(), road.getSourceId(), road.getLength()));
+        }
+        return new CityGraph(numberOfCities, cityGrid);
+    }
+
+    /**
+     * Write a random instance in the format of environment.txt.
+     */
+    public static void writeEnvironment(Path file, int numberOfCities, double density, long seed)
+            throws IOException {
+        InstanceGenerator.writeText(file, numberOfCities, randomRoads(numberOfCities, density, seed),
+                Environment.TSPLIB_ITERATIONS);
+    }
+
+}
@@ -0,0 +1,73 @@
+package agents.mechanics;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Level;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Random;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * The global pheromone update of an iteration (AntAgentMechanics.updatePheromoneLevel), for the tours of
+ * the given number of ants.
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+@Warmup(iterations = 3, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+public class PheromoneUpdateBenchmark {
+
+    @Param({"50", "200", "1000"})
+    public int numberOfCities;
+
+    @Param({"0.1", "1.0"})
+    public double density;
+
+    @Param({"1", "10", "50"})
+    public int numberOfAnts;
+
+    private double[] pheromoneLevel;
+    private List<List<Integer>> antPaths;
+    private List<Double> tourLengths;
+
+    @Setup(Level.Trial)
+    public void setup() {
+        CityGraph cityGraph = BenchmarkGraphs.randomGraph(numberOfCities, density, 1);
+        pheromoneLevel = new double[cityGraph.getNumberOfEdges()];
+        // every ant follows the ring of the instance, from a random city (the cost of the update doesn't depend
+        // on the tours, and sampling tours on the sparse instances can take very long):
+        Random random = new Random(1);
+        antPaths = new ArrayList<>();
+        tourLengths = new ArrayList<>();
+        for (int antIndex = 0; antIndex < numberOfAnts; antIndex++) {
+            List<Integer> path = new ArrayList<>();
+            int sourceCity = random.nextInt(numberOfCities);
+            for (int step = 0; step < numberOfCities; step++) {
+                int city = (sourceCity + step) % numberOfCities + 1;
+                path.add(cityGraph.getEdgeId(city, city % numberOfCities + 1));
+            }
+            antPaths.add(path);
+            tourLengths.add(cityGraph.pathLength(path));
+        }
+    }
+
+    @Benchmark
+    public double[] updatePheromoneLevel() {
+        AntAgentMechanics.updatePheromoneLevel(pheromoneLevel, antPaths, tourLengths, 0.7, 20.0);
+        return pheromoneLevel;
+    }
+
+}
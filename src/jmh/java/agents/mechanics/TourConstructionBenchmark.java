@@ -0,0 +1,61 @@
+package agents.mechanics;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Level;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+
+import java.util.Arrays;
+import java.util.List;
+import java.util.Random;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * A whole tour of a single ant (RouletteTourBuilder.construct), with uniform pheromone levels.
+ * note: below a density of about 0.5, the random instances make the ant backtrack for a very long time,
+ * so they are not benchmarked here.
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+@Warmup(iterations = 3, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+public class TourConstructionBenchmark {
+
+    @Param({"50", "200", "1000"})
+    public int numberOfCities;
+
+    @Param({"0.5", "1.0"})
+    public double density;
+
+    private double[] choiceInfo;
+    private RouletteTourBuilder tourBuilder;
+    private Random random;
+
+    @Setup(Level.Trial)
+    public void setup() {
+        CityGraph cityGraph = BenchmarkGraphs.randomGraph(numberOfCities, density, 1);
+        double[] pheromoneLevel = new double[cityGraph.getNumberOfEdges()];
+        Arrays.fill(pheromoneLevel, 1.0);
+        choiceInfo = new double[pheromoneLevel.length];
+        AntAgentMechanics.updateChoiceInfo(choiceInfo, pheromoneLevel,
+                AntAgentMechanics.getHeuristicValues(cityGraph, 2.0));
+        tourBuilder = new RouletteTourBuilder(cityGraph, 10);
+        random = new Random(1);
+    }
+
+    @Benchmark
+    public List<Integer> tourConstruction() {
+        return tourBuilder.construct(random.nextInt(numberOfCities) + 1, choiceInfo, random);
+    }
+
+}
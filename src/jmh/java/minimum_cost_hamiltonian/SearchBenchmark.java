@@ -0,0 +1,50 @@
+package minimum_cost_hamiltonian;
+
+import agents.mechanics.BenchmarkGraphs;
+import agents.mechanics.CityGraph;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Level;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+
+import java.util.List;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * The exact search (BacktrackingSearch.findOptimalTour) on small random instances.
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MILLISECONDS)
+@Warmup(iterations = 3, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+public class SearchBenchmark {
+
+    @Param({"8", "12", "16"})
+    public int numberOfCities;
+
+    @Param({"0.5", "1.0"})
+    public double density;
+
+    private CityGraph cityGraph;
+
+    @Setup(Level.Trial)
+    public void setup() {
+        cityGraph = BenchmarkGraphs.randomGraph(numberOfCities, density, 1);
+    }
+
+    @Benchmark
+    public List<Integer> findOptimalTour() {
+        return BacktrackingSearch.findOptimalTour(cityGraph);
+    }
+
+}
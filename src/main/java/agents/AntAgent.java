@@ -1,23 +1,36 @@
 package agents;
 
 import agents.mechanics.AntAgentMechanics;
+import agents.mechanics.AntStatusCodec;
+import agents.mechanics.CityGraph;
+import agents.mechanics.ColonyCheckpoint;
+import agents.mechanics.PathFrame;
+import agents.mechanics.PheromoneUpdateCodec;
+import agents.mechanics.PheromoneUpdateStrategy;
+import agents.mechanics.RouletteTourBuilder;
+import agents.mechanics.TerminationCriteria;
+import agents.mechanics.TourLocalSearch;
+import agents.mechanics.VisitedCitySet;
 import jade.core.AID;
 import jade.core.Agent;
 import jade.core.behaviours.Behaviour;
 import jade.core.behaviours.CyclicBehaviour;
 import jade.domain.DFService;
 import jade.domain.FIPAAgentManagement.DFAgentDescription;
+import jade.domain.FIPAAgentManagement.SearchConstraints;
 import jade.domain.FIPAAgentManagement.ServiceDescription;
 import jade.domain.FIPAException;
 import jade.lang.acl.ACLMessage;
 import jade.lang.acl.MessageTemplate;
+import writer.MetricsWriter;
+import writer.SnapshotStreamWriter;
 import writer.Writer;
 
-import java.io.BufferedReader;
 import java.io.FileNotFoundException;
-import java.io.FileReader;
 import java.io.IOException;
+import java.nio.file.Paths;
 import java.util.*;
+import java.util.concurrent.ForkJoinPool;
 import java.util.stream.Collectors;
 import java.util.stream.IntStream;
 import java.util.stream.Stream;
@@ -27,11 +40,25 @@ import java.util.stream.Stream;
  */
 public class AntAgent extends Agent {
 
-    static final String INPUT_FILE = "src\\main\\resources\\environment.txt";
-    private final String TOUR_FINDING_SERVICE = "tour-finding";
+    static final String TOUR_FINDING_SERVICE = "tour-finding";
+    // the conversation id of the best tours sent from one colony to another:
+    static final String MIGRATION = "best-tour-migration";
+    // the conversation id of the decision to stop the colony early (the content is "iteration reason"):
+    static final String TERMINATION = "colony-termination";
 
-    // the list of known ant agents:
+    // the list of known ant agents (the first one is always this agent):
     private List<AID> antAgents;
+    // antIndexes.get(aid) = the position of the ant in antAgents (and in the per-ant collections):
+    private Map<AID, Integer> antIndexes = new HashMap<>();
+    // the other ants, as notified by the DF subscription:
+    private final Set<AID> discoveredAnts = new LinkedHashSet<>();
+    // true if discoveredAnts has changed since the colony was last updated:
+    private boolean membershipChanged = true;
+    // the statuses received from ants that the DF hasn't notified yet (the latest one per ant), until
+    // updateColony indexes them:
+    private final Map<AID, AntStatusCodec.AntStatus> pendingStatuses = new HashMap<>();
+    // the DF subscription for the ants that register or de-register:
+    private ACLMessage antSubscription = null;
 
     // the conversation id for the message sent to another ant to inform it about the change
     // in current status:
@@ -55,6 +82,12 @@ public class AntAgent extends Agent {
 
     private List<Double> iterationLengths = new ArrayList<>();
 
+    // barrierWaitTimes[i] = how long (in milliseconds) this ant waited for the other ants in the ith iteration:
+    private List<Double> barrierWaitTimes = new ArrayList<>();
+
+    // the tour-finding behaviour; it is restarted when the status of another ant changes:
+    private FindTourBehaviour findTourBehaviour;
+
     /**
      * finishedAnt[i] =
      * - true, if the ith ant has found a tsp tour
@@ -68,11 +101,171 @@ public class AntAgent extends Agent {
     private Double pheromoneQuantity;
 
     /**
-     * edgeProbabilities[i] =
-     * - the probability that the i-th edge from the cityGrid
-     * will be next
+     * The arguments of the agent, given as key=value pairs, e.g.
+     * ant1:agents.AntAgent(construction=roulette,candidates=15)
+     */
+    private Map<String, String> agentArguments = new HashMap<>();
+
+    /**
+     * The tour construction mode (the "construction" argument):
+     * - backtracking (default): all the feasible neighbours are pushed on a stack, in the order of
+     * their probabilities, and the tour is found depth-first;
+     * - roulette: one next city is sampled at every step, from the candidate list of the current city
+     * (the "candidates" nearest neighbours, 10 by default); tourBuilder is only set in this mode.
      */
-    private Double[] edgeProbabilities;
+    private RouletteTourBuilder tourBuilder = null;
+    private static final int DEFAULT_CANDIDATE_LIST_SIZE = 10;
+
+    /**
+     * The optional local search (the "localsearch=true" argument): every tour is improved with
+     * 2-opt and Or-opt moves, restricted to the "candidates" nearest neighbours, before its length
+     * is computed and it is sent to the other ants; localSearch is only set in this mode.
+     */
+    private TourLocalSearch localSearch = null;
+
+    /**
+     * The pheromone update rule, selected in the environment header (Ant System by default).
+     */
+    private PheromoneUpdateStrategy pheromoneStrategy;
+
+    /**
+     * The headless mode (the "engine=ants" argument): the agent doesn't register to the DF and doesn't
+     * exchange messages; it runs a ColonyEngine with the given number of ants, on "threads" threads
+     * (all the processors by default), seeded with the "seed" argument; with "async=true", the engine runs
+     * without a barrier between the iterations (see ColonyEngine.runAsynchronous). The termination criteria
+     * (see terminationCriteria) stop the engine early.
+     */
+    private class EngineBehaviour extends Behaviour {
+        private Environment environment = null;
+        private ColonyEngine colonyEngine = null;
+        private ForkJoinPool pool = null;
+        private int numberOfIterations;
+
+        @Override
+        public void onStart() {
+            environment = Environment.load(agentArguments.getOrDefault("input", Environment.DEFAULT_INPUT_FILE));
+            numberOfIterations = environment.getNumberOfIterations();
+            pool = new ForkJoinPool(Integer.parseInt(agentArguments.getOrDefault("threads",
+                    String.valueOf(Runtime.getRuntime().availableProcessors()))));
+            colonyEngine = new ColonyEngine(environment, Integer.parseInt(agentArguments.get("engine")),
+                    Integer.parseInt(agentArguments.getOrDefault("candidates",
+                            String.valueOf(DEFAULT_CANDIDATE_LIST_SIZE))),
+                    Boolean.parseBoolean(agentArguments.get("localsearch")), pool,
+                    Long.parseLong(agentArguments.getOrDefault("seed", String.valueOf(System.nanoTime()))));
+            colonyEngine.setTerminationCriteria(terminationCriteria(agentArguments));
+        }
+
+        @Override
+        public void action() {
+            if (Boolean.parseBoolean(agentArguments.get("async"))) {
+                // without a barrier, all the iterations run at once:
+                colonyEngine.runAsynchronous(numberOfIterations - colonyEngine.getCurrentIteration());
+            } else if (colonyEngine.getCurrentIteration() < numberOfIterations) {
+                // one iteration at a time, so that the agent still handles its other behaviours:
+                colonyEngine.runIteration();
+                colonyEngine.checkTermination();
+            }
+        }
+
+        @Override
+        public boolean done() {
+            return colonyEngine.getCurrentIteration() >= numberOfIterations ||
+                    colonyEngine.getTerminationReason() != null;
+        }
+
+        @Override
+        public int onEnd() {
+            pool.shutdown();
+            colonyEngine.writeResults();
+            if (colonyEngine.getTerminationReason() != null) {
+                System.out.println(myAgent.getName() + ": stopped after iteration " +
+                        colonyEngine.getCurrentIteration() + " (" + colonyEngine.getTerminationReason() + ")");
+            }
+            System.out.println(myAgent.getName() + ": " + colonyEngine.getBestPath().stream()
+                    .map(id -> environment.getCityGrid().get(id)).collect(Collectors.toList()).toString() + ", " +
+                    colonyEngine.getBestLength());
+            return 0;
+        }
+    }
+
+    /**
+     * The island model: the ants with the same "colony" argument form a colony, with its own pheromone levels;
+     * they register the DF service colonyService(TOUR_FINDING_SERVICE, colony) and only wait for each other.
+     * Every "migration" iterations, the first ant of a colony sends the best tour of the colony to the
+     * neighbouring colonies: the next one in alphabetical order ("migrationtopology=ring", the default),
+     * or all the others ("migrationtopology=full"). The first ant of the receiving colony forwards the received
+     * tours with its next finished status, so that every ant of the colony deposits them with the tours of the
+     * same iteration. The colonies can run in different containers.
+     */
+    private String tourFindingService = TOUR_FINDING_SERVICE;
+    private int migrationInterval = 0;
+    private boolean fullMigration = false;
+    // the tours received from the other colonies, not forwarded yet (only kept by the first ant):
+    private final List<AntStatusCodec.AntStatus> immigrants = new ArrayList<>();
+    // the forwarded tours to deposit at the end of the current iteration:
+    private final List<AntStatusCodec.AntStatus> colonyImmigrants = new ArrayList<>();
+    private List<Integer> colonyBestPath = null;
+    private double colonyBestLength = Double.POSITIVE_INFINITY;
+
+    /**
+     * The encoding of the UPDATE_NEIGHBOR_STATUS messages (the "messages" argument):
+     * binary (default) or text; the received messages are decoded in either form.
+     */
+    private boolean binaryMessages = true;
+
+    /**
+     * The topology of the colony (the "topology" argument):
+     * - all-to-all (default): every ant sends its tour to all the other ants, and every ant
+     * updates its own pheromone levels;
+     * - coordinator: every ant sends its tour only to the PheromoneCoordinatorAgent, and receives the
+     * pheromone update from it; coordinatorAID is set once the coordinator has been found.
+     */
+    private boolean useCoordinator = false;
+    private AID coordinatorAID = null;
+
+    /**
+     * The asynchronous mode (the "async=true" argument; Ant System only, without a coordinator): there is no
+     * barrier between the iterations. An ant evaporates its pheromone levels and deposits its own tour as soon as
+     * the tour is complete, then starts the next one; the tours of the other ants are deposited when their
+     * messages arrive, so every status message is an incremental delta (pheromoneQuantity / length on a path).
+     * The evaporation is done on an epoch basis: once per tour of the ant.
+     */
+    private boolean asynchronous = false;
+    // the lengths of the tours of the colony deposited since the last tour of this ant, for the iteration means:
+    private final List<Double> depositedLengths = new ArrayList<>();
+
+    /**
+     * The metrics of the ant, written to the file given by the "metrics" argument; null without this argument.
+     */
+    private AntMetrics metrics = null;
+
+    /**
+     * The checkpoints (the "checkpoint=directory" argument): every "checkpointinterval" iterations (10 by
+     * default) and at the end, the ant writes its state to directory/name.ckpt (see ColonyCheckpoint).
+     * An ant started with "resume=directory" continues from its own checkpoint; an ant started with
+     * "warmstart=file" only starts from the pheromone levels of the checkpoint (e.g. of a slightly different
+     * instance).
+     */
+    private String checkpointDirectory = null;
+    private int checkpointInterval = 10;
+
+    /**
+     * The snapshot stream (the "stream=file" argument, without a coordinator): at the end of every iteration, the
+     * first ant of the colony queues its pheromone levels and the best tour of the colony, which are written to the
+     * file in the background (see SnapshotStreamWriter; "streamthreshold" is the relative change of a level below
+     * which it is not written, 0 by default). null without this argument, and for the other ants.
+     */
+    private String streamFile = null;
+    private SnapshotStreamWriter snapshotStream = null;
+
+    /**
+     * The early termination (the "stall", "branching", "target" and "timelimit" arguments, see
+     * terminationCriteria): the first ant of the colony (or the coordinator) checks the criteria after every
+     * iteration, and when one of them is met, it sends the iteration to the other ants; every ant stops once it
+     * has completed this iteration, as if it were the last one. terminationEpoch is -1 until then.
+     */
+    private TerminationCriteria terminationCriteria;
+    private int terminationEpoch = -1;
 
     /**
      * the class representing a city connection;
@@ -109,13 +302,19 @@ public class AntAgent extends Agent {
 
     // pheromoneLevel[i] = the pheromone level on the ith road from cityGrid;
 //    private List<Double[]> subjectivePheromoneLevel;
-    private Double[] subjectivePheromoneLevel;
+    private double[] subjectivePheromoneLevel;
+    // heuristicValues[i] = (1 / length of the ith road) ^ betaParameter, computed once:
+    private double[] heuristicValues;
+    // choiceInfo[i] = subjectivePheromoneLevel[i] * heuristicValues[i], refreshed after every pheromone update:
+    private double[] choiceInfo;
     // the paths chosen by the ants in the current iteration:
     private List<List<Integer>> antPaths;
     // the tour lengths of the agents:
     private List<Double> tourLengths;
 
     private List<CityRoad> cityGrid = null;
+    // the adjacency structure built from cityGrid; the edge ids are the cityGrid indexes:
+    private CityGraph cityGraph = null;
 
     /**
      * This method will be used for generating new pheromone arrays.
@@ -123,8 +322,8 @@ public class AntAgent extends Agent {
      * @param size the size of the new array;
      * @return the new pheromone array.
      */
-    private Double[] generateNewPheromoneArray(int size) {
-        Double[] result = new Double[size];
+    private double[] generateNewPheromoneArray(int size) {
+        double[] result = new double[size];
         Arrays.fill(result, 0.0);
         return result;
     }
@@ -137,26 +336,48 @@ public class AntAgent extends Agent {
         public void action() {
             MessageTemplate messageTemplate = MessageTemplate
                     .MatchConversationId(UPDATE_NEIGHBOR_STATUS);
-            ACLMessage updateStatusMessage = myAgent.receive(messageTemplate);
+            ACLMessage updateStatusMessage = receiveMessage(messageTemplate);
             if (updateStatusMessage != null) {
                 AID senderAID = updateStatusMessage.getSender();
-                String[] contentValues = updateStatusMessage.getContent().split(" ");
-                boolean newStatus = Integer.parseInt(contentValues[0]) == 1;
+                AntStatusCodec.AntStatus antStatus = AntStatusCodec.read(updateStatusMessage);
+                boolean newStatus = antStatus.isFinished();
+
+                if (asynchronous) {
+                    // no barrier: deposit the tour right away:
+                    if (newStatus) {
+                        long updateStartTime = System.nanoTime();
+                        depositTour(antStatus.getPath(), antStatus.getTourLength(), true);
+                        for (AntStatusCodec.AntStatus immigrant : antStatus.getImmigrants()) {
+                            depositTour(immigrant.getPath(), immigrant.getTourLength(), false);
+                        }
+                        if (metrics != null) metrics.updateNanos += System.nanoTime() - updateStartTime;
+                    }
+                    return;
+                }
 
-                int senderIndex = antAgents.indexOf(senderAID);
+                Integer senderIndex = antIndexes.get(senderAID);
+                if (senderIndex == null) {
+                    // the DF hasn't notified this ant yet: it joins the colony now, so that its tour is part of
+                    // this iteration, like for the ants that already know it:
+                    pendingStatuses.put(senderAID, antStatus);
+                    discoveredAnts.add(senderAID);
+                    updateColony();
+                    findTourBehaviour.restart();
+                    return;
+                }
 
                 // update the finishedAnt array:
                 finishedAnt[senderIndex] = newStatus;
+                // wake the tour-finding behaviour up, so that it checks the barrier again:
+                findTourBehaviour.restart();
 
                 if (newStatus) {
                     // update the tourLengths array:
-                    tourLengths.set(senderIndex, Double.parseDouble(contentValues[1]));
+                    tourLengths.set(senderIndex, antStatus.getTourLength());
 
                     // update the antPaths list:
-                    antPaths.set(senderIndex,
-                            Arrays.stream(Arrays.copyOfRange(contentValues, 2, contentValues.length))
-                                    .map(Integer::parseInt)
-                                    .collect(Collectors.toList()));
+                    antPaths.set(senderIndex, antStatus.getPath());
+                    colonyImmigrants.addAll(antStatus.getImmigrants());
                 }
 
 //                System.out.println(myAgent.getName() + ": " + senderAID.getName() +
@@ -168,27 +389,226 @@ public class AntAgent extends Agent {
     }
 
     /**
-     * get all the new agents.
-     *
-     * @return an array containing the other agents' identifiers.
+     * The asynchronous mode: deposit a tour on the pheromone levels of this ant.
+     * @param path the edge ids of the tour (nothing is deposited for an empty path).
+     * @param tourLength the length of the tour.
+     * @param colonyTour true for the tours of the colony, which are counted in the iteration means.
+     */
+    private void depositTour(List<Integer> path, double tourLength, boolean colonyTour) {
+        if (path.isEmpty()) return;
+        AntAgentMechanics.depositPheromone(subjectivePheromoneLevel, path, pheromoneQuantity / tourLength);
+        AntAgentMechanics.updateChoiceInfo(choiceInfo, subjectivePheromoneLevel, heuristicValues, path);
+        if (colonyTour) depositedLengths.add(tourLength);
+        if (tourLength < colonyBestLength) {
+            colonyBestLength = tourLength;
+            colonyBestPath = path;
+        }
+    }
+
+    /**
+     * @param service the name of a service.
+     * @param colony the name of a colony, or null for the default colony.
+     * @return the name of the service for the given colony.
+     */
+    static String colonyService(String service, String colony) {
+        return colony == null ? service : service + "-" + colony;
+    }
+
+    /**
+     * This behaviour receives the best tours sent by the other colonies; the first ant of the colony keeps them,
+     * and forwards them with its next finished status (the tours are sent to all the ants of the colony, so that
+     * they reach the first ant even if the membership of the colony changes).
      */
-    private List<AID> updateAgentsList() {
+    private class MigrationServer extends CyclicBehaviour {
+        public void action() {
+            ACLMessage migrationMessage = receiveMessage(MessageTemplate.MatchConversationId(MIGRATION));
+            if (migrationMessage == null) {
+                block();
+                return;
+            }
+            // the other ants get the tours from the first ant:
+            if (!AntAgentMechanics.isFirstAnt(getAID(), antAgents)) return;
+            AntStatusCodec.AntStatus immigrant = AntStatusCodec.read(migrationMessage);
+            // the colonies are expected to solve the same instance:
+            if (immigrant.isFinished() && immigrant.getPath().size() == numberOfCities &&
+                    immigrant.getPath().stream().allMatch(edgeIndex ->
+                            edgeIndex >= 0 && edgeIndex < cityGraph.getNumberOfEdges())) {
+                immigrants.add(immigrant);
+            } else {
+                System.out.println(getName() + ": ignoring an invalid tour from " +
+                        migrationMessage.getSender().getName());
+            }
+        }
+    }
+
+    /**
+     * This behaviour receives the decision to stop the colony early, from the first ant or from the coordinator.
+     */
+    private class TerminationServer extends CyclicBehaviour {
+        public void action() {
+            ACLMessage terminationMessage = receiveMessage(MessageTemplate.MatchConversationId(TERMINATION));
+            if (terminationMessage == null) {
+                block();
+                return;
+            }
+            String[] content = terminationMessage.getContent().split(" ", 2);
+            int epoch = Integer.parseInt(content[0]);
+            if (terminationEpoch == -1 || epoch < terminationEpoch) terminationEpoch = epoch;
+            System.out.println(getName() + ": stopping after iteration " + terminationEpoch + " (" +
+                    (content.length > 1 ? content[1] : "") + ")");
+        }
+    }
+
+    /**
+     * Send the best tour of the colony to the neighbouring colonies, which are found in the yellow pages.
+     */
+    private void migrateBestTour() {
+        if (colonyBestPath == null) return;
+        // find the ants of all the colonies:
         DFAgentDescription template = new DFAgentDescription();
         ServiceDescription serviceDescription = new ServiceDescription();
         serviceDescription.setType(TOUR_FINDING_SERVICE);
-        serviceDescription.setName(TOUR_FINDING_SERVICE);
         template.addServices(serviceDescription);
-        List<AID> newAgents = new ArrayList<AID>();
+        SearchConstraints searchConstraints = new SearchConstraints();
+        searchConstraints.setMaxResults(-1L);
+        TreeMap<String, List<AID>> colonies = new TreeMap<>();
         try {
-            DFAgentDescription[] result = DFService.search(this, template);
-            for (DFAgentDescription dfAgentDescription : result) {
-                if (!dfAgentDescription.getName().equals(getAID()))
-                    newAgents.add(dfAgentDescription.getName());
+            for (DFAgentDescription antDescription : DFService.search(this, template, searchConstraints)) {
+                Iterator<?> services = antDescription.getAllServices();
+                while (services.hasNext()) {
+                    String service = ((ServiceDescription) services.next()).getName();
+                    colonies.computeIfAbsent(service, key -> new ArrayList<>()).add(antDescription.getName());
+                }
             }
         } catch (FIPAException fe) {
-            System.out.println(getName() + ": failed to obtain all the new agents");
+            System.out.println(getName() + ": failed to search for the other colonies");
+            return;
+        }
+        colonies.remove(tourFindingService);
+        if (colonies.isEmpty()) return;
+        ACLMessage migrationMessage = new ACLMessage(ACLMessage.INFORM);
+        if (fullMigration) {
+            colonies.values().forEach(colonyAnts -> colonyAnts.forEach(migrationMessage::addReceiver));
+        } else {
+            // the next colony of the ring:
+            String nextColony = colonies.higherKey(tourFindingService);
+            colonies.get(nextColony == null ? colonies.firstKey() : nextColony).forEach(migrationMessage::addReceiver);
+        }
+        migrationMessage.setConversationId(MIGRATION);
+        AntStatusCodec.write(migrationMessage, true, true, colonyBestLength, colonyBestPath);
+        sendMessage(migrationMessage);
+    }
+
+    /**
+     * find the pheromone coordinator in the yellow pages.
+     *
+     * @return the identifier of the coordinator, or null if it hasn't been registered yet.
+     */
+    private AID findCoordinator() {
+        DFAgentDescription template = new DFAgentDescription();
+        ServiceDescription serviceDescription = new ServiceDescription();
+        serviceDescription.setType(PheromoneCoordinatorAgent.COORDINATION_SERVICE);
+        serviceDescription.setName(colonyService(PheromoneCoordinatorAgent.COORDINATION_SERVICE,
+                agentArguments.get("colony")));
+        template.addServices(serviceDescription);
+        try {
+            DFAgentDescription[] result = DFService.search(this, template);
+            if (result.length > 0) return result[0].getName();
+        } catch (FIPAException fe) {
+            System.out.println(getName() + ": failed to search for the pheromone coordinator");
+        }
+        return null;
+    }
+
+    /**
+     * @return a DF template matching the ants of the colony.
+     */
+    private DFAgentDescription antTemplate() {
+        DFAgentDescription template = new DFAgentDescription();
+        ServiceDescription serviceDescription = new ServiceDescription();
+        serviceDescription.setType(TOUR_FINDING_SERVICE);
+        serviceDescription.setName(tourFindingService);
+        template.addServices(serviceDescription);
+        return template;
+    }
+
+    /**
+     * This behaviour receives the DF notifications about the ants that register or
+     * de-register, and records them in discoveredAnts; the colony is updated at the start
+     * of the next iteration (or as soon as a new ant sends its status, see UpdateFriendStatusServer).
+     */
+    private class AntDiscoveryServer extends CyclicBehaviour {
+        public void action() {
+            ACLMessage notification = receiveMessage(MessageTemplate.and(
+                    MessageTemplate.MatchSender(getDefaultDF()),
+                    MessageTemplate.MatchPerformative(ACLMessage.INFORM)));
+            if (notification == null) {
+                block();
+                return;
+            }
+            try {
+                for (DFAgentDescription dfAgentDescription : DFService.decodeNotification(notification.getContent())) {
+                    AID antAID = dfAgentDescription.getName();
+                    if (antAID.equals(getAID())) continue;
+                    if (dfAgentDescription.getAllServices().hasNext()) {
+                        membershipChanged |= discoveredAnts.add(antAID);
+                    } else if (discoveredAnts.remove(antAID)) {
+                        membershipChanged = true;
+                        // don't wait for an ant that has left:
+                        Integer antIndex = antIndexes.get(antAID);
+                        if (antIndex != null) {
+                            finishedAnt[antIndex] = true;
+                            antPaths.set(antIndex, new ArrayList<>());
+                            findTourBehaviour.restart();
+                        }
+                    }
+                }
+            } catch (FIPAException fe) {
+                System.out.println(getName() + ": failed to decode a DF notification");
+            }
+        }
+    }
+
+    /**
+     * Rebuild the per-ant state after the membership of the colony has changed;
+     * the state of the ants that are still in the colony is kept, and the pending statuses of the new ants
+     * are applied.
+     */
+    private void updateColony() {
+        List<AID> newAntAgents = new ArrayList<>();
+        newAntAgents.add(getAID());
+        newAntAgents.addAll(discoveredAnts);
+        List<List<Integer>> newAntPaths = new ArrayList<>();
+        List<Double> newTourLengths = new ArrayList<>();
+        boolean[] newFinishedAnt = new boolean[newAntAgents.size()];
+        Map<AID, Integer> newAntIndexes = new HashMap<>();
+        for (int antIndex = 0; antIndex < newAntAgents.size(); antIndex++) {
+            AID antAID = newAntAgents.get(antIndex);
+            Integer oldIndex = antIndexes.get(antAID);
+            newAntIndexes.put(antAID, antIndex);
+            newAntPaths.add(oldIndex == null ? new ArrayList<>() : antPaths.get(oldIndex));
+            newTourLengths.add(oldIndex == null || oldIndex >= tourLengths.size() ? 0.0 : tourLengths.get(oldIndex));
+            newFinishedAnt[antIndex] = oldIndex != null && finishedAnt[oldIndex];
         }
-        return newAgents;
+        antAgents = newAntAgents;
+        antIndexes = newAntIndexes;
+        antPaths = newAntPaths;
+        tourLengths = newTourLengths;
+        finishedAnt = newFinishedAnt;
+        membershipChanged = false;
+        // the statuses that arrived before the ants were indexed:
+        for (Map.Entry<AID, AntStatusCodec.AntStatus> pendingStatus : pendingStatuses.entrySet()) {
+            Integer antIndex = antIndexes.get(pendingStatus.getKey());
+            if (antIndex == null) continue;
+            AntStatusCodec.AntStatus antStatus = pendingStatus.getValue();
+            finishedAnt[antIndex] = antStatus.isFinished();
+            if (antStatus.isFinished()) {
+                tourLengths.set(antIndex, antStatus.getTourLength());
+                antPaths.set(antIndex, antStatus.getPath());
+                colonyImmigrants.addAll(antStatus.getImmigrants());
+            }
+        }
+        pendingStatuses.clear();
     }
 
     /**
@@ -212,76 +632,68 @@ public class AntAgent extends Agent {
         private int state = 0;
         private int currentEpoch = 0;
         private long currentCity = -1;
+        // the random number generator of the ant (seeded by the "seed" argument, if it is given); it is reseeded
+        // with every checkpoint:
         Random random = new Random();
         boolean deadEndReached = false;
         List<Integer> lastPath = null;
-
-        class TrackConfiguration {
-            Integer edgeIndex;
-            String cityIsVisitedString;
-            List<Integer> hamiltonianPath;
-
-            public TrackConfiguration(int edgeIndex, String string, List<Integer> hamiltonianPath) {
-                this.edgeIndex = edgeIndex;
-                this.cityIsVisitedString = string;
-                this.hamiltonianPath = hamiltonianPath;
-            }
-        }
+        // when this ant has reached the barrier (state 2) of the current iteration:
+        private long barrierStartTime;
+        // when this ant has started its current tour, and the length of the path it has popped last
+        // (for the metrics):
+        private long tourStartTime;
+        private int lastPoppedLength = 0;
 
         // this stack will hold the indexes of the edges that have been selected for
         // the hamiltonian tour, so that the algorithm can choose an alternative path if
         // the current one is not a tour or if it leads to cities that have already been
-        // visited
-        private Stack<TrackConfiguration> edgeTrack;
+        // visited (the frames share the prefixes of their paths, see PathFrame)
+        private Stack<PathFrame> edgeTrack;
 
         public void action() {
+            // resumed from the checkpoint of the last iteration: the run is already complete (see done):
+            if (currentEpoch >= numberOfIterations) return;
             switch (state) {
                 case 0:
 //                    System.out.println(myAgent.getName() + ": starting...");
                     // start the agent:
 
+                    if (useCoordinator && coordinatorAID == null) {
+                        coordinatorAID = findCoordinator();
+                        if (coordinatorAID == null) {
+                            // the coordinator hasn't started yet: try again later:
+                            block(1000);
+                            break;
+                        }
+                    }
+
                     // start from a randomly chosen city:
-                    sourceCity = new Random().nextInt(numberOfCities) + 1;
+                    tourStartTime = System.nanoTime();
+                    lastPoppedLength = 0;
+                    sourceCity = random.nextInt(numberOfCities) + 1;
                     currentCity = sourceCity;
 
-                    // update the antAgents list:
-                    antAgents = new ArrayList<>();
-                    antAgents.add(myAgent.getAID());
-                    antAgents.addAll(updateAgentsList());
-
-                    // reset antPaths:
-                    antPaths = new ArrayList<>();
-                    for (int i = 0; i < antAgents.size(); i++) {
-                        antPaths.add(new ArrayList<>());
-                    }
-
-                    // reset tourLengths:
-                    tourLengths = new ArrayList<>();
-                    //TODO: do all the collection updates in a single loop
-                    for (int i = 0; i < antAgents.size(); i++) {
-                        tourLengths.add(0.0);
-                    }
+                    // update the antAgents list, only if some ants have joined or left the colony
+                    // (with a coordinator, the ant doesn't need to know the other ants):
+                    if (membershipChanged) updateColony();
 
-                    // reset the finishedAnt array:
-                    finishedAnt = Arrays.copyOf(finishedAnt, antAgents.size());
+                    // reset the state of this ant; the other ants reset theirs with the "not finished" message:
+                    antPaths.set(0, new ArrayList<>());
+                    tourLengths.set(0, 0.0);
                     finishedAnt[0] = false;
 
                     // reset the subjectivePheromoneLevel:
 
                     // reset the edge stack:
                     edgeTrack = new Stack<>();
-                    // add all the edges that start from the current city:
-                    for (int edgeIndex = 0; edgeIndex < cityGrid.size(); edgeIndex++) {
-                        CityRoad currentRoad = cityGrid.get(edgeIndex);
-                        if (currentRoad.getSourceId() == currentCity) {
-                            StringBuilder stringBuilder = new StringBuilder();
-                            for (int cityIndex = 0; cityIndex < numberOfCities; cityIndex++) {
-                                if (cityIndex == currentCity - 1 || cityIndex == currentRoad.getTargetId() - 1)
-                                    stringBuilder.append(1);
-                                else stringBuilder.append(0);
-                            }
-                            edgeTrack.add(new TrackConfiguration(edgeIndex, stringBuilder.toString(),
-                                    new ArrayList<>(Collections.singletonList(edgeIndex))));
+                    // add all the edges that start from the current city (the roulette mode doesn't use the stack):
+                    if (tourBuilder == null) {
+                        VisitedCitySet sourceVisited = VisitedCitySet.empty(numberOfCities).with(currentCity);
+                        for (int slot = cityGraph.firstSlot(currentCity); slot < cityGraph.endSlot(currentCity);
+                             slot++) {
+                            int edgeIndex = cityGraph.edgeAt(slot);
+                            edgeTrack.add(PathFrame.start(edgeIndex, cityGraph.getLength(edgeIndex),
+                                    sourceVisited.with(cityGraph.getTarget(edgeIndex))));
                         }
                     }
 
@@ -293,51 +705,40 @@ public class AntAgent extends Agent {
                     }
                     informNotFinished.setLanguage("English");
                     informNotFinished.setConversationId(UPDATE_NEIGHBOR_STATUS);
-                    informNotFinished.setContent("0");
-                    myAgent.send(informNotFinished);
+                    AntStatusCodec.write(informNotFinished, binaryMessages, false, 0.0, Collections.emptyList());
+                    // (without a barrier, the other ants don't wait for this one)
+                    if (!useCoordinator && !asynchronous) sendMessage(informNotFinished);
                     state = 1;
                     break;
                 case 1:
                     // the agent is still searching for the hamiltonian cycle:
 
-                    if (edgeTrack.empty()) {
+                    if (tourBuilder != null) {
+                        // sample the whole tour with the random-proportional rule:
+                        List<Integer> sampledPath = tourBuilder.construct(sourceCity, choiceInfo, random);
+                        if (metrics != null) metrics.backtracks += tourBuilder.getBacktracks();
+                        if (sampledPath == null) {
+                            // this graph doesn't contain a hamiltonian tour:
+                            state = 0;
+                        } else {
+                            finishTour(sampledPath, cityGraph.pathLength(sampledPath));
+                        }
+                    } else if (edgeTrack.empty()) {
                         // this graph doesn't contain a hamiltonian tour:
 //                        System.out.println(myAgent.getName() + ": cannot find a hamiltonian tour...");
                         state = 0;
                     } else {
                         // get the last possible edge from the stack:
-                        TrackConfiguration currentTrack = edgeTrack.pop();
-                        currentCity = cityGrid.get(currentTrack.edgeIndex).getTargetId();
-                        String currentCityIsVisitedString = currentTrack.cityIsVisitedString;
-                        List<Integer> currentPath = currentTrack.hamiltonianPath;
-                        lastPath = new ArrayList<>(currentPath);
+                        PathFrame currentFrame = edgeTrack.pop();
+                        currentCity = cityGraph.getTarget(currentFrame.getEdgeIndex());
+                        VisitedCitySet currentVisitedCities = currentFrame.getVisitedCities();
+                        // the path doesn't extend the previous one: the ant has gone back:
+                        if (metrics != null && currentFrame.getDepth() <= lastPoppedLength) metrics.backtracks++;
+                        lastPoppedLength = currentFrame.getDepth();
 
                         // check if the tour is complete:
-                        if (AntAgentMechanics.tourCondition(currentCityIsVisitedString, sourceCity, currentCity)) {
-                            // change the state to 2:
-                            state = 2;
-                            status = true;
-                            currentEpoch += 1;
-                            finishedAnt[0] = true;
-//                            System.out.println(myAgent.getName() + ": a hamiltonian path was found");
-                            // inform the other ants that you've finished, and send them the current tour length and the
-                            // current path:
-                            ACLMessage informFinished = new ACLMessage(ACLMessage.INFORM);
-                            for (AID antAgent : antAgents) {
-                                if (!antAgent.equals(myAgent.getAID())) informFinished.addReceiver(antAgent);
-                            }
-                            informFinished.setLanguage("English");
-                            informFinished.setConversationId(UPDATE_NEIGHBOR_STATUS);
-                            antPaths.set(0, currentPath);
-                            tourLengths.set(0, currentPath.stream()
-                                    .map(edgeIndex -> cityGrid.get(edgeIndex).getLength())
-                                    .reduce(0.0, Double::sum)
-                            );
-                            informFinished.setContent("1 " + tourLengths.get(0) + antPaths.get(0).stream()
-                                    .map(Object::toString)
-                                    .reduce("", (partialResult, currentString) -> partialResult + " " + currentString)
-                            );
-                            myAgent.send(informFinished);
+                        if (AntAgentMechanics.tourCondition(currentVisitedCities, sourceCity, currentCity)) {
+                            finishTour(currentFrame.toPath(), currentFrame.getLength());
                         } else {
                             class EdgeCityPair {
                                 final Long cityIndex;
@@ -350,37 +751,34 @@ public class AntAgent extends Agent {
                             }
                             // get the list of neighbour cities that haven't been visited yet:
                             List<EdgeCityPair> possibleCities = new ArrayList<>();
-                            for (int edgeIndex = 0; edgeIndex < cityGrid.size(); edgeIndex++) {
-                                CityRoad currentEdge = cityGrid.get(edgeIndex);
-                                if (currentEdge.getSourceId() == currentCity &&
-                                AntAgentMechanics.possibleNextCity(currentCityIsVisitedString, sourceCity,
-                                        currentEdge.getTargetId())
-                                ) {
-                                    possibleCities.add(new EdgeCityPair(currentEdge.getTargetId(), edgeIndex));
+                            for (int slot = cityGraph.firstSlot(currentCity); slot < cityGraph.endSlot(currentCity);
+                                 slot++) {
+                                int edgeIndex = cityGraph.edgeAt(slot);
+                                long targetCity = cityGraph.getTarget(edgeIndex);
+                                if (AntAgentMechanics.possibleNextCity(currentVisitedCities, sourceCity,
+                                        targetCity)) {
+                                    possibleCities.add(new EdgeCityPair(targetCity, edgeIndex));
                                 }
                             }
 
                             // compute the city probabilities (random-proportional rule):
                             List<Double> nextStateProbabilities = AntAgentMechanics.getNextStateProbability(currentCity,
                                     possibleCities.stream().map(pair -> pair.cityIndex).collect(Collectors.toList()),
-                                    cityGrid,
-                                    subjectivePheromoneLevel, betaParameter);
+                                    cityGraph, choiceInfo);
 
                             // add the edges corresponding to the next cities in edgeTrack, in ascending order of the
                             // probability:
                             List<EdgeCityPair> sortedPairs = AntAgentMechanics.sortEdges(possibleCities,
                                     nextStateProbabilities);
                             for (EdgeCityPair currentElement : sortedPairs) {
-                                StringBuilder newConfiguration = new StringBuilder(currentCityIsVisitedString);
+                                VisitedCitySet newConfiguration;
                                 if(currentElement.cityIndex != sourceCity)
-                                    newConfiguration.setCharAt(Math.toIntExact(currentElement.cityIndex - 1), '1');
+                                    newConfiguration = currentVisitedCities.with(currentElement.cityIndex);
                                 else {
-                                    newConfiguration.setCharAt(Math.toIntExact(sourceCity - 1), '2');
+                                    newConfiguration = currentVisitedCities.close();
                                 }
-                                List<Integer> newPath = new ArrayList<>(currentPath);
-                                newPath.add(currentElement.edgeIndex);
-                                edgeTrack.add(new TrackConfiguration(currentElement.edgeIndex,
-                                        newConfiguration.toString(), newPath));
+                                edgeTrack.add(currentFrame.extend(currentElement.edgeIndex,
+                                        cityGraph.getLength(currentElement.edgeIndex), newConfiguration));
                             }
                         }
                     }
@@ -388,6 +786,30 @@ public class AntAgent extends Agent {
                 case 2:
                     // a hamiltonian route has been found: wait for the other ants to finish:
 
+                    if (useCoordinator) {
+                        // wait for the pheromone update computed by the coordinator:
+                        ACLMessage updateMessage = receiveMessage(MessageTemplate.and(
+                                MessageTemplate.MatchConversationId(PheromoneCoordinatorAgent.PHEROMONE_UPDATE),
+                                MessageTemplate.MatchSender(coordinatorAID)));
+                        if (updateMessage == null) {
+                            block();
+                        } else {
+                            recordBarrierWait();
+                            long updateStartTime = System.nanoTime();
+                            PheromoneUpdateCodec.decode(updateMessage.getByteSequenceContent())
+                                    .applyTo(subjectivePheromoneLevel, pheromoneDecayParameter);
+                            AntAgentMechanics.updateChoiceInfo(choiceInfo, subjectivePheromoneLevel, heuristicValues);
+                            if (metrics != null) {
+                                // the ant only knows its own tour:
+                                metrics.updateNanos += System.nanoTime() - updateStartTime;
+                                writeMetrics(Collections.singletonList(tourLengths.get(0)));
+                            }
+                            writeCheckpoint();
+                            state = currentEpoch == numberOfIterations ? 3 : 0;
+                        }
+                        break;
+                    }
+
                     // check if all the ants have finished:
                     boolean allAntsFinished = true;
                     for (boolean b : finishedAnt) {
@@ -396,7 +818,11 @@ public class AntAgent extends Agent {
                             break;
                         }
                     }
-                    if (allAntsFinished) {
+                    if (!allAntsFinished) {
+                        // sleep until UpdateFriendStatusServer records a status change:
+                        block();
+                    } else {
+                        recordBarrierWait();
 //                        System.out.println(myAgent.getName() + ": all ants have found a hamiltonian tour");
                         // if this is the first ant alphabetically, compute the mean length of the tours and collect it:
                         if(AntAgentMechanics.isFirstAnt(myAgent.getAID(), antAgents)){
@@ -404,10 +830,41 @@ public class AntAgent extends Agent {
                                     antAgents.size());
                         }
                         // update the pheromone levels:
-                        Double[] newPheromoneLevels = AntAgentMechanics.updatePheromoneLevel(
-                                subjectivePheromoneLevel, antPaths, cityGrid, tourLengths,
-                                pheromoneDecayParameter, pheromoneQuantity);
-                        subjectivePheromoneLevel = Arrays.copyOf(newPheromoneLevels, newPheromoneLevels.length);
+                        List<List<Integer>> updatePaths = antPaths;
+                        List<Double> updateLengths = tourLengths;
+                        if (!colonyImmigrants.isEmpty()) {
+                            // the tours received from the other colonies are deposited with the tours of the colony:
+                            updatePaths = new ArrayList<>(antPaths);
+                            updateLengths = new ArrayList<>(tourLengths);
+                            for (AntStatusCodec.AntStatus immigrant : colonyImmigrants) {
+                                updatePaths.add(immigrant.getPath());
+                                updateLengths.add(immigrant.getTourLength());
+                            }
+                            colonyImmigrants.clear();
+                        }
+                        long updateStartTime = System.nanoTime();
+                        pheromoneStrategy.globalUpdate(subjectivePheromoneLevel, updatePaths, updateLengths);
+                        AntAgentMechanics.updateChoiceInfo(choiceInfo, subjectivePheromoneLevel, heuristicValues);
+                        int bestAnt = PheromoneUpdateStrategy.bestAnt(updatePaths, updateLengths);
+                        if (bestAnt != -1 && updateLengths.get(bestAnt) < colonyBestLength) {
+                            colonyBestLength = updateLengths.get(bestAnt);
+                            colonyBestPath = updatePaths.get(bestAnt);
+                        }
+                        if (metrics != null) {
+                            metrics.updateNanos += System.nanoTime() - updateStartTime;
+                            List<Double> colonyLengths = new ArrayList<>();
+                            for (int antIndex = 0; antIndex < antPaths.size(); antIndex++) {
+                                if (!antPaths.get(antIndex).isEmpty()) colonyLengths.add(tourLengths.get(antIndex));
+                            }
+                            writeMetrics(colonyLengths);
+                        }
+                        if (migrationInterval > 0 && currentEpoch % migrationInterval == 0 &&
+                                AntAgentMechanics.isFirstAnt(myAgent.getAID(), antAgents)) {
+                            migrateBestTour();
+                        }
+                        checkTermination();
+                        writeCheckpoint();
+                        streamSnapshot();
                         if (currentEpoch == numberOfIterations) {
                             state = 3;
                         } else {
@@ -421,24 +878,190 @@ public class AntAgent extends Agent {
             }
         }
 
+        /**
+         * Change the state to 2 and inform the other ants that this one has finished, sending them
+         * the current tour length and the current path.
+         * @param currentPath the edge ids of the hamiltonian tour that was found.
+         * @param tourLength the length of the tour.
+         */
+        private void finishTour(List<Integer> currentPath, double tourLength) {
+            // the local pheromone update uses the tour that was built:
+            if (pheromoneStrategy.localUpdate(subjectivePheromoneLevel, currentPath)) {
+                AntAgentMechanics.updateChoiceInfo(choiceInfo, subjectivePheromoneLevel, heuristicValues, currentPath);
+            }
+            long constructionEndTime = System.nanoTime();
+            // improve the tour before it is measured and sent:
+            if (localSearch != null) {
+                currentPath = localSearch.improve(currentPath);
+                tourLength = cityGraph.pathLength(currentPath);
+            }
+            if (metrics != null) {
+                metrics.constructionNanos += constructionEndTime - tourStartTime;
+                metrics.localSearchNanos += System.nanoTime() - constructionEndTime;
+            }
+            lastPath = new ArrayList<>(currentPath);
+            // change the state to 2:
+            state = 2;
+            barrierStartTime = System.nanoTime();
+            status = true;
+            currentEpoch += 1;
+            finishedAnt[0] = true;
+//            System.out.println(myAgent.getName() + ": a hamiltonian path was found");
+            ACLMessage informFinished = new ACLMessage(ACLMessage.INFORM);
+            if (useCoordinator) {
+                informFinished.addReceiver(coordinatorAID);
+                informFinished.setConversationId(PheromoneCoordinatorAgent.TOUR_REPORT);
+            } else {
+                for (AID antAgent : antAgents) {
+                    if (!antAgent.equals(myAgent.getAID())) informFinished.addReceiver(antAgent);
+                }
+                informFinished.setConversationId(UPDATE_NEIGHBOR_STATUS);
+            }
+            informFinished.setLanguage("English");
+            antPaths.set(0, currentPath);
+            tourLengths.set(0, tourLength);
+            // forward the tours received from the other colonies (see MigrationServer):
+            List<AntStatusCodec.AntStatus> forwardedImmigrants = new ArrayList<>(immigrants);
+            immigrants.clear();
+            colonyImmigrants.addAll(forwardedImmigrants);
+            AntStatusCodec.write(informFinished, binaryMessages, true, tourLengths.get(0), antPaths.get(0),
+                    forwardedImmigrants);
+            sendMessage(informFinished);
+            if (asynchronous) depositOwnTour();
+        }
+
+        /**
+         * The asynchronous mode: evaporate, deposit the tour of this ant and the tours received from the other
+         * colonies, then continue with the next tour, without waiting for the other ants.
+         */
+        private void depositOwnTour() {
+            long updateStartTime = System.nanoTime();
+            AntAgentMechanics.evaporate(subjectivePheromoneLevel, pheromoneDecayParameter);
+            AntAgentMechanics.updateChoiceInfo(choiceInfo, subjectivePheromoneLevel, heuristicValues);
+            depositTour(antPaths.get(0), tourLengths.get(0), true);
+            for (AntStatusCodec.AntStatus immigrant : colonyImmigrants) {
+                depositTour(immigrant.getPath(), immigrant.getTourLength(), false);
+            }
+            colonyImmigrants.clear();
+            boolean firstAnt = AntAgentMechanics.isFirstAnt(myAgent.getAID(), antAgents);
+            if (firstAnt) iterationLengths.add(depositedLengths.stream().reduce(0.0, Double::sum) /
+                    depositedLengths.size());
+            if (metrics != null) {
+                metrics.updateNanos += System.nanoTime() - updateStartTime;
+                writeMetrics(depositedLengths);
+            }
+            depositedLengths.clear();
+            if (migrationInterval > 0 && currentEpoch % migrationInterval == 0 && firstAnt) migrateBestTour();
+            checkTermination();
+            writeCheckpoint();
+            streamSnapshot();
+            state = currentEpoch == numberOfIterations ? 3 : 0;
+        }
+
+        private void recordBarrierWait() {
+            long barrierWaitNanos = System.nanoTime() - barrierStartTime;
+            barrierWaitTimes.add(barrierWaitNanos / 1e6);
+            if (metrics != null) metrics.barrierWaitNanos += barrierWaitNanos;
+        }
+
+        /**
+         * Check the termination criteria, if this ant is the first of the colony (with a coordinator, the coordinator
+         * checks them), and send the decision to the other ants if one of them is met.
+         */
+        private void checkTermination() {
+            if (useCoordinator || !terminationCriteria.isEnabled() || terminationEpoch != -1 ||
+                    !AntAgentMechanics.isFirstAnt(myAgent.getAID(), antAgents)) return;
+            String reason = terminationCriteria.check(currentEpoch, colonyBestLength,
+                    terminationCriteria.usesBranchingFactor() ? AntAgentMechanics.branchingFactor(cityGraph,
+                            subjectivePheromoneLevel, AntMetrics.BRANCHING_LAMBDA) : Double.NaN);
+            if (reason == null) return;
+            terminationEpoch = currentEpoch;
+            System.out.println(myAgent.getName() + ": stopping the colony after iteration " + currentEpoch + " (" +
+                    reason + ")");
+            ACLMessage terminationMessage = new ACLMessage(ACLMessage.INFORM);
+            for (AID antAgent : antAgents) {
+                if (!antAgent.equals(myAgent.getAID())) terminationMessage.addReceiver(antAgent);
+            }
+            terminationMessage.setConversationId(TERMINATION);
+            terminationMessage.setContent(currentEpoch + " " + reason);
+            sendMessage(terminationMessage);
+        }
+
+        /**
+         * Write the checkpoint of the ant, if it is due; the random number generator is reseeded with the seed
+         * stored in the checkpoint, so that a resumed ant continues with the same random numbers.
+         */
+        private void writeCheckpoint() {
+            if (checkpointDirectory == null ||
+                    (currentEpoch % checkpointInterval != 0 && currentEpoch != numberOfIterations &&
+                            currentEpoch != terminationEpoch)) return;
+            long randomSeed = random.nextLong();
+            random.setSeed(randomSeed);
+            // (with a coordinator, the ant doesn't track the best tour of the colony)
+            List<Integer> bestPath = colonyBestPath == null ? lastPath : colonyBestPath;
+            double bestLength = colonyBestPath == null ? cityGraph.pathLength(lastPath) : colonyBestLength;
+            try {
+                ColonyCheckpoint.capture(cityGraph, subjectivePheromoneLevel, currentEpoch, bestPath, bestLength,
+                        randomSeed).write(checkpointFile(checkpointDirectory));
+            } catch (IOException e) {
+                System.out.println(myAgent.getName() + ": failed to write the checkpoint: " + e.getMessage());
+            }
+        }
+
+        /**
+         * Queue the state of the iteration to the snapshot stream, if this ant is the first of the colony; the
+         * stream is opened by the first snapshot (if another ant becomes the first one, it starts the file again).
+         */
+        private void streamSnapshot() {
+            if (streamFile == null || !AntAgentMechanics.isFirstAnt(myAgent.getAID(), antAgents)) return;
+            if (snapshotStream == null) {
+                try {
+                    snapshotStream = new SnapshotStreamWriter(streamFile, subjectivePheromoneLevel.length,
+                            Double.parseDouble(agentArguments.getOrDefault("streamthreshold", "0")));
+                } catch (IOException e) {
+                    System.out.println(myAgent.getName() + ": failed to create the snapshot stream: " +
+                            e.getMessage());
+                    streamFile = null;
+                    return;
+                }
+            }
+            snapshotStream.offer(currentEpoch, subjectivePheromoneLevel, colonyBestPath, colonyBestLength);
+        }
+
+        private void writeMetrics(List<Double> knownLengths) {
+            metrics.write(currentEpoch, tourLengths.get(0), knownLengths, colonyBestLength,
+                    AntAgentMechanics.branchingFactor(cityGraph, subjectivePheromoneLevel,
+                            AntMetrics.BRANCHING_LAMBDA));
+        }
+
         @Override
         public boolean done() {
-            boolean numberOfIterationsReached = currentEpoch == numberOfIterations;
+            // (an ant that is already past the last iteration of an early termination stops too)
+            boolean numberOfIterationsReached = currentEpoch == numberOfIterations ||
+                    (terminationEpoch != -1 && currentEpoch >= terminationEpoch);
             if (numberOfIterationsReached) {
                 // the ant that has the first name in alphabetical order is designated
                 // to write the pheromone levels:
 //                int agentIndex = 1;
 //                while (agentIndex < antAgents.size() &&
 //                        antAgents.get(agentIndex).getName().compareTo(myAgent.getAID().getName()) > 0) agentIndex++;
-                if (AntAgentMechanics.isFirstAnt(myAgent.getAID(), antAgents)) {
+                // (with a coordinator, the coordinator writes the results)
+                if (!useCoordinator && AntAgentMechanics.isFirstAnt(myAgent.getAID(), antAgents)) {
                     System.out.println(myAgent.getName() + ": designated to write the results...");
                     // write the results:
                     Writer.write(subjectivePheromoneLevel, cityGrid);
-                    Writer.write(lastPath);
+                    if (lastPath != null) Writer.write(lastPath);
                     System.out.println("Iteration means: " + iterationLengths.toString());
                 }
-                System.out.println(myAgent.getName() + ": " + lastPath.stream().map(id -> cityGrid.get(id))
-                        .collect(Collectors.toList()).toString() + ", " + tourLengths.get(0));
+                if (lastPath == null || tourLengths.isEmpty()) {
+                    // (resumed from the checkpoint of the last iteration, without building a tour)
+                    System.out.println(myAgent.getName() + ": no tour built in this run");
+                } else {
+                    System.out.println(myAgent.getName() + ": " + lastPath.stream().map(id -> cityGrid.get(id))
+                            .collect(Collectors.toList()).toString() + ", " + tourLengths.get(0));
+                }
+                System.out.println(myAgent.getName() + ": barrier wait times (ms): " + barrierWaitTimes.toString());
+                closeSnapshotStream();
                 System.out.println(myAgent.getName() + ": shutting down FindTourBehavor...");
             }
             return numberOfIterationsReached || deadEndReached;
@@ -446,52 +1069,125 @@ public class AntAgent extends Agent {
     }
 
     /**
-     * Read the environment (the street grid).
-     * This method might need to be replaced by a method that reads from a database;
+     * Get the environment (the street grid) from the file given by the input argument;
+     * the grid is shared by all the agents of the JVM.
      * note: here we assume that all the cities are labeled with numbers from 1 to n,
      * where n is simply the number of cities.
      */
     private void readGrid() {
-        cityGrid = new ArrayList<CityRoad>();
-        FileReader fileReader = null;
-        BufferedReader bufferedReader = null;
+        Environment environment = Environment.load(
+                agentArguments.getOrDefault("input", Environment.DEFAULT_INPUT_FILE));
+        numberOfCities = environment.getNumberOfCities();
+        betaParameter = environment.getBetaParameter();
+        pheromoneDecayParameter = environment.getPheromoneDecayParameter();
+        pheromoneQuantity = environment.getPheromoneQuantity();
+        numberOfIterations = environment.getNumberOfIterations();
+        cityGrid = environment.getCityGrid();
+        cityGraph = environment.getCityGraph();
+        pheromoneStrategy = environment.createPheromoneStrategy();
+    }
+
+    private String checkpointFile(String directory) {
+        return Paths.get(directory, getLocalName() + ".ckpt").toString();
+    }
+
+    /**
+     * Start from a checkpoint.
+     * @param fileName the name of the checkpoint file.
+     * @param resume true to continue the run of the checkpoint (the iteration, the best tour, which also restores
+     *               the state of the update strategy, and the random numbers), false to only start from its
+     *               pheromone levels.
+     */
+    private void restoreCheckpoint(String fileName, boolean resume) {
+        ColonyCheckpoint checkpoint;
         try {
-            fileReader = new FileReader(INPUT_FILE);
-            bufferedReader = new BufferedReader(fileReader);
-            // read the number of cities and the source city:
-            String[] firstLine = bufferedReader.readLine().split(" ");
-            numberOfCities = Integer.parseInt(firstLine[0]);
-            betaParameter = Double.parseDouble(firstLine[1]);
-            pheromoneDecayParameter = Double.parseDouble(firstLine[2]);
-            pheromoneQuantity = Double.parseDouble(firstLine[3]);
-            numberOfIterations = Integer.parseInt(firstLine[4]);
-            String currentLine;
-            while ((currentLine = bufferedReader.readLine()) != null) {
-                String[] values = currentLine.split(" ");
-                cityGrid.add(new CityRoad(Long.parseLong(values[0]), Long.parseLong(values[1]),
-                        Double.parseDouble(values[2])));
-                // for the moment, I just assume that the roads are bidirectional:
-                cityGrid.add(new CityRoad(Long.parseLong(values[1]), Long.parseLong(values[0]),
-                        Double.parseDouble(values[2])));
-            }
+            checkpoint = ColonyCheckpoint.read(fileName);
         } catch (IOException e) {
-            e.printStackTrace();
-        } finally {
-            if (bufferedReader != null) {
-                try {
-                    bufferedReader.close();
-                } catch (IOException e) {
-                    e.printStackTrace();
-                }
+            System.out.println(getName() + ": failed to read the checkpoint: " + e.getMessage());
+            return;
+        }
+        if (resume && !checkpoint.matches(cityGraph)) {
+            System.out.println(getName() + ": the checkpoint was taken on another instance, warm-starting from it");
+            resume = false;
+        }
+        int copiedEdges = checkpoint.copyPheromoneLevels(cityGraph, subjectivePheromoneLevel);
+        AntAgentMechanics.updateChoiceInfo(choiceInfo, subjectivePheromoneLevel, heuristicValues);
+        if (resume) {
+            findTourBehaviour.currentEpoch = Math.min(checkpoint.getIteration(), numberOfIterations);
+            findTourBehaviour.random.setSeed(checkpoint.getRandomSeed());
+            if (!checkpoint.getBestPath().isEmpty()) {
+                colonyBestPath = checkpoint.getBestPath();
+                colonyBestLength = checkpoint.getBestLength();
+                findTourBehaviour.lastPath = new ArrayList<>(colonyBestPath);
             }
-            if (fileReader != null) {
-                try {
-                    fileReader.close();
-                } catch (IOException e) {
-                    e.printStackTrace();
-                }
+            // the best tour of MMAS and ACS is the best tour of the colony:
+            pheromoneStrategy.restore(findTourBehaviour.currentEpoch, checkpoint.getBestPath(),
+                    checkpoint.getBestLength());
+        }
+        System.out.println(getName() + ": " + (resume ? "resumed at the iteration " + checkpoint.getIteration() :
+                "warm-started") + " from " + fileName + " (" + copiedEdges + " pheromone levels)");
+    }
+
+    /**
+     * Send a message, and count it in the metrics.
+     */
+    private void sendMessage(ACLMessage message) {
+        if (metrics != null) metrics.messageSent(message);
+        send(message);
+    }
+
+    /**
+     * Receive a message that matches the template, and count it in the metrics.
+     * @return the message, or null if there isn't any.
+     */
+    private ACLMessage receiveMessage(MessageTemplate messageTemplate) {
+        ACLMessage message = receive(messageTemplate);
+        if (message != null && metrics != null) metrics.messageReceived(message);
+        return message;
+    }
+
+    /**
+     * The early termination criteria given by the arguments: stall=iterations, branching=factor, target=length
+     * and timelimit=seconds (see TerminationCriteria); the criteria are disabled without these arguments.
+     * @param arguments the key=value arguments.
+     * @return the criteria.
+     */
+    static TerminationCriteria terminationCriteria(Map<String, String> arguments) {
+        return new TerminationCriteria(Integer.parseInt(arguments.getOrDefault("stall", "0")),
+                Double.parseDouble(arguments.getOrDefault("branching", "0")),
+                Double.parseDouble(arguments.getOrDefault("target", "0")),
+                (long) (Double.parseDouble(arguments.getOrDefault("timelimit", "0")) * 1000));
+    }
+
+    /**
+     * Read the key=value arguments of an agent.
+     * @param agent the agent.
+     * @return the values of the arguments, by their keys.
+     */
+    static Map<String, String> readArguments(Agent agent) {
+        return parseArguments(agent.getArguments(), agent.getName());
+    }
+
+    /**
+     * Parse key=value arguments; the other arguments are ignored.
+     * @param args the arguments (null for none).
+     * @param owner the name used in the messages about the ignored arguments.
+     * @return the values of the arguments, by their keys.
+     */
+    static Map<String, String> parseArguments(Object[] args, String owner) {
+        Map<String, String> result = new HashMap<>();
+        if (args == null) return result;
+        for (Object arg : args) {
+            String argument = arg.toString().trim();
+            int separatorIndex = argument.indexOf('=');
+            if (separatorIndex > 0) {
+                result.put(argument.substring(0, separatorIndex).trim(),
+                        argument.substring(separatorIndex + 1).trim());
+            } else {
+                System.out.println(owner + ": ignoring the argument " + argument);
             }
         }
+        return result;
     }
 
     protected void setup() {
@@ -502,6 +1198,19 @@ public class AntAgent extends Agent {
 //            }
 //            // get the number of iterations:
 //            numberOfIterations = Integer.parseInt((String) args[0]);
+            agentArguments = readArguments(this);
+            if (agentArguments.containsKey("engine")) {
+                // the whole colony runs inside this agent:
+                addBehaviour(new EngineBehaviour());
+                return;
+            }
+            tourFindingService = colonyService(TOUR_FINDING_SERVICE, agentArguments.get("colony"));
+            if (agentArguments.containsKey("metrics")) {
+                MetricsWriter metricsWriter = MetricsWriter.open(agentArguments.get("metrics"));
+                if (metricsWriter != null) {
+                    metrics = new AntMetrics(metricsWriter, getLocalName(), agentArguments.getOrDefault("colony", ""));
+                }
+            }
 
             // initialize the antAgents list:
             antAgents = new ArrayList<>();
@@ -512,7 +1221,7 @@ public class AntAgent extends Agent {
             dfAgentDescription.setName(getAID());
             ServiceDescription serviceDescription = new ServiceDescription();
             serviceDescription.setType(TOUR_FINDING_SERVICE);
-            serviceDescription.setName(TOUR_FINDING_SERVICE);
+            serviceDescription.setName(tourFindingService);
             dfAgentDescription.addServices(serviceDescription);
             try {
                 DFService.register(this, dfAgentDescription);
@@ -525,10 +1234,63 @@ public class AntAgent extends Agent {
             readGrid();
 
             // initialize the subjectivePheromoneLevel list:
-            subjectivePheromoneLevel = generateNewPheromoneArray(cityGrid.size());
+            subjectivePheromoneLevel = generateNewPheromoneArray(cityGraph.getNumberOfEdges());
+            pheromoneStrategy.initialize(subjectivePheromoneLevel);
+
+            // initialize the heuristic values and the choice information:
+            heuristicValues = AntAgentMechanics.getHeuristicValues(cityGraph, betaParameter);
+            choiceInfo = new double[cityGraph.getNumberOfEdges()];
+            AntAgentMechanics.updateChoiceInfo(choiceInfo, subjectivePheromoneLevel, heuristicValues);
+
+            // choose the encoding of the status messages:
+            binaryMessages = !"text".equals(agentArguments.get("messages"));
+
+            // enable the local search:
+            if (Boolean.parseBoolean(agentArguments.get("localsearch"))) {
+                localSearch = new TourLocalSearch(cityGraph, Integer.parseInt(
+                        agentArguments.getOrDefault("candidates", String.valueOf(DEFAULT_CANDIDATE_LIST_SIZE))));
+                if (!localSearch.isEnabled()) {
+                    System.out.println(getName() + ": the roads are not symmetric, the local search is disabled");
+                }
+            }
+
+            // choose the topology of the colony:
+            useCoordinator = "coordinator".equals(agentArguments.get("topology"));
+
+            // the asynchronous mode (only with the deposits of Ant System, and without a coordinator):
+            asynchronous = Boolean.parseBoolean(agentArguments.get("async"));
+            if (asynchronous && (useCoordinator || !pheromoneStrategy.isDepositOnly())) {
+                System.out.println(getName() + ": the asynchronous mode needs the as strategy and no coordinator");
+                asynchronous = false;
+            }
+
+            // subscribe to the DF, to find out when ants join or leave the colony:
+            if (!useCoordinator) {
+                antSubscription = DFService.createSubscriptionMessage(this, getDefaultDF(), antTemplate(), null);
+                addBehaviour(new AntDiscoveryServer());
+                sendMessage(antSubscription);
+            }
+
+            // the island model (the migrations are only supported without a coordinator):
+            migrationInterval = Integer.parseInt(agentArguments.getOrDefault("migration", "0"));
+            fullMigration = "full".equals(agentArguments.get("migrationtopology"));
+            if (migrationInterval > 0 && useCoordinator) {
+                System.out.println(getName() + ": the migrations are ignored with a pheromone coordinator");
+                migrationInterval = 0;
+            }
+            addBehaviour(new MigrationServer());
 
-            // initialize the edgeProbabilities array:
-            edgeProbabilities = new Double[cityGrid.size()];
+            // the early termination:
+            terminationCriteria = terminationCriteria(agentArguments);
+            addBehaviour(new TerminationServer());
+
+            // choose the tour construction mode (the pseudo-random-proportional rule of ACS needs the roulette):
+            double exploitationProbability = pheromoneStrategy.getExploitationProbability();
+            if ("roulette".equals(agentArguments.get("construction")) || exploitationProbability > 0.0) {
+                tourBuilder = new RouletteTourBuilder(cityGraph, Integer.parseInt(
+                        agentArguments.getOrDefault("candidates", String.valueOf(DEFAULT_CANDIDATE_LIST_SIZE))),
+                        exploitationProbability);
+            }
 
             // initialize the finishedAnt array:
             finishedAnt = new boolean[1];
@@ -543,7 +1305,32 @@ public class AntAgent extends Agent {
             tourLengths = new ArrayList<>();
 
             // add the FindTourBehaviour behaviour:
-            addBehaviour(new FindTourBehaviour());
+            findTourBehaviour = new FindTourBehaviour();
+            addBehaviour(findTourBehaviour);
+            // a reproducible run (the "seed" argument): every ant derives its own seed from its name:
+            if (agentArguments.containsKey("seed")) {
+                findTourBehaviour.random.setSeed(
+                        Long.parseLong(agentArguments.get("seed")) * 31 + getLocalName().hashCode());
+            }
+
+            // the checkpoints (the coordinator doesn't resume, so the ants can't either):
+            checkpointDirectory = agentArguments.get("checkpoint");
+            checkpointInterval = Integer.parseInt(agentArguments.getOrDefault("checkpointinterval", "10"));
+            if (agentArguments.containsKey("resume")) {
+                if (useCoordinator) {
+                    System.out.println(getName() + ": the resume argument is ignored with a pheromone coordinator");
+                } else {
+                    restoreCheckpoint(checkpointFile(agentArguments.get("resume")), true);
+                }
+            } else if (agentArguments.containsKey("warmstart")) {
+                restoreCheckpoint(agentArguments.get("warmstart"), false);
+            }
+            // the snapshot stream (the coordinator has the pheromone levels of the colony, not the ants):
+            streamFile = agentArguments.get("stream");
+            if (streamFile != null && useCoordinator) {
+                System.out.println(getName() + ": the stream argument is ignored with a pheromone coordinator");
+                streamFile = null;
+            }
             // add the behavior for updating the status of other ants:
             addBehaviour(new UpdateFriendStatusServer());
 
@@ -552,9 +1339,32 @@ public class AntAgent extends Agent {
         }
     }
 
+    /**
+     * Write the snapshots that are still queued, and close the snapshot stream.
+     */
+    private void closeSnapshotStream() {
+        if (snapshotStream == null) return;
+        try {
+            snapshotStream.close();
+            if (snapshotStream.getDroppedSnapshots() > 0) {
+                System.out.println(getName() + ": " + snapshotStream.getDroppedSnapshots() +
+                        " snapshots were dropped from the stream");
+            }
+        } catch (IOException e) {
+            System.out.println(getName() + ": failed to write the snapshot stream: " + e.getMessage());
+        }
+        snapshotStream = null;
+    }
+
     @Override
     protected void takeDown() {
-        // de-register from the DF's yellow pages service:
+        closeSnapshotStream();
+        // cancel the DF subscription:
+        if (antSubscription != null) {
+            sendMessage(DFService.createCancelMessage(this, getDefaultDF(), antSubscription));
+        }
+        // de-register from the DF's yellow pages service (the engine mode doesn't register):
+        if (agentArguments.containsKey("engine")) return;
         try {
             DFService.deregister(this);
         } catch (FIPAException fe) {
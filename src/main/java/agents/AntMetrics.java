@@ -0,0 +1,115 @@
+package agents;
+
+import jade.lang.acl.ACLMessage;
+import writer.MetricsWriter;
+
+import java.util.Iterator;
+import java.util.List;
+
+/**
+ * The metrics of an ant (the "metrics=file" argument), written as one JSON line per iteration (see MetricsWriter):
+ * - timings, in milliseconds: the tour construction, the local search, the wait at the barrier and the
+ * pheromone updates;
+ * - the number of backtracking steps of the tour construction;
+ * - the number and the size (in bytes of content) of the messages sent and received, one per receiver;
+ * - the quality: the length of the tour of the ant, the best, mean and worst length of the tours known to the ant
+ * in this iteration, the best length so far, and the lambda-branching factor of its pheromone levels
+ * (see AntAgentMechanics.branchingFactor);
+ * - the heap used by the JVM at the end of the iteration, in megabytes (shared by all the agents of the JVM).
+ * The counters are plain fields, because the behaviours of an agent run on a single thread; they are reset
+ * after every line.
+ */
+class AntMetrics {
+
+    static final double BRANCHING_LAMBDA = 0.05;
+
+    private final MetricsWriter metricsWriter;
+    private final String antName;
+    private final String colony;
+
+    long constructionNanos = 0;
+    long localSearchNanos = 0;
+    long backtracks = 0;
+    long barrierWaitNanos = 0;
+    long updateNanos = 0;
+    private long messagesSent = 0;
+    private long bytesSent = 0;
+    private long messagesReceived = 0;
+    private long bytesReceived = 0;
+
+    AntMetrics(MetricsWriter metricsWriter, String antName, String colony) {
+        this.metricsWriter = metricsWriter;
+        this.antName = antName;
+        this.colony = colony;
+    }
+
+    static int contentSize(ACLMessage message) {
+        if (message.hasByteSequenceContent()) return message.getByteSequenceContent().length;
+        return message.getContent() == null ? 0 : message.getContent().length();
+    }
+
+    void messageSent(ACLMessage message) {
+        int size = contentSize(message);
+        for (Iterator<?> receivers = message.getAllReceiver(); receivers.hasNext(); receivers.next()) {
+            messagesSent++;
+            bytesSent += size;
+        }
+    }
+
+    void messageReceived(ACLMessage message) {
+        messagesReceived++;
+        bytesReceived += contentSize(message);
+    }
+
+    /**
+     * Write the line of an iteration, and reset the counters.
+     * @param iteration the number of the iteration, from 1.
+     * @param tourLength the length of the tour of the ant.
+     * @param knownLengths the lengths of the tours known to the ant in this iteration (including its own).
+     * @param bestLength the length of the best tour so far.
+     * @param branchingFactor the branching factor of the pheromone levels of the ant.
+     */
+    void write(int iteration, double tourLength, List<Double> knownLengths, double bestLength,
+               double branchingFactor) {
+        double iterationBest = Double.POSITIVE_INFINITY;
+        double iterationWorst = Double.NEGATIVE_INFINITY;
+        double lengthSum = 0.0;
+        for (double length : knownLengths) {
+            iterationBest = Math.min(iterationBest, length);
+            iterationWorst = Math.max(iterationWorst, length);
+            lengthSum += length;
+        }
+        metricsWriter.write(new MetricsWriter.JsonLine()
+                .field("timestamp", System.currentTimeMillis())
+                .field("ant", antName)
+                .field("colony", colony)
+                .field("iteration", iteration)
+                .field("constructionMs", constructionNanos / 1e6)
+                .field("localSearchMs", localSearchNanos / 1e6)
+                .field("backtracks", backtracks)
+                .field("barrierWaitMs", barrierWaitNanos / 1e6)
+                .field("updateMs", updateNanos / 1e6)
+                .field("messagesSent", messagesSent)
+                .field("bytesSent", bytesSent)
+                .field("messagesReceived", messagesReceived)
+                .field("bytesReceived", bytesReceived)
+                .field("tourLength", tourLength)
+                .field("iterationBest", iterationBest)
+                .field("iterationMean", knownLengths.isEmpty() ? Double.NaN : lengthSum / knownLengths.size())
+                .field("iterationWorst", iterationWorst)
+                .field("bestSoFar", bestLength)
+                .field("branchingFactor", branchingFactor)
+                .field("heapUsedMb", (Runtime.getRuntime().totalMemory() - Runtime.getRuntime().freeMemory()) /
+                        1048576.0));
+        constructionNanos = 0;
+        localSearchNanos = 0;
+        backtracks = 0;
+        barrierWaitNanos = 0;
+        updateNanos = 0;
+        messagesSent = 0;
+        bytesSent = 0;
+        messagesReceived = 0;
+        bytesReceived = 0;
+    }
+
+}
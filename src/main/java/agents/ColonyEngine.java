@@ -0,0 +1,423 @@
+package agents;
+
+import agents.mechanics.AntAgentMechanics;
+import agents.mechanics.CityGraph;
+import agents.mechanics.ColonyCheckpoint;
+import agents.mechanics.PheromoneUpdateStrategy;
+import agents.mechanics.RouletteTourBuilder;
+import agents.mechanics.SharedPheromoneLevels;
+import agents.mechanics.TerminationCriteria;
+import agents.mechanics.TourLocalSearch;
+import writer.SnapshotStreamWriter;
+import writer.Writer;
+
+import java.io.IOException;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.List;
+import java.util.Map;
+import java.util.Random;
+import java.util.concurrent.ForkJoinPool;
+import java.util.concurrent.ForkJoinTask;
+import java.util.concurrent.atomic.AtomicBoolean;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.stream.IntStream;
+
+/**
+ * A whole colony in a single process, without an agent (and messages) per ant:
+ * - in every iteration, the tours of all the ants are built in parallel on a ForkJoinPool, with the same
+ * rules as the ants (RouletteTourBuilder, and optionally TourLocalSearch); every ant has its own random
+ * number generator and every worker thread has its own scratch buffers, so the results only depend on the seed;
+ * - then the pheromone levels are updated once, with the strategy of the environment.
+ * With ACS, the local updates of an iteration are applied after all the tours have been built, in the order
+ * of the ants, so the ants of an iteration don't see each other's local updates.
+ * The results are reported like the ants report them (see Writer), with the best tour found as the last path.
+ * It can be run from the command line (see main), or by an AntAgent started with the engine=ants argument.
+ * In the asynchronous mode (see runAsynchronous), there is no barrier between the iterations.
+ * The state of every iteration can be streamed to a file in the background (see setSnapshotStream).
+ */
+public class ColonyEngine {
+
+    private final Environment environment;
+    private final CityGraph cityGraph;
+    private final PheromoneUpdateStrategy pheromoneStrategy;
+    private final double[] pheromoneLevel;
+    private final double[] heuristicValues;
+    private final double[] choiceInfo;
+    private final int numberOfAnts;
+    private final Random[] antRandoms;
+    private final ForkJoinPool pool;
+
+    /**
+     * The scratch buffers of a worker thread.
+     */
+    private static class Worker {
+        final RouletteTourBuilder tourBuilder;
+        final TourLocalSearch localSearch;
+
+        Worker(RouletteTourBuilder tourBuilder, TourLocalSearch localSearch) {
+            this.tourBuilder = tourBuilder;
+            this.localSearch = localSearch;
+        }
+    }
+
+    private final Worker[] workers;
+
+    // the tours of the current iteration, as built and after the local search:
+    private final List<List<Integer>> builtPaths;
+    private final List<List<Integer>> antPaths;
+    private final List<Double> tourLengths;
+
+    private int currentIteration = 0;
+    private List<Integer> bestPath = new ArrayList<>();
+    private double bestLength = Double.POSITIVE_INFINITY;
+    private final List<Double> iterationLengths = new ArrayList<>();
+    private SnapshotStreamWriter snapshotStream = null;
+    private TerminationCriteria terminationCriteria = null;
+    private String terminationReason = null;
+
+    /**
+     * @param environment the problem instance and the parameters.
+     * @param numberOfAnts the number of ants.
+     * @param candidateListSize the number of nearest neighbours considered first at every step.
+     * @param localSearch true to improve every tour with TourLocalSearch.
+     * @param pool the pool that builds the tours.
+     * @param seed the seed of the random number generators of the ants.
+     */
+    public ColonyEngine(Environment environment, int numberOfAnts, int candidateListSize, boolean localSearch,
+                        ForkJoinPool pool, long seed) {
+        this.environment = environment;
+        cityGraph = environment.getCityGraph();
+        pheromoneStrategy = environment.createPheromoneStrategy();
+        pheromoneLevel = new double[cityGraph.getNumberOfEdges()];
+        pheromoneStrategy.initialize(pheromoneLevel);
+        heuristicValues = AntAgentMechanics.getHeuristicValues(cityGraph, environment.getBetaParameter());
+        choiceInfo = new double[pheromoneLevel.length];
+        AntAgentMechanics.updateChoiceInfo(choiceInfo, pheromoneLevel, heuristicValues);
+        this.numberOfAnts = numberOfAnts;
+        this.pool = pool;
+        antRandoms = new Random[numberOfAnts];
+        Random seedGenerator = new Random(seed);
+        for (int antIndex = 0; antIndex < numberOfAnts; antIndex++) {
+            antRandoms[antIndex] = new Random(seedGenerator.nextLong());
+        }
+        workers = new Worker[Math.max(1, Math.min(numberOfAnts, pool.getParallelism()))];
+        double exploitationProbability = pheromoneStrategy.getExploitationProbability();
+        for (int workerIndex = 0; workerIndex < workers.length; workerIndex++) {
+            workers[workerIndex] = new Worker(
+                    new RouletteTourBuilder(cityGraph, candidateListSize, exploitationProbability),
+                    localSearch ? new TourLocalSearch(cityGraph, candidateListSize) : null);
+        }
+        builtPaths = new ArrayList<>(Collections.nCopies(numberOfAnts, Collections.emptyList()));
+        antPaths = new ArrayList<>(Collections.nCopies(numberOfAnts, Collections.emptyList()));
+        tourLengths = new ArrayList<>(Collections.nCopies(numberOfAnts, 0.0));
+    }
+
+    /**
+     * Build the tour of an ant, from a randomly chosen city.
+     */
+    private void buildTour(Worker worker, int antIndex) {
+        Random random = antRandoms[antIndex];
+        List<Integer> path = worker.tourBuilder.construct(random.nextInt(cityGraph.getNumberOfCities()) + 1,
+                choiceInfo, random);
+        if (path == null) {
+            // this graph doesn't contain a hamiltonian tour:
+            path = Collections.emptyList();
+        }
+        builtPaths.set(antIndex, path);
+        if (worker.localSearch != null && !path.isEmpty()) path = worker.localSearch.improve(path);
+        antPaths.set(antIndex, path);
+        tourLengths.set(antIndex, cityGraph.pathLength(path));
+    }
+
+    /**
+     * Run one iteration: build the tours of all the ants, then update the pheromone levels.
+     */
+    public void runIteration() {
+        // every worker builds the tours of the ants workerIndex, workerIndex + workers, ...:
+        List<ForkJoinTask<?>> tasks = new ArrayList<>(workers.length);
+        for (int workerIndex = 0; workerIndex < workers.length; workerIndex++) {
+            int firstAnt = workerIndex;
+            Worker worker = workers[workerIndex];
+            tasks.add(pool.submit(() -> {
+                for (int antIndex = firstAnt; antIndex < numberOfAnts; antIndex += workers.length) {
+                    buildTour(worker, antIndex);
+                }
+            }));
+        }
+        tasks.forEach(ForkJoinTask::join);
+
+        // the local updates, in the order of the ants:
+        for (List<Integer> builtPath : builtPaths) {
+            if (pheromoneStrategy.localUpdate(pheromoneLevel, builtPath)) {
+                AntAgentMechanics.updateChoiceInfo(choiceInfo, pheromoneLevel, heuristicValues, builtPath);
+            }
+        }
+        // the global update:
+        pheromoneStrategy.globalUpdate(pheromoneLevel, antPaths, tourLengths);
+        pool.submit(() -> IntStream.range(0, choiceInfo.length).parallel().forEach(edgeIndex ->
+                choiceInfo[edgeIndex] = pheromoneLevel[edgeIndex] * heuristicValues[edgeIndex])).join();
+
+        int bestAnt = PheromoneUpdateStrategy.bestAnt(antPaths, tourLengths);
+        if (bestAnt != -1) updateBestPath(antPaths.get(bestAnt), tourLengths.get(bestAnt));
+        iterationLengths.add(tourLengths.stream().reduce(0.0, Double::sum) / numberOfAnts);
+        currentIteration++;
+        if (snapshotStream != null) snapshotStream.offer(currentIteration, pheromoneLevel, bestPath, bestLength);
+    }
+
+    /**
+     * Run iterations without a barrier: every worker builds the tours of its ants one after another, and every
+     * tour is deposited as soon as it is complete (pheromoneQuantity / its length, like Ant System), on pheromone
+     * levels shared by the workers (see SharedPheromoneLevels); the next tour starts immediately, from the current
+     * (possibly slightly stale) levels. The evaporation is done on an epoch basis: every numberOfAnts tours, by
+     * the worker that completes the last tour of the epoch.
+     * An ant builds numberOfEpochs tours, and the iteration means are the means of the epochs, in the order in
+     * which the tours were completed. The results depend on the scheduling of the threads, not only on the seed.
+     * Only the state at the end of the run is sent to the snapshot stream.
+     * The termination criteria are checked after every epoch, by the worker that evaporates; when one is met,
+     * the workers stop before their next tour (the tours in progress are still deposited, but only the complete
+     * epochs are counted as iterations).
+     * @param numberOfEpochs the number of tours of every ant.
+     * @throws IllegalStateException if the strategy of the environment is not Ant System.
+     */
+    public void runAsynchronous(int numberOfEpochs) {
+        if (!pheromoneStrategy.isDepositOnly()) {
+            throw new IllegalStateException("the asynchronous mode needs a deposit-only strategy, not " +
+                    environment.getStrategyName());
+        }
+        SharedPheromoneLevels sharedLevels = new SharedPheromoneLevels(pheromoneLevel, heuristicValues, choiceInfo);
+        int numberOfTours = numberOfEpochs * numberOfAnts;
+        AtomicInteger completedTours = new AtomicInteger();
+        double[] completedLengths = new double[numberOfTours];
+        AtomicBoolean stopped = new AtomicBoolean();
+        // a copy of the shared levels, for the branching factor:
+        double[] terminationLevels = terminationCriteria != null && terminationCriteria.usesBranchingFactor() ?
+                new double[sharedLevels.size()] : null;
+        List<ForkJoinTask<?>> tasks = new ArrayList<>(workers.length);
+        for (int workerIndex = 0; workerIndex < workers.length; workerIndex++) {
+            int firstAnt = workerIndex;
+            Worker worker = workers[workerIndex];
+            tasks.add(pool.submit(() -> {
+                for (int epoch = 0; epoch < numberOfEpochs; epoch++) {
+                    for (int antIndex = firstAnt; antIndex < numberOfAnts; antIndex += workers.length) {
+                        if (stopped.get()) return;
+                        buildTour(worker, antIndex);
+                        List<Integer> path = antPaths.get(antIndex);
+                        double tourLength = tourLengths.get(antIndex);
+                        if (!path.isEmpty()) {
+                            sharedLevels.deposit(path, environment.getPheromoneQuantity() / tourLength);
+                            updateBestPath(path, tourLength);
+                        }
+                        int tourIndex = completedTours.getAndIncrement();
+                        completedLengths[tourIndex] = tourLength;
+                        if ((tourIndex + 1) % numberOfAnts == 0) {
+                            sharedLevels.evaporate(environment.getPheromoneDecayParameter());
+                            if (terminationCriteria != null) {
+                                synchronized (this) {
+                                    if (!stopped.get()) {
+                                        if (terminationLevels != null) sharedLevels.copyTo(terminationLevels);
+                                        stopped.set(terminationMet(currentIteration + (tourIndex + 1) / numberOfAnts,
+                                                terminationLevels));
+                                    }
+                                }
+                            }
+                        }
+                    }
+                }
+            }));
+        }
+        tasks.forEach(ForkJoinTask::join);
+        sharedLevels.copyTo(pheromoneLevel);
+        int completedEpochs = completedTours.get() / numberOfAnts;
+        for (int epoch = 0; epoch < completedEpochs; epoch++) {
+            iterationLengths.add(Arrays.stream(completedLengths, epoch * numberOfAnts, (epoch + 1) * numberOfAnts)
+                    .sum() / numberOfAnts);
+        }
+        currentIteration += completedEpochs;
+        if (snapshotStream != null) snapshotStream.offer(currentIteration, pheromoneLevel, bestPath, bestLength);
+    }
+
+    private synchronized void updateBestPath(List<Integer> path, double tourLength) {
+        if (tourLength < bestLength) {
+            bestLength = tourLength;
+            bestPath = path;
+        }
+    }
+
+    /**
+     * Start from the pheromone levels of a checkpoint (see ColonyCheckpoint.copyPheromoneLevels).
+     * @return the number of edges whose level was copied.
+     */
+    public int warmStart(ColonyCheckpoint checkpoint) {
+        int copiedEdges = checkpoint.copyPheromoneLevels(cityGraph, pheromoneLevel);
+        AntAgentMechanics.updateChoiceInfo(choiceInfo, pheromoneLevel, heuristicValues);
+        return copiedEdges;
+    }
+
+    /**
+     * Write the pheromone levels and the best tour to a checkpoint, e.g. to warm-start a later run on a slightly
+     * different instance; the ants have a generator each, so the random seed of the checkpoint is 0.
+     */
+    public void writeCheckpoint(String fileName) throws IOException {
+        ColonyCheckpoint.capture(cityGraph, pheromoneLevel, currentIteration, bestPath, bestLength, 0L)
+                .write(fileName);
+    }
+
+    /**
+     * Send the state of every following iteration to a stream; the stream is not closed by the engine.
+     * @param snapshotStream the stream (null to stop streaming).
+     */
+    public void setSnapshotStream(SnapshotStreamWriter snapshotStream) {
+        this.snapshotStream = snapshotStream;
+    }
+
+    /**
+     * Stop run and runAsynchronous early when one of the criteria is met.
+     * @param terminationCriteria the criteria (null to always run all the iterations).
+     */
+    public void setTerminationCriteria(TerminationCriteria terminationCriteria) {
+        this.terminationCriteria = terminationCriteria;
+    }
+
+    /**
+     * Run the remaining iterations of the environment, or until one of the termination criteria is met.
+     */
+    public void run() {
+        while (currentIteration < environment.getNumberOfIterations()) {
+            runIteration();
+            if (checkTermination()) return;
+        }
+    }
+
+    /**
+     * Check the termination criteria after runIteration (run and runAsynchronous check them by themselves).
+     * @return true if one of the criteria is met (see getTerminationReason).
+     */
+    public boolean checkTermination() {
+        return terminationMet(currentIteration, pheromoneLevel);
+    }
+
+    /**
+     * Check the termination criteria after an iteration, and record the criterion that is met.
+     * @param iteration the number of completed iterations.
+     * @param levels the current pheromone levels (only read for the branching factor).
+     * @return true if the run should stop.
+     */
+    private synchronized boolean terminationMet(int iteration, double[] levels) {
+        if (terminationCriteria == null || !terminationCriteria.isEnabled()) return false;
+        terminationReason = terminationCriteria.check(iteration, bestLength,
+                terminationCriteria.usesBranchingFactor() ? AntAgentMechanics.branchingFactor(cityGraph, levels,
+                        AntMetrics.BRANCHING_LAMBDA) : Double.NaN);
+        return terminationReason != null;
+    }
+
+    /**
+     * @return the termination criterion that stopped the last run, or null if it ran all the iterations.
+     */
+    public String getTerminationReason() {
+        return terminationReason;
+    }
+
+    /**
+     * Write the pheromone levels and the best tour, and print the mean tour length of every iteration.
+     */
+    public void writeResults() {
+        Writer.write(pheromoneLevel, environment.getCityGrid());
+        Writer.write(bestPath);
+        System.out.println("Iteration means: " + iterationLengths.toString());
+    }
+
+    public int getCurrentIteration() {
+        return currentIteration;
+    }
+
+    public double[] getPheromoneLevel() {
+        return pheromoneLevel;
+    }
+
+    public List<Integer> getBestPath() {
+        return bestPath;
+    }
+
+    public double getBestLength() {
+        return bestLength;
+    }
+
+    public List<Double> getIterationLengths() {
+        return iterationLengths;
+    }
+
+    /**
+     * Run a colony from the command line, e.g.
+     * java agents.ColonyEngine input=berlin52.tsp ants=32 threads=8 candidates=10 localsearch=true seed=1
+     * (with async=true, the iterations are run without a barrier, see runAsynchronous; warmstart=file starts
+     * from the pheromone levels of a checkpoint, and checkpoint=file writes one at the end; stream=file streams
+     * the state of every iteration, with the threshold given by streamthreshold, see SnapshotStreamWriter;
+     * stall=, branching=, target= and timelimit= stop the run early, see AntAgent.terminationCriteria).
+     */
+    public static void main(String[] args) {
+        Map<String, String> arguments = AntAgent.parseArguments(args, "ColonyEngine");
+        Environment environment = Environment.load(arguments.getOrDefault("input", Environment.DEFAULT_INPUT_FILE));
+        ForkJoinPool pool = new ForkJoinPool(Integer.parseInt(arguments.getOrDefault("threads",
+                String.valueOf(Runtime.getRuntime().availableProcessors()))));
+        ColonyEngine colonyEngine = new ColonyEngine(environment,
+                Integer.parseInt(arguments.getOrDefault("ants", "10")),
+                Integer.parseInt(arguments.getOrDefault("candidates", "10")),
+                Boolean.parseBoolean(arguments.getOrDefault("localsearch", "false")),
+                pool, Long.parseLong(arguments.getOrDefault("seed", "1")));
+        if (arguments.containsKey("warmstart")) {
+            try {
+                System.out.println("warm start: " + colonyEngine.warmStart(ColonyCheckpoint.read(
+                        arguments.get("warmstart"))) + " pheromone levels");
+            } catch (IOException e) {
+                System.out.println("failed to read the checkpoint: " + e.getMessage());
+            }
+        }
+        SnapshotStreamWriter snapshotStream = null;
+        if (arguments.containsKey("stream")) {
+            try {
+                snapshotStream = new SnapshotStreamWriter(arguments.get("stream"),
+                        environment.getCityGraph().getNumberOfEdges(),
+                        Double.parseDouble(arguments.getOrDefault("streamthreshold", "0")));
+                colonyEngine.setSnapshotStream(snapshotStream);
+            } catch (IOException e) {
+                System.out.println("failed to create the snapshot stream: " + e.getMessage());
+            }
+        }
+        colonyEngine.setTerminationCriteria(AntAgent.terminationCriteria(arguments));
+        long startTime = System.nanoTime();
+        if (Boolean.parseBoolean(arguments.get("async"))) {
+            colonyEngine.runAsynchronous(environment.getNumberOfIterations());
+        } else {
+            colonyEngine.run();
+        }
+        double seconds = (System.nanoTime() - startTime) / 1e9;
+        pool.shutdown();
+        if (snapshotStream != null) {
+            try {
+                snapshotStream.close();
+                System.out.println("dropped snapshots = " + snapshotStream.getDroppedSnapshots());
+            } catch (IOException e) {
+                System.out.println("failed to write the snapshot stream: " + e.getMessage());
+            }
+        }
+        colonyEngine.writeResults();
+        if (arguments.containsKey("checkpoint")) {
+            try {
+                colonyEngine.writeCheckpoint(arguments.get("checkpoint"));
+            } catch (IOException e) {
+                System.out.println("failed to write the checkpoint: " + e.getMessage());
+            }
+        }
+        if (colonyEngine.getTerminationReason() != null) {
+            System.out.println("stopped after iteration " + colonyEngine.getCurrentIteration() + ": " +
+                    colonyEngine.getTerminationReason());
+        }
+        System.out.println("bestLength = " + colonyEngine.getBestLength());
+        System.out.println("iterations per second = " + colonyEngine.getCurrentIteration() / seconds);
+        System.out.println("bestTour: " + Arrays.toString(colonyEngine.getBestPath().stream()
+                .map(edgeIndex -> environment.getCityGrid().get(edgeIndex)).toArray()));
+    }
+
+}
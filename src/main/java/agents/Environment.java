@@ -0,0 +1,250 @@
+package agents;
+
+import agents.mechanics.AntAgentMechanics;
+import agents.mechanics.CityGraph;
+import agents.mechanics.PheromoneUpdateStrategy;
+
+import java.io.BufferedInputStream;
+import java.io.BufferedReader;
+import java.io.DataInputStream;
+import java.io.FileReader;
+import java.io.IOException;
+import java.nio.file.Files;
+import java.nio.file.Paths;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Locale;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+
+/**
+ * The problem instance read from the environment file:
+ * - the first line: the number of cities, beta, the pheromone decay, the pheromone quantity
+ * and the number of iterations, optionally followed by key=value entries: the pheromone update strategy
+ * (strategy=as, mmas or acs, see PheromoneUpdateStrategy) and its parameters, e.g.
+ * "12 2 0.7 20 1000 strategy=mmas pbest=0.05";
+ * - every other line: "source target length", a bidirectional road.
+ * The .tsp and .atsp files are read as TSPLIB instances (see TsplibReader): their graph is complete
+ * and computed from the coordinates, and the parameters are the TSPLIB_* defaults.
+ * The .envb files are the binary form of the environment files, written by InstanceGenerator.writeBinary.
+ * note: here we assume that all the cities are labeled with numbers from 1 to n,
+ * where n is simply the number of cities.
+ * An environment is immutable once it has been read, so a single instance can be shared
+ * by all the agents of a JVM (see load).
+ */
+public class Environment {
+
+    // the default environment file, relative to the working directory:
+    public static final String DEFAULT_INPUT_FILE = Paths.get("src", "main", "resources", "environment.txt")
+            .toString();
+
+    // the parameters used for the TSPLIB instances, which only describe the graph:
+    public static final double TSPLIB_BETA = 2.0;
+    public static final double TSPLIB_PHEROMONE_DECAY = 0.7;
+    public static final double TSPLIB_PHEROMONE_QUANTITY = 20.0;
+    public static final int TSPLIB_ITERATIONS = 1000;
+
+    // the environments already loaded, by their absolute path:
+    private static final ConcurrentHashMap<String, Environment> loadedEnvironments = new ConcurrentHashMap<>();
+
+    private int numberOfCities = -1;
+    private double betaParameter;
+    private double pheromoneDecayParameter;
+    private double pheromoneQuantity;
+    private int numberOfIterations;
+    private List<AntAgent.CityRoad> cityGrid = new ArrayList<>();
+    private CityGraph cityGraph = null;
+    // the key=value entries of the header:
+    private final Map<String, String> headerParameters = new HashMap<>();
+    // the length of the nearest neighbour tour, computed when it is first needed:
+    private volatile double referenceTourLength = -1.0;
+
+    private Environment() {
+    }
+
+    /**
+     * Get the environment read from the given file; the file is only read once per JVM,
+     * and all the callers get the same (immutable) instance.
+     * @param fileName the name of the environment file.
+     * @return the shared environment.
+     */
+    public static Environment load(String fileName) {
+        String key = Paths.get(fileName).toAbsolutePath().normalize().toString();
+        return loadedEnvironments.computeIfAbsent(key, Environment::read);
+    }
+
+    /**
+     * Read the environment (the street grid); use load to share it between the agents.
+     * This method might need to be replaced by a method that reads from a database.
+     * @param fileName the name of the environment file.
+     * @return the environment; if the file cannot be read, the grid will be incomplete.
+     */
+    public static Environment read(String fileName) {
+        String lowerCaseName = fileName.toLowerCase(Locale.ROOT);
+        if (lowerCaseName.endsWith(".tsp") || lowerCaseName.endsWith(".atsp")) return readTsplib(fileName);
+        if (lowerCaseName.endsWith(".envb")) return readBinary(fileName);
+        Environment environment = new Environment();
+        FileReader fileReader = null;
+        BufferedReader bufferedReader = null;
+        try {
+            fileReader = new FileReader(fileName);
+            bufferedReader = new BufferedReader(fileReader);
+            // read the number of cities and the parameters:
+            String[] firstLine = bufferedReader.readLine().split(" ");
+            environment.numberOfCities = Integer.parseInt(firstLine[0]);
+            environment.betaParameter = Double.parseDouble(firstLine[1]);
+            environment.pheromoneDecayParameter = Double.parseDouble(firstLine[2]);
+            environment.pheromoneQuantity = Double.parseDouble(firstLine[3]);
+            environment.numberOfIterations = Integer.parseInt(firstLine[4]);
+            for (int valueIndex = 5; valueIndex < firstLine.length; valueIndex++) {
+                int separatorIndex = firstLine[valueIndex].indexOf('=');
+                if (separatorIndex > 0) {
+                    environment.headerParameters.put(firstLine[valueIndex].substring(0, separatorIndex),
+                            firstLine[valueIndex].substring(separatorIndex + 1));
+                }
+            }
+            String currentLine;
+            while ((currentLine = bufferedReader.readLine()) != null) {
+                String[] values = currentLine.split(" ");
+                environment.cityGrid.add(new AntAgent.CityRoad(Long.parseLong(values[0]), Long.parseLong(values[1]),
+                        Double.parseDouble(values[2])));
+                // for the moment, I just assume that the roads are bidirectional:
+                environment.cityGrid.add(new AntAgent.CityRoad(Long.parseLong(values[1]), Long.parseLong(values[0]),
+                        Double.parseDouble(values[2])));
+            }
+        } catch (IOException e) {
+            e.printStackTrace();
+        } finally {
+            if (bufferedReader != null) {
+                try {
+                    bufferedReader.close();
+                } catch (IOException e) {
+                    e.printStackTrace();
+                }
+            }
+            if (fileReader != null) {
+                try {
+                    fileReader.close();
+                } catch (IOException e) {
+                    e.printStackTrace();
+                }
+            }
+        }
+        environment.cityGrid = Collections.unmodifiableList(environment.cityGrid);
+        // index the roads once, so that the out-edges of a city can be found without scanning the grid:
+        environment.cityGraph = new CityGraph(Math.max(environment.numberOfCities, 0), environment.cityGrid);
+        return environment;
+    }
+
+    private static Environment readBinary(String fileName) {
+        Environment environment = new Environment();
+        try (DataInputStream inputStream = new DataInputStream(new BufferedInputStream(
+                Files.newInputStream(Paths.get(fileName))))) {
+            if (inputStream.readInt() != InstanceGenerator.BINARY_MAGIC) {
+                throw new IOException(fileName + " is not a binary environment file");
+            }
+            int version = inputStream.readInt();
+            if (version != InstanceGenerator.BINARY_VERSION) {
+                throw new IOException("unsupported binary environment version: " + version);
+            }
+            environment.numberOfCities = inputStream.readInt();
+            environment.betaParameter = inputStream.readDouble();
+            environment.pheromoneDecayParameter = inputStream.readDouble();
+            environment.pheromoneQuantity = inputStream.readDouble();
+            environment.numberOfIterations = inputStream.readInt();
+            for (String entry : inputStream.readUTF().split(" ")) {
+                int separatorIndex = entry.indexOf('=');
+                if (separatorIndex > 0) {
+                    environment.headerParameters.put(entry.substring(0, separatorIndex),
+                            entry.substring(separatorIndex + 1));
+                }
+            }
+            int numberOfRoads = inputStream.readInt();
+            List<AntAgent.CityRoad> cityGrid = new ArrayList<>(2 * numberOfRoads);
+            for (int roadIndex = 0; roadIndex < numberOfRoads; roadIndex++) {
+                long sourceCity = inputStream.readInt();
+                long targetCity = inputStream.readInt();
+                double length = inputStream.readDouble();
+                // the roads are bidirectional, as in the text form:
+                cityGrid.add(new AntAgent.CityRoad(sourceCity, targetCity, length));
+                cityGrid.add(new AntAgent.CityRoad(targetCity, sourceCity, length));
+            }
+            environment.cityGrid = cityGrid;
+        } catch (IOException e) {
+            e.printStackTrace();
+        }
+        environment.cityGrid = Collections.unmodifiableList(environment.cityGrid);
+        environment.cityGraph = new CityGraph(Math.max(environment.numberOfCities, 0), environment.cityGrid);
+        return environment;
+    }
+
+    private static Environment readTsplib(String fileName) {
+        Environment environment = new Environment();
+        environment.betaParameter = TSPLIB_BETA;
+        environment.pheromoneDecayParameter = TSPLIB_PHEROMONE_DECAY;
+        environment.pheromoneQuantity = TSPLIB_PHEROMONE_QUANTITY;
+        environment.numberOfIterations = TSPLIB_ITERATIONS;
+        try {
+            environment.cityGraph = TsplibReader.read(fileName);
+            environment.numberOfCities = environment.cityGraph.getNumberOfCities();
+            // the roads are created when they are read, instead of being stored:
+            environment.cityGrid = environment.cityGraph.asCityGrid();
+        } catch (IOException e) {
+            e.printStackTrace();
+            environment.cityGrid = Collections.emptyList();
+            environment.cityGraph = new CityGraph(0, environment.cityGrid);
+        }
+        return environment;
+    }
+
+    public int getNumberOfCities() {
+        return numberOfCities;
+    }
+
+    public double getBetaParameter() {
+        return betaParameter;
+    }
+
+    public double getPheromoneDecayParameter() {
+        return pheromoneDecayParameter;
+    }
+
+    public double getPheromoneQuantity() {
+        return pheromoneQuantity;
+    }
+
+    public int getNumberOfIterations() {
+        return numberOfIterations;
+    }
+
+    public List<AntAgent.CityRoad> getCityGrid() {
+        return cityGrid;
+    }
+
+    public CityGraph getCityGraph() {
+        return cityGraph;
+    }
+
+    /**
+     * @return the name of the pheromone update strategy (as by default).
+     */
+    public String getStrategyName() {
+        return headerParameters.getOrDefault("strategy", "as");
+    }
+
+    /**
+     * Create a new pheromone update strategy for an agent, as selected in the header.
+     * @return the strategy; every agent needs its own instance.
+     */
+    public PheromoneUpdateStrategy createPheromoneStrategy() {
+        if (referenceTourLength < 0.0) {
+            // (computing it twice is harmless)
+            referenceTourLength = AntAgentMechanics.nearestNeighbourTourLength(cityGraph);
+        }
+        return PheromoneUpdateStrategy.create(getStrategyName(), headerParameters, numberOfCities,
+                referenceTourLength, pheromoneDecayParameter, pheromoneQuantity);
+    }
+
+}
@@ -0,0 +1,163 @@
+package agents;
+
+import java.io.BufferedOutputStream;
+import java.io.DataOutputStream;
+import java.io.IOException;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.Paths;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Locale;
+import java.util.Map;
+import java.util.Random;
+
+/**
+ * Seeded random instances, for the scaling measurements (see ScalingBenchmark); the same arguments always give
+ * the same instance. The cities 1..n are connected by a ring (so a hamiltonian cycle always exists), and every
+ * other pair of cities is connected with the probability density (1 for a complete graph). The roads are
+ * bidirectional, and their lengths depend on the kind of instance:
+ * - random: independent random lengths in [0.1, 1) (not a metric);
+ * - euclidean: the distances between cities placed uniformly in the unit square;
+ * - clustered: the distances between cities placed around n / 10 centres (normally, with a deviation of 0.05).
+ * The instances are written in the format of environment.txt, or in the binary form read by Environment.read
+ * (the .envb files), with the TSPLIB_* parameters of Environment.
+ */
+public class InstanceGenerator {
+
+    public static final String RANDOM = "random";
+    public static final String EUCLIDEAN = "euclidean";
+    public static final String CLUSTERED = "clustered";
+
+    // the magic number of the binary form ("ACOE"), and its version:
+    static final int BINARY_MAGIC = 0x41434f45;
+    static final int BINARY_VERSION = 1;
+
+    private static final double CLUSTER_DEVIATION = 0.05;
+
+    /**
+     * @param kind random, euclidean or clustered.
+     * @param numberOfCities the number of cities.
+     * @param density the probability that two cities that are not neighbours on the ring are connected.
+     * @param seed the seed of the random number generator.
+     * @return the roads, one per pair of cities, like the lines of an environment file.
+     * @throws IllegalArgumentException if the kind is unknown.
+     */
+    public static List<AntAgent.CityRoad> generate(String kind, int numberOfCities, double density, long seed) {
+        Random random = new Random(seed);
+        double[] x = null;
+        double[] y = null;
+        if (EUCLIDEAN.equals(kind) || CLUSTERED.equals(kind)) {
+            x = new double[numberOfCities + 1];
+            y = new double[numberOfCities + 1];
+            if (EUCLIDEAN.equals(kind)) {
+                for (int city = 1; city <= numberOfCities; city++) {
+                    x[city] = random.nextDouble();
+                    y[city] = random.nextDouble();
+                }
+            } else {
+                int numberOfClusters = Math.max(1, numberOfCities / 10);
+                double[] centreX = new double[numberOfClusters];
+                double[] centreY = new double[numberOfClusters];
+                for (int cluster = 0; cluster < numberOfClusters; cluster++) {
+                    centreX[cluster] = random.nextDouble();
+                    centreY[cluster] = random.nextDouble();
+                }
+                for (int city = 1; city <= numberOfCities; city++) {
+                    int cluster = random.nextInt(numberOfClusters);
+                    x[city] = centreX[cluster] + CLUSTER_DEVIATION * random.nextGaussian();
+                    y[city] = centreY[cluster] + CLUSTER_DEVIATION * random.nextGaussian();
+                }
+            }
+        } else if (!RANDOM.equals(kind)) {
+            throw new IllegalArgumentException("unknown kind of instance: " + kind);
+        }
+        List<AntAgent.CityRoad> result = new ArrayList<>();
+        for (int sourceCity = 1; sourceCity <= numberOfCities; sourceCity++) {
+            for (int targetCity = sourceCity + 1; targetCity <= numberOfCities; targetCity++) {
+                boolean ringRoad = targetCity == sourceCity + 1 || (sourceCity == 1 && targetCity == numberOfCities);
+                if (ringRoad || random.nextDouble() < density) {
+                    double length = x == null ? 0.1 + 0.9 * random.nextDouble() :
+                            Math.hypot(x[sourceCity] - x[targetCity], y[sourceCity] - y[targetCity]);
+                    result.add(new AntAgent.CityRoad((long) sourceCity, (long) targetCity, length));
+                }
+            }
+        }
+        return result;
+    }
+
+    /**
+     * Write an instance in the format of environment.txt.
+     * @param file the environment file.
+     * @param numberOfCities the number of cities.
+     * @param roads the roads, one per pair of cities (see generate).
+     * @param numberOfIterations the number of iterations written in the header.
+     */
+    public static void writeText(Path file, int numberOfCities, List<AntAgent.CityRoad> roads,
+                                 int numberOfIterations) throws IOException {
+        List<String> lines = new ArrayList<>(roads.size() + 1);
+        lines.add(String.format(Locale.ROOT, "%d %s %s %s %d", numberOfCities, Environment.TSPLIB_BETA,
+                Environment.TSPLIB_PHEROMONE_DECAY, Environment.TSPLIB_PHEROMONE_QUANTITY, numberOfIterations));
+        for (AntAgent.CityRoad road : roads) {
+            lines.add(String.format(Locale.ROOT, "%d %d %s", road.getSourceId(), road.getTargetId(),
+                    road.getLength()));
+        }
+        Files.write(file, lines, StandardCharsets.UTF_8);
+    }
+
+    /**
+     * Write an instance in the binary form (big-endian):
+     * - 4 bytes: the magic number "ACOE", then 4 bytes: the version;
+     * - the number of cities, beta, the pheromone decay, the pheromone quantity (8 bytes each), the number of
+     * iterations, and the key=value entries of the header (as a modified UTF-8 string, empty here);
+     * - the number of roads, then for every road: the source, the target, and the length (8 bytes).
+     * @param file the environment file (with the .envb extension, to be read by Environment.read).
+     * @param numberOfCities the number of cities.
+     * @param roads the roads, one per pair of cities (see generate).
+     * @param numberOfIterations the number of iterations written in the header.
+     */
+    public static void writeBinary(Path file, int numberOfCities, List<AntAgent.CityRoad> roads,
+                                   int numberOfIterations) throws IOException {
+        try (DataOutputStream outputStream = new DataOutputStream(new BufferedOutputStream(
+                Files.newOutputStream(file)))) {
+            outputStream.writeInt(BINARY_MAGIC);
+            outputStream.writeInt(BINARY_VERSION);
+            outputStream.writeInt(numberOfCities);
+            outputStream.writeDouble(Environment.TSPLIB_BETA);
+            outputStream.writeDouble(Environment.TSPLIB_PHEROMONE_DECAY);
+            outputStream.writeDouble(Environment.TSPLIB_PHEROMONE_QUANTITY);
+            outputStream.writeInt(numberOfIterations);
+            outputStream.writeUTF("");
+            outputStream.writeInt(roads.size());
+            for (AntAgent.CityRoad road : roads) {
+                outputStream.writeInt(road.getSourceId().intValue());
+                outputStream.writeInt(road.getTargetId().intValue());
+                outputStream.writeDouble(road.getLength());
+            }
+        }
+    }
+
+    /**
+     * Generate an instance from the command line, e.g.
+     * java agents.InstanceGenerator kind=euclidean cities=200 density=1.0 seed=1 iterations=500 output=e200.envb
+     * (the binary form is written if the output file ends with .envb).
+     */
+    public static void main(String[] args) throws IOException {
+        Map<String, String> arguments = AntAgent.parseArguments(args, "InstanceGenerator");
+        int numberOfCities = Integer.parseInt(arguments.getOrDefault("cities", "50"));
+        List<AntAgent.CityRoad> roads = generate(arguments.getOrDefault("kind", RANDOM), numberOfCities,
+                Double.parseDouble(arguments.getOrDefault("density", "1.0")),
+                Long.parseLong(arguments.getOrDefault("seed", "1")));
+        int numberOfIterations = Integer.parseInt(arguments.getOrDefault("iterations",
+                String.valueOf(Environment.TSPLIB_ITERATIONS)));
+        Path output = Paths.get(arguments.getOrDefault("output", "generated_environment.txt"));
+        if (output.toString().toLowerCase(Locale.ROOT).endsWith(".envb")) {
+            writeBinary(output, numberOfCities, roads, numberOfIterations);
+        } else {
+            writeText(output, numberOfCities, roads, numberOfIterations);
+        }
+        System.out.println(output + ": " + numberOfCities + " cities, " + roads.size() + " roads");
+    }
+
+}
@@ -0,0 +1,271 @@
+package agents;
+
+import agents.mechanics.AntAgentMechanics;
+import agents.mechanics.AntStatusCodec;
+import agents.mechanics.PheromoneUpdateCodec;
+import agents.mechanics.PheromoneUpdateStrategy;
+import agents.mechanics.TerminationCriteria;
+import jade.core.AID;
+import jade.core.Agent;
+import jade.core.behaviours.CyclicBehaviour;
+import jade.domain.DFService;
+import jade.domain.FIPAAgentManagement.DFAgentDescription;
+import jade.domain.FIPAAgentManagement.ServiceDescription;
+import jade.domain.FIPAException;
+import jade.lang.acl.ACLMessage;
+import jade.lang.acl.MessageTemplate;
+import writer.Writer;
+
+import java.util.*;
+
+/**
+ * This class represents the (optional) pheromone coordinator of a colony.
+ * Instead of sending their tours to all the other ants, the ants started with the
+ * topology=coordinator argument send them only to this agent, which:
+ * - waits until every ant registered for the TOUR_FINDING_SERVICE of its colony has reported a tour;
+ * - runs the global pheromone update once;
+ * - sends the update back to the ants: with Ant System, the summed deposits to the ants that already
+ * have the previous pheromone levels, and the full pheromone vector to the ants that joined later;
+ * with the other strategies (see PheromoneUpdateStrategy), the full pheromone vector to all the ants.
+ * After the last iteration, the coordinator writes the results. It also checks the early termination criteria
+ * (see AntAgent.terminationCriteria) after every round: when one of them is met, it writes the results and sends
+ * the decision to the ants, instead of the update.
+ * The environment file can be given with the input=path argument, as for the ants, and the colony
+ * with the colony=name argument.
+ */
+public class PheromoneCoordinatorAgent extends Agent {
+
+    // the DF service of the coordinator:
+    static final String COORDINATION_SERVICE = "pheromone-coordination";
+    // the conversation id of the tours sent by the ants to the coordinator:
+    static final String TOUR_REPORT = "tour-report";
+    // the conversation id of the pheromone updates sent by the coordinator to the ants:
+    static final String PHEROMONE_UPDATE = "pheromone-update";
+
+    // the colony coordinated by this agent (the "colony" argument), or null for the default colony:
+    private String colony;
+    private Environment environment;
+    private PheromoneUpdateStrategy pheromoneStrategy;
+    private double[] pheromoneLevel;
+    // how many rounds (iterations) have been completed:
+    private int currentRound = 0;
+    // the number of ants that have to report before a round is complete:
+    private int expectedAnts = 0;
+    // the tours reported in the current round:
+    private final Map<AID, AntStatusCodec.AntStatus> roundReports = new LinkedHashMap<>();
+    // the ants that have the same pheromone levels as the coordinator:
+    private final Set<AID> synchronizedAnts = new HashSet<>();
+    private final List<Double> iterationLengths = new ArrayList<>();
+    private List<Integer> lastPath = new ArrayList<>();
+    private TerminationCriteria terminationCriteria;
+
+    // buffers used for summing up the deposits of a round:
+    private double[] depositSums;
+    private int[] depositedEdges;
+
+    /**
+     * @return the number of ants registered in the yellow pages.
+     */
+    private int countAnts() {
+        DFAgentDescription template = new DFAgentDescription();
+        ServiceDescription serviceDescription = new ServiceDescription();
+        serviceDescription.setType(AntAgent.TOUR_FINDING_SERVICE);
+        serviceDescription.setName(AntAgent.colonyService(AntAgent.TOUR_FINDING_SERVICE, colony));
+        template.addServices(serviceDescription);
+        try {
+            return DFService.search(this, template).length;
+        } catch (FIPAException fe) {
+            System.out.println(getName() + ": failed to count the ants");
+            return expectedAnts;
+        }
+    }
+
+    /**
+     * This behaviour collects the tours of the ants, and completes a round when all of them have reported.
+     */
+    private class CollectToursBehaviour extends CyclicBehaviour {
+        public void action() {
+            ACLMessage reportMessage = myAgent.receive(MessageTemplate.MatchConversationId(TOUR_REPORT));
+            if (reportMessage == null) {
+                block();
+                return;
+            }
+            AntStatusCodec.AntStatus antStatus = AntStatusCodec.read(reportMessage);
+            if (!antStatus.isFinished()) return;
+            roundReports.put(reportMessage.getSender(), antStatus);
+            if (roundReports.size() >= expectedAnts) {
+                // some ants might have joined or left since the last round:
+                expectedAnts = countAnts();
+                if (roundReports.size() >= expectedAnts) completeRound();
+            }
+        }
+    }
+
+    /**
+     * Update the pheromone levels with the tours of the current round, and send the update to the ants.
+     */
+    private void completeRound() {
+        if (!pheromoneStrategy.isDepositOnly()) {
+            completeStrategyRound();
+            return;
+        }
+        // sum up the deposits of all the ants:
+        int depositCount = 0;
+        double lengthSum = 0.0;
+        double bestLength = Double.POSITIVE_INFINITY;
+        for (AntStatusCodec.AntStatus antStatus : roundReports.values()) {
+            double deltaPheromone = environment.getPheromoneQuantity() / antStatus.getTourLength();
+            for (int edgeIndex : antStatus.getPath()) {
+                if (depositSums[edgeIndex] == 0.0) depositedEdges[depositCount++] = edgeIndex;
+                depositSums[edgeIndex] += deltaPheromone;
+            }
+            lengthSum += antStatus.getTourLength();
+            if (antStatus.getTourLength() < bestLength) {
+                bestLength = antStatus.getTourLength();
+                lastPath = antStatus.getPath();
+            }
+        }
+        Arrays.sort(depositedEdges, 0, depositCount);
+        double[] depositAmounts = new double[depositCount];
+        for (int index = 0; index < depositCount; index++) {
+            depositAmounts[index] = depositSums[depositedEdges[index]];
+            depositSums[depositedEdges[index]] = 0.0;
+        }
+        AntAgentMechanics.applyPheromoneDeposits(pheromoneLevel, depositedEdges, depositAmounts, depositCount,
+                environment.getPheromoneDecayParameter());
+        iterationLengths.add(lengthSum / roundReports.size());
+        currentRound++;
+
+        if (currentRound == environment.getNumberOfIterations() || terminateEarly(bestLength)) {
+            // the ants stop after their last tour, so the results are written instead of being sent:
+            writeResults();
+        } else {
+            ACLMessage depositsMessage = new ACLMessage(ACLMessage.INFORM);
+            ACLMessage fullMessage = new ACLMessage(ACLMessage.INFORM);
+            boolean depositsNeeded = false;
+            boolean fullNeeded = false;
+            for (AID antAgent : roundReports.keySet()) {
+                // in the first round, all the ants start from the same (initial) pheromone levels:
+                if (currentRound == 1 || synchronizedAnts.contains(antAgent)) {
+                    depositsMessage.addReceiver(antAgent);
+                    depositsNeeded = true;
+                } else {
+                    fullMessage.addReceiver(antAgent);
+                    fullNeeded = true;
+                }
+                synchronizedAnts.add(antAgent);
+            }
+            if (depositsNeeded) {
+                depositsMessage.setConversationId(PHEROMONE_UPDATE);
+                depositsMessage.setByteSequenceContent(PheromoneUpdateCodec.encodeDeposits(currentRound,
+                        depositedEdges, depositAmounts, depositCount));
+                send(depositsMessage);
+            }
+            if (fullNeeded) {
+                fullMessage.setConversationId(PHEROMONE_UPDATE);
+                fullMessage.setByteSequenceContent(PheromoneUpdateCodec.encodeFull(currentRound, pheromoneLevel));
+                send(fullMessage);
+            }
+        }
+        roundReports.clear();
+    }
+
+    /**
+     * Complete a round with a strategy that is not deposit-only (MMAS, ACS): the update is computed
+     * by the strategy, and the full pheromone vector is sent to all the ants.
+     */
+    private void completeStrategyRound() {
+        List<List<Integer>> antPaths = new ArrayList<>();
+        List<Double> tourLengths = new ArrayList<>();
+        for (AntStatusCodec.AntStatus antStatus : roundReports.values()) {
+            antPaths.add(antStatus.getPath());
+            tourLengths.add(antStatus.getTourLength());
+        }
+        pheromoneStrategy.globalUpdate(pheromoneLevel, antPaths, tourLengths);
+        int bestAnt = PheromoneUpdateStrategy.bestAnt(antPaths, tourLengths);
+        if (bestAnt != -1) lastPath = antPaths.get(bestAnt);
+        iterationLengths.add(tourLengths.stream().reduce(0.0, Double::sum) / tourLengths.size());
+        currentRound++;
+        if (currentRound == environment.getNumberOfIterations() ||
+                terminateEarly(bestAnt == -1 ? Double.POSITIVE_INFINITY : tourLengths.get(bestAnt))) {
+            writeResults();
+        } else {
+            ACLMessage fullMessage = new ACLMessage(ACLMessage.INFORM);
+            for (AID antAgent : roundReports.keySet()) fullMessage.addReceiver(antAgent);
+            fullMessage.setConversationId(PHEROMONE_UPDATE);
+            fullMessage.setByteSequenceContent(PheromoneUpdateCodec.encodeFull(currentRound, pheromoneLevel));
+            send(fullMessage);
+        }
+        roundReports.clear();
+    }
+
+    /**
+     * Check the early termination criteria at the end of a round, and send the decision to the ants of the round
+     * if one of them is met.
+     * @param bestLength the length of the best tour of the round.
+     * @return true if the colony stops.
+     */
+    private boolean terminateEarly(double bestLength) {
+        if (!terminationCriteria.isEnabled()) return false;
+        String reason = terminationCriteria.check(currentRound, bestLength,
+                terminationCriteria.usesBranchingFactor() ? AntAgentMechanics.branchingFactor(
+                        environment.getCityGraph(), pheromoneLevel, AntMetrics.BRANCHING_LAMBDA) : Double.NaN);
+        if (reason == null) return false;
+        System.out.println(getName() + ": stopping the colony after round " + currentRound + " (" + reason + ")");
+        ACLMessage terminationMessage = new ACLMessage(ACLMessage.INFORM);
+        for (AID antAgent : roundReports.keySet()) terminationMessage.addReceiver(antAgent);
+        terminationMessage.setConversationId(AntAgent.TERMINATION);
+        terminationMessage.setContent(currentRound + " " + reason);
+        send(terminationMessage);
+        return true;
+    }
+
+    private void writeResults() {
+        System.out.println(getName() + ": writing the results...");
+        Writer.write(pheromoneLevel, environment.getCityGrid());
+        Writer.write(lastPath);
+        System.out.println("Iteration means: " + iterationLengths.toString());
+    }
+
+    protected void setup() {
+        Map<String, String> agentArguments = AntAgent.readArguments(this);
+        colony = agentArguments.get("colony");
+        // register to the yellow-pages:
+        DFAgentDescription dfAgentDescription = new DFAgentDescription();
+        dfAgentDescription.setName(getAID());
+        ServiceDescription serviceDescription = new ServiceDescription();
+        serviceDescription.setType(COORDINATION_SERVICE);
+        serviceDescription.setName(AntAgent.colonyService(COORDINATION_SERVICE, colony));
+        dfAgentDescription.addServices(serviceDescription);
+        try {
+            DFService.register(this, dfAgentDescription);
+        } catch (FIPAException fe) {
+            System.out.println(getName() +
+                    ": failed to register to the yellow pages: " +
+                    fe.getMessage());
+        }
+        // read the environment graph:
+        environment = Environment.load(agentArguments.getOrDefault("input", Environment.DEFAULT_INPUT_FILE));
+        pheromoneStrategy = environment.createPheromoneStrategy();
+        pheromoneLevel = new double[environment.getCityGraph().getNumberOfEdges()];
+        pheromoneStrategy.initialize(pheromoneLevel);
+        depositSums = new double[pheromoneLevel.length];
+        depositedEdges = new int[pheromoneLevel.length];
+        terminationCriteria = AntAgent.terminationCriteria(agentArguments);
+
+        addBehaviour(new CollectToursBehaviour());
+    }
+
+    @Override
+    protected void takeDown() {
+        // de-register from the DF's yellow pages service:
+        try {
+            DFService.deregister(this);
+        } catch (FIPAException fe) {
+            System.out.println(getName() +
+                    ": failed to de-register from the yellow pages: "
+                    + fe.getMessage());
+        }
+    }
+
+}
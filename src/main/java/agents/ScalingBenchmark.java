@@ -0,0 +1,345 @@
+package agents;
+
+import agents.mechanics.AntAgentMechanics;
+import agents.mechanics.CityGraph;
+import minimum_cost_hamiltonian.BacktrackingSearch;
+
+import java.io.BufferedWriter;
+import java.io.File;
+import java.io.IOException;
+import java.lang.management.ManagementFactory;
+import java.lang.management.MemoryPoolMXBean;
+import java.lang.management.MemoryType;
+import java.net.InetSocketAddress;
+import java.net.ServerSocket;
+import java.net.Socket;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.Paths;
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Locale;
+import java.util.Map;
+import java.util.concurrent.ForkJoinPool;
+import java.util.concurrent.TimeUnit;
+import java.util.regex.Matcher;
+import java.util.regex.Pattern;
+
+/**
+ * Measures how the colony scales with the size and the density of the instance, the number of ants and the number
+ * of containers, e.g.
+ * java agents.ScalingBenchmark modes=engine,jade,exact kinds=random,euclidean cities=20,50 densities=0.3,1.0
+ * ants=4,8 containers=1,2 seed=1 iterations=200 timeout=120 output=scaling.csv
+ * (the lists are comma-separated). For every kind, size and density, an instance is generated with the seed (see
+ * InstanceGenerator) in the directory given by dir (scaling by default), and solved by every mode:
+ * - engine: a ColonyEngine in this JVM (with threads=, the available processors by default); the containers are
+ * ignored;
+ * - jade: a JADE platform in as many JVMs as containers (a main container, and peripheral containers on the same
+ * host), started with jade.Boot and the class path of this JVM; the ants (with the seed argument, so every ant
+ * has its own reproducible random numbers) are spread over the containers, and their progress is read from their
+ * metrics files (see AntMetrics). The JVMs are stopped when the target is reached, when all the ants have
+ * completed their iterations, or after the timeout;
+ * - exact: BacktrackingSearch.findOptimalTour, once per instance and only up to exactlimit cities (13 by
+ * default); the ants and the containers are ignored.
+ * The target length is targetratio (1.0 by default) * the length of the nearest neighbour tour, and the colonies
+ * stop as soon as they reach it. Every run is appended to the CSV report, with the columns:
+ * mode, kind, cities, density, ants, containers, seed, referenceLength, targetLength, bestLength,
+ * secondsToTarget (empty if the target wasn't reached), iterations, iterationsPerSecond, seconds and peakHeapMb
+ * (the peak of the heap pools of this JVM, or the largest heap reported by the ants in the jade mode).
+ * The times of the jade mode include the start of the containers.
+ */
+public class ScalingBenchmark {
+
+    private static final String CSV_HEADER = "mode,kind,cities,density,ants,containers,seed,referenceLength," +
+            "targetLength,bestLength,secondsToTarget,iterations,iterationsPerSecond,seconds,peakHeapMb";
+    // a field of a (flat) metrics line, see MetricsWriter.JsonLine:
+    private static final Pattern JSON_FIELD = Pattern.compile("\"(\\w+)\":(\"[^\"]*\"|[^,}]*)");
+
+    /**
+     * The measurements of a run.
+     */
+    private static class Result {
+        double bestLength = Double.POSITIVE_INFINITY;
+        double secondsToTarget = Double.NaN;
+        int iterations = 0;
+        double iterationsPerSecond = Double.NaN;
+        double seconds = 0.0;
+        double peakHeapMb = Double.NaN;
+    }
+
+    private final Map<String, String> arguments;
+    private final Path directory;
+    private final long seed;
+    private final int numberOfIterations;
+    private final double targetRatio;
+    private final long timeoutMillis;
+
+    private ScalingBenchmark(Map<String, String> arguments) {
+        this.arguments = arguments;
+        directory = Paths.get(arguments.getOrDefault("dir", "scaling")).toAbsolutePath();
+        seed = Long.parseLong(arguments.getOrDefault("seed", "1"));
+        numberOfIterations = Integer.parseInt(arguments.getOrDefault("iterations", "200"));
+        targetRatio = Double.parseDouble(arguments.getOrDefault("targetratio", "1.0"));
+        timeoutMillis = (long) (Double.parseDouble(arguments.getOrDefault("timeout", "120")) * 1000);
+    }
+
+    private List<String> list(String key, String defaultValue) {
+        List<String> result = new ArrayList<>();
+        for (String value : arguments.getOrDefault(key, defaultValue).split(",")) {
+            if (!value.trim().isEmpty()) result.add(value.trim());
+        }
+        return result;
+    }
+
+    private static String format(double value) {
+        return Double.isNaN(value) || Double.isInfinite(value) ? "" : String.format(Locale.ROOT, "%.6g", value);
+    }
+
+    private static void resetPeakHeap() {
+        System.gc();
+        for (MemoryPoolMXBean memoryPool : ManagementFactory.getMemoryPoolMXBeans()) {
+            if (memoryPool.getType() == MemoryType.HEAP) memoryPool.resetPeakUsage();
+        }
+    }
+
+    private static double peakHeapMb() {
+        long peakBytes = 0;
+        for (MemoryPoolMXBean memoryPool : ManagementFactory.getMemoryPoolMXBeans()) {
+            if (memoryPool.getType() == MemoryType.HEAP) peakBytes += memoryPool.getPeakUsage().getUsed();
+        }
+        return peakBytes / 1048576.0;
+    }
+
+    private void run() throws IOException, InterruptedException {
+        Files.createDirectories(directory);
+        List<String> modes = list("modes", "engine,jade,exact");
+        int exactLimit = Integer.parseInt(arguments.getOrDefault("exactlimit", "13"));
+        Path output = Paths.get(arguments.getOrDefault("output", "scaling.csv"));
+        try (BufferedWriter csvWriter = Files.newBufferedWriter(output, StandardCharsets.UTF_8)) {
+            csvWriter.write(CSV_HEADER);
+            csvWriter.newLine();
+            for (String kind : list("kinds", InstanceGenerator.RANDOM)) {
+                for (String cities : list("cities", "20")) {
+                    for (String density : list("densities", "1.0")) {
+                        int numberOfCities = Integer.parseInt(cities);
+                        Path instance = directory.resolve(String.format(Locale.ROOT, "%s-%d-%s-%d.envb", kind,
+                                numberOfCities, density, seed));
+                        InstanceGenerator.writeBinary(instance, numberOfCities, InstanceGenerator.generate(kind,
+                                numberOfCities, Double.parseDouble(density), seed), numberOfIterations);
+                        // (not Environment.load: its cache would keep every instance of the sweep reachable)
+                        Environment environment = Environment.read(instance.toString());
+                        double referenceLength = AntAgentMechanics.nearestNeighbourTourLength(
+                                environment.getCityGraph());
+                        double targetLength = targetRatio * referenceLength;
+                        String instanceColumns = kind + "," + numberOfCities + "," + density;
+                        String lengthColumns = seed + "," + format(referenceLength) + "," + format(targetLength);
+                        if (modes.contains("exact") && numberOfCities <= exactLimit) {
+                            writeRow(csvWriter, "exact," + instanceColumns + ",,," + lengthColumns,
+                                    runExact(environment, targetLength));
+                        }
+                        for (String ants : list("ants", "8")) {
+                            int numberOfAnts = Integer.parseInt(ants);
+                            if (modes.contains("engine")) {
+                                writeRow(csvWriter, "engine," + instanceColumns + "," + numberOfAnts + ",1," +
+                                        lengthColumns, runEngine(environment, numberOfAnts, targetLength));
+                            }
+                            if (!modes.contains("jade")) continue;
+                            for (String containers : list("containers", "1")) {
+                                int numberOfContainers = Integer.parseInt(containers);
+                                writeRow(csvWriter, "jade," + instanceColumns + "," + numberOfAnts + "," +
+                                        numberOfContainers + "," + lengthColumns,
+                                        runJade(instance, numberOfAnts, numberOfContainers, targetLength));
+                            }
+                        }
+                    }
+                }
+            }
+        }
+    }
+
+    private static void writeRow(BufferedWriter csvWriter, String configurationColumns, Result result)
+            throws IOException {
+        String row = configurationColumns + "," + format(result.bestLength) + "," +
+                format(result.secondsToTarget) + "," + result.iterations + "," +
+                format(result.iterationsPerSecond) + "," + format(result.seconds) + "," +
+                format(result.peakHeapMb);
+        System.out.println(row);
+        csvWriter.write(row);
+        csvWriter.newLine();
+        // (the report of the completed runs is kept if the sweep is interrupted)
+        csvWriter.flush();
+    }
+
+    private Result runExact(Environment environment, double targetLength) {
+        Result result = new Result();
+        resetPeakHeap();
+        long startTime = System.nanoTime();
+        CityGraph cityGraph = environment.getCityGraph();
+        List<Integer> optimalPath = BacktrackingSearch.findOptimalTour(cityGraph);
+        result.seconds = (System.nanoTime() - startTime) / 1e9;
+        result.peakHeapMb = peakHeapMb();
+        if (!optimalPath.isEmpty()) result.bestLength = cityGraph.pathLength(optimalPath);
+        if (result.bestLength <= targetLength) result.secondsToTarget = result.seconds;
+        return result;
+    }
+
+    private Result runEngine(Environment environment, int numberOfAnts, double targetLength) {
+        Result result = new Result();
+        ForkJoinPool pool = new ForkJoinPool(Integer.parseInt(arguments.getOrDefault("threads",
+                String.valueOf(Runtime.getRuntime().availableProcessors()))));
+        try {
+            resetPeakHeap();
+            long startTime = System.nanoTime();
+            ColonyEngine colonyEngine = new ColonyEngine(environment, numberOfAnts,
+                    Integer.parseInt(arguments.getOrDefault("candidates", "10")),
+                    Boolean.parseBoolean(arguments.getOrDefault("localsearch", "false")), pool, seed);
+            long deadline = System.currentTimeMillis() + timeoutMillis;
+            while (colonyEngine.getCurrentIteration() < environment.getNumberOfIterations() &&
+                    System.currentTimeMillis() < deadline) {
+                colonyEngine.runIteration();
+                if (colonyEngine.getBestLength() <= targetLength) {
+                    result.secondsToTarget = (System.nanoTime() - startTime) / 1e9;
+                    break;
+                }
+            }
+            result.seconds = (System.nanoTime() - startTime) / 1e9;
+            result.peakHeapMb = peakHeapMb();
+            result.bestLength = colonyEngine.getBestLength();
+            result.iterations = colonyEngine.getCurrentIteration();
+            result.iterationsPerSecond = result.iterations / result.seconds;
+        } finally {
+            pool.shutdown();
+        }
+        return result;
+    }
+
+    /**
+     * @return the fields of a metrics line (the strings with their quotes), or null if the line is incomplete.
+     */
+    private static Map<String, String> parseMetricsLine(String line) {
+        if (!line.endsWith("}")) return null;
+        Map<String, String> fields = new HashMap<>();
+        Matcher matcher = JSON_FIELD.matcher(line);
+        while (matcher.find()) fields.put(matcher.group(1), matcher.group(2));
+        return fields;
+    }
+
+    private Result runJade(Path instance, int numberOfAnts, int numberOfContainers, double targetLength)
+            throws IOException, InterruptedException {
+        Result result = new Result();
+        Path runDirectory = Files.createTempDirectory(directory, "jade-");
+        int port;
+        try (ServerSocket serverSocket = new ServerSocket(0)) {
+            port = serverSocket.getLocalPort();
+        }
+        String java = Paths.get(System.getProperty("java.home"), "bin", "java").toString();
+        List<Process> processes = new ArrayList<>();
+        List<Path> metricsFiles = new ArrayList<>();
+        long startTime = System.currentTimeMillis();
+        try {
+            for (int container = 0; container < numberOfContainers; container++) {
+                Path metricsFile = runDirectory.resolve("metrics-" + container + ".jsonl");
+                metricsFiles.add(metricsFile);
+                // the ants container, container + containers, ...:
+                StringBuilder agents = new StringBuilder();
+                for (int antIndex = container; antIndex < numberOfAnts; antIndex += numberOfContainers) {
+                    if (agents.length() > 0) agents.append(';');
+                    agents.append("ant").append(antIndex).append(':').append(AntAgent.class.getName())
+                            .append("(input=").append(instance).append(",seed=").append(seed)
+                            .append(",metrics=").append(metricsFile).append(')');
+                }
+                List<String> command = new ArrayList<>();
+                command.add(java);
+                command.add("-cp");
+                command.add(System.getProperty("java.class.path"));
+                command.add("jade.Boot");
+                if (container > 0) {
+                    command.add("-container");
+                    command.add("-host");
+                    command.add("localhost");
+                    command.add("-local-port");
+                    command.add(String.valueOf(port + container));
+                }
+                command.add("-port");
+                command.add(String.valueOf(port));
+                command.add("-nomtp");
+                if (agents.length() > 0) {
+                    command.add("-agents");
+                    command.add(agents.toString());
+                }
+                processes.add(new ProcessBuilder(command).directory(runDirectory.toFile())
+                        .redirectErrorStream(true)
+                        .redirectOutput(new File(runDirectory.toFile(), "container-" + container + ".log"))
+                        .start());
+                // the peripheral containers need the main container:
+                if (container == 0 && numberOfContainers > 1) waitForPort(port, startTime + timeoutMillis);
+            }
+            Map<String, Integer> antIterations = new HashMap<>();
+            long firstTimestamp = -1;
+            long lastTimestamp = -1;
+            boolean finished = false;
+            while (!finished && System.currentTimeMillis() < startTime + timeoutMillis) {
+                Thread.sleep(200);
+                antIterations.clear();
+                for (Path metricsFile : metricsFiles) {
+                    if (!Files.exists(metricsFile)) continue;
+                    for (String line : Files.readAllLines(metricsFile, StandardCharsets.UTF_8)) {
+                        Map<String, String> fields = parseMetricsLine(line);
+                        if (fields == null || !fields.containsKey("iteration")) continue;
+                        long timestamp = Long.parseLong(fields.get("timestamp"));
+                        if (firstTimestamp == -1 || timestamp < firstTimestamp) firstTimestamp = timestamp;
+                        lastTimestamp = Math.max(lastTimestamp, timestamp);
+                        antIterations.merge(fields.get("ant"), Integer.parseInt(fields.get("iteration")), Math::max);
+                        if (!"null".equals(fields.get("bestSoFar"))) {
+                            double bestLength = Double.parseDouble(fields.get("bestSoFar"));
+                            result.bestLength = Math.min(result.bestLength, bestLength);
+                            if (bestLength <= targetLength && Double.isNaN(result.secondsToTarget)) {
+                                result.secondsToTarget = (timestamp - startTime) / 1e3;
+                            }
+                        }
+                        if (!"null".equals(fields.get("heapUsedMb"))) {
+                            double heapUsed = Double.parseDouble(fields.get("heapUsedMb"));
+                            result.peakHeapMb = Double.isNaN(result.peakHeapMb) ? heapUsed :
+                                    Math.max(result.peakHeapMb, heapUsed);
+                        }
+                    }
+                }
+                finished = !Double.isNaN(result.secondsToTarget) || (antIterations.size() == numberOfAnts &&
+                        antIterations.values().stream().allMatch(iterations -> iterations >= numberOfIterations));
+            }
+            result.seconds = (System.currentTimeMillis() - startTime) / 1e3;
+            result.iterations = antIterations.values().stream().mapToInt(Integer::intValue).max().orElse(0);
+            if (result.iterations > 1 && lastTimestamp > firstTimestamp) {
+                // from the end of the first iteration, so the start of the containers isn't counted:
+                result.iterationsPerSecond = (result.iterations - 1) / ((lastTimestamp - firstTimestamp) / 1e3);
+            }
+        } finally {
+            for (Process process : processes) process.destroy();
+            for (Process process : processes) {
+                if (!process.waitFor(10, TimeUnit.SECONDS)) process.destroyForcibly();
+            }
+        }
+        return result;
+    }
+
+    /**
+     * Wait until a local port accepts connections (e.g. the main container has started).
+     */
+    private static void waitForPort(int port, long deadline) throws InterruptedException {
+        while (System.currentTimeMillis() < deadline) {
+            try (Socket socket = new Socket()) {
+                socket.connect(new InetSocketAddress("localhost", port), 1000);
+                return;
+            } catch (IOException e) {
+                Thread.sleep(200);
+            }
+        }
+    }
+
+    public static void main(String[] args) throws IOException, InterruptedException {
+        new ScalingBenchmark(AntAgent.parseArguments(args, "ScalingBenchmark")).run();
+    }
+
+}
@@ -0,0 +1,173 @@
+package agents;
+
+import agents.mechanics.CompleteCityGraph;
+
+import java.io.BufferedReader;
+import java.io.FileReader;
+import java.io.IOException;
+import java.util.Locale;
+
+/**
+ * Reader for the TSPLIB instances (TYPE: TSP or ATSP), e.g. berlin52.tsp or att532.tsp:
+ * - NODE_COORD_SECTION, with the EUC_2D, CEIL_2D, ATT and GEO edge weight types;
+ * - EDGE_WEIGHT_SECTION, with the EXPLICIT edge weight type, in the FULL_MATRIX, UPPER_ROW, LOWER_ROW,
+ * UPPER_DIAG_ROW and LOWER_DIAG_ROW formats (and their column-wise equivalents).
+ * The instance is returned as a CompleteCityGraph, so the roads are never materialized.
+ * note: the nodes must be labeled with numbers from 1 to DIMENSION.
+ */
+public class TsplibReader {
+
+    /**
+     * Read the whitespace-separated tokens of the sections, across the lines.
+     */
+    private static class Tokenizer {
+        private final BufferedReader bufferedReader;
+        private String[] lineTokens = new String[0];
+        private int tokenIndex = 0;
+
+        Tokenizer(BufferedReader bufferedReader) {
+            this.bufferedReader = bufferedReader;
+        }
+
+        String next() throws IOException {
+            while (tokenIndex == lineTokens.length) {
+                String currentLine = bufferedReader.readLine();
+                if (currentLine == null) throw new IOException("unexpected end of the TSPLIB file");
+                currentLine = currentLine.trim();
+                lineTokens = currentLine.isEmpty() ? new String[0] : currentLine.split("\\s+");
+                tokenIndex = 0;
+            }
+            return lineTokens[tokenIndex++];
+        }
+
+        double nextDouble() throws IOException {
+            return Double.parseDouble(next());
+        }
+    }
+
+    /**
+     * @param fileName the name of the TSPLIB file.
+     * @return the complete graph of the instance.
+     * @throws IOException if the file cannot be read, or if the instance is not supported.
+     */
+    public static CompleteCityGraph read(String fileName) throws IOException {
+        try (BufferedReader bufferedReader = new BufferedReader(new FileReader(fileName))) {
+            int dimension = -1;
+            String edgeWeightType = null;
+            String edgeWeightFormat = "FULL_MATRIX";
+            Tokenizer tokenizer = new Tokenizer(bufferedReader);
+            String currentLine;
+            while ((currentLine = bufferedReader.readLine()) != null) {
+                currentLine = currentLine.trim();
+                if (currentLine.isEmpty()) continue;
+                int separatorIndex = currentLine.indexOf(':');
+                String keyword = (separatorIndex >= 0 ? currentLine.substring(0, separatorIndex) : currentLine)
+                        .trim().toUpperCase(Locale.ROOT);
+                String value = separatorIndex >= 0 ? currentLine.substring(separatorIndex + 1).trim() : "";
+                switch (keyword) {
+                    case "TYPE":
+                        if (!value.equals("TSP") && !value.equals("ATSP"))
+                            throw new IOException("unsupported TSPLIB type: " + value);
+                        break;
+                    case "DIMENSION":
+                        dimension = Integer.parseInt(value);
+                        break;
+                    case "EDGE_WEIGHT_TYPE":
+                        edgeWeightType = value;
+                        break;
+                    case "EDGE_WEIGHT_FORMAT":
+                        edgeWeightFormat = value;
+                        break;
+                    case "NODE_COORD_SECTION":
+                        checkHeader(dimension, edgeWeightType);
+                        return readCoordinates(tokenizer, dimension, edgeWeightType);
+                    case "EDGE_WEIGHT_SECTION":
+                        checkHeader(dimension, edgeWeightType);
+                        return CompleteCityGraph.fromMatrix(dimension,
+                                readMatrix(tokenizer, dimension, edgeWeightFormat));
+                    case "EOF":
+                        throw new IOException("the TSPLIB file doesn't have a NODE_COORD_SECTION " +
+                                "or an EDGE_WEIGHT_SECTION");
+                    default:
+                        // NAME, COMMENT, DISPLAY_DATA_TYPE, ...
+                        break;
+                }
+            }
+            throw new IOException("unexpected end of the TSPLIB file");
+        }
+    }
+
+    private static void checkHeader(int dimension, String edgeWeightType) throws IOException {
+        if (dimension < 1) throw new IOException("the TSPLIB file doesn't have a valid DIMENSION");
+        if (edgeWeightType == null) throw new IOException("the TSPLIB file doesn't have an EDGE_WEIGHT_TYPE");
+    }
+
+    private static CompleteCityGraph readCoordinates(Tokenizer tokenizer, int dimension, String edgeWeightType)
+            throws IOException {
+        CompleteCityGraph.DistanceType distanceType;
+        try {
+            distanceType = CompleteCityGraph.DistanceType.valueOf(edgeWeightType);
+        } catch (IllegalArgumentException e) {
+            throw new IOException("unsupported EDGE_WEIGHT_TYPE: " + edgeWeightType);
+        }
+        if (distanceType == CompleteCityGraph.DistanceType.EXPLICIT)
+            throw new IOException("the EXPLICIT weights must be given in an EDGE_WEIGHT_SECTION");
+        double[] xCoordinates = new double[dimension];
+        double[] yCoordinates = new double[dimension];
+        for (int nodeIndex = 0; nodeIndex < dimension; nodeIndex++) {
+            int node = Integer.parseInt(tokenizer.next());
+            if (node < 1 || node > dimension) throw new IOException("invalid node label: " + node);
+            xCoordinates[node - 1] = tokenizer.nextDouble();
+            yCoordinates[node - 1] = tokenizer.nextDouble();
+        }
+        return CompleteCityGraph.fromCoordinates(distanceType, xCoordinates, yCoordinates);
+    }
+
+    private static double[] readMatrix(Tokenizer tokenizer, int dimension, String edgeWeightFormat)
+            throws IOException {
+        double[] distances = new double[dimension * dimension];
+        // the column-wise formats list the same entries as the row-wise formats of the other triangle:
+        switch (edgeWeightFormat) {
+            case "FULL_MATRIX":
+                for (int index = 0; index < distances.length; index++) distances[index] = tokenizer.nextDouble();
+                return distances;
+            case "UPPER_ROW":
+            case "LOWER_COL":
+                readTriangle(tokenizer, distances, dimension, true, false);
+                return distances;
+            case "LOWER_ROW":
+            case "UPPER_COL":
+                readTriangle(tokenizer, distances, dimension, false, false);
+                return distances;
+            case "UPPER_DIAG_ROW":
+            case "LOWER_DIAG_COL":
+                readTriangle(tokenizer, distances, dimension, true, true);
+                return distances;
+            case "LOWER_DIAG_ROW":
+            case "UPPER_DIAG_COL":
+                readTriangle(tokenizer, distances, dimension, false, true);
+                return distances;
+            default:
+                throw new IOException("unsupported EDGE_WEIGHT_FORMAT: " + edgeWeightFormat);
+        }
+    }
+
+    /**
+     * Read a triangle of a symmetric matrix, row by row, and fill in both triangles.
+     * @param upper true for the upper triangle, false for the lower triangle.
+     * @param diagonal true if the rows include the diagonal entries.
+     */
+    private static void readTriangle(Tokenizer tokenizer, double[] distances, int dimension, boolean upper,
+                                     boolean diagonal) throws IOException {
+        for (int row = 0; row < dimension; row++) {
+            int firstColumn = upper ? (diagonal ? row : row + 1) : 0;
+            int endColumn = upper ? dimension : (diagonal ? row + 1 : row);
+            for (int column = firstColumn; column < endColumn; column++) {
+                double distance = tokenizer.nextDouble();
+                distances[row * dimension + column] = distance;
+                distances[column * dimension + row] = distance;
+            }
+        }
+    }
+
+}
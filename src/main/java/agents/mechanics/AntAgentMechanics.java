@@ -29,33 +29,154 @@ public class AntAgentMechanics {
             Double[] subjectivePheromoneLevel,
             double betaParameter
             ){
-        List<Integer> roadIds = availableCities.stream()
-                .map(cityId -> {
-                            int roadId = 0;
-                            while(roadId < cityGrid.size()){
-                                AntAgent.CityRoad cityRoad = cityGrid.get(roadId);
-                                if(cityRoad.getSourceId() == currentCity &&
-                                        cityRoad.getTargetId().equals(cityId))
-                                    break;
-                                roadId++;
-                            }
-                            return roadId;
-                        }
-                ).collect(Collectors.toList());
-        List<Double> rawValues = roadIds.stream().map(roadId -> {
+        return getNextStateProbability(currentCity, availableCities, new CityGraph(cityGrid),
+                subjectivePheromoneLevel, betaParameter);
+    }
+
+    /**
+     * Compute the list of probabilities for each next possible city.
+     * @param currentCity the city where the ant is currently placed.
+     * @param availableCities the list of all next possible cities.
+     * @param cityGraph the adjacency structure of the roads.
+     * @param subjectivePheromoneLevel the array containing all the pheromone
+     *                                 levels for each available city.
+     * @param betaParameter the parameter that determines the relative importance of
+     *                      pheromone versus distance;
+     * @return the list of probabilities, each probability being associated with the
+     *          city at the same index from availableCity
+     */
+    public static List<Double> getNextStateProbability(
+            long currentCity, List<Long> availableCities,
+            CityGraph cityGraph,
+            Double[] subjectivePheromoneLevel,
+            double betaParameter
+            ){
+        double[] rawValues = new double[availableCities.size()];
+        double probSum = 0.0;
+        for(int cityIndex = 0;cityIndex < availableCities.size();cityIndex++){
+            int roadId = cityGraph.getEdgeId(currentCity, availableCities.get(cityIndex));
             double pheromone = subjectivePheromoneLevel[roadId];
-            double roadDistance = cityGrid.get(roadId).getLength();
-            return pheromone * Math.pow(1/roadDistance, betaParameter);
-        }).collect(Collectors.toList());
-        Double probSum = rawValues.stream().reduce(0.0, Double::sum);
-        List<Double> result = rawValues.stream().map(rawValue -> {
-            if(probSum == 0.0)return 0.0;
-            return rawValue / probSum;
-        })
-                .collect(Collectors.toList());
+            double roadDistance = cityGraph.getLength(roadId);
+            rawValues[cityIndex] = pheromone * Math.pow(1/roadDistance, betaParameter);
+            probSum += rawValues[cityIndex];
+        }
+        List<Double> result = new ArrayList<>(rawValues.length);
+        for(double rawValue : rawValues){
+            result.add(probSum == 0.0 ? 0.0 : rawValue / probSum);
+        }
+        return result;
+    }
+
+    /**
+     * Compute the list of probabilities for each next possible city, using the cached choice information.
+     * @param currentCity the city where the ant is currently placed.
+     * @param availableCities the list of all next possible cities.
+     * @param cityGraph the adjacency structure of the roads.
+     * @param choiceInfo the array containing pheromone * (1 / length) ^ beta for every edge
+     *                   (see updateChoiceInfo).
+     * @return the list of probabilities, each probability being associated with the
+     *          city at the same index from availableCity
+     */
+    public static List<Double> getNextStateProbability(
+            long currentCity, List<Long> availableCities,
+            CityGraph cityGraph,
+            double[] choiceInfo
+            ){
+        double[] rawValues = new double[availableCities.size()];
+        double probSum = 0.0;
+        for(int cityIndex = 0;cityIndex < availableCities.size();cityIndex++){
+            rawValues[cityIndex] = choiceInfo[cityGraph.getEdgeId(currentCity, availableCities.get(cityIndex))];
+            probSum += rawValues[cityIndex];
+        }
+        List<Double> result = new ArrayList<>(rawValues.length);
+        for(double rawValue : rawValues){
+            result.add(probSum == 0.0 ? 0.0 : rawValue / probSum);
+        }
         return result;
     }
 
+    /**
+     * Compute the heuristic term of every edge; the lengths and beta don't change during a run,
+     * so this is done once, when the grid is loaded.
+     * @param cityGraph the adjacency structure of the roads.
+     * @param betaParameter the parameter that determines the relative importance of
+     *                      pheromone versus distance;
+     * @return an array containing (1 / length) ^ beta for every edge.
+     */
+    public static double[] getHeuristicValues(CityGraph cityGraph, double betaParameter){
+        double[] result = new double[cityGraph.getNumberOfEdges()];
+        for(int edgeIndex = 0;edgeIndex < result.length;edgeIndex++){
+            result[edgeIndex] = Math.pow(1/cityGraph.getLength(edgeIndex), betaParameter);
+        }
+        return result;
+    }
+
+    /**
+     * Refresh the choice information of every edge, after the pheromone levels have changed.
+     * @param choiceInfo the array that will contain pheromone * (1 / length) ^ beta for every edge.
+     * @param pheromoneLevel the current pheromone levels.
+     * @param heuristicValues the values computed by getHeuristicValues.
+     */
+    public static void updateChoiceInfo(double[] choiceInfo, double[] pheromoneLevel, double[] heuristicValues){
+        for(int edgeIndex = 0;edgeIndex < choiceInfo.length;edgeIndex++){
+            choiceInfo[edgeIndex] = pheromoneLevel[edgeIndex] * heuristicValues[edgeIndex];
+        }
+    }
+
+    /**
+     * Refresh the choice information of the given edges only (e.g. after a local pheromone update).
+     * @param choiceInfo the array that contains pheromone * (1 / length) ^ beta for every edge.
+     * @param pheromoneLevel the current pheromone levels.
+     * @param heuristicValues the values computed by getHeuristicValues.
+     * @param edges the edges whose pheromone levels have changed.
+     */
+    public static void updateChoiceInfo(double[] choiceInfo, double[] pheromoneLevel, double[] heuristicValues,
+                                        List<Integer> edges){
+        for(int edgeIndex : edges){
+            choiceInfo[edgeIndex] = pheromoneLevel[edgeIndex] * heuristicValues[edgeIndex];
+        }
+    }
+
+    /**
+     * The length of the greedy nearest neighbour tour from the city 1, used to scale the initial
+     * pheromone levels. If the greedy walk reaches a dead end (on a sparse graph), the result is
+     * n * (the mean length of the roads) instead.
+     * @param cityGraph the adjacency structure of the roads.
+     * @return the length of the tour.
+     */
+    public static double nearestNeighbourTourLength(CityGraph cityGraph){
+        int numberOfCities = cityGraph.getNumberOfCities();
+        boolean[] visited = new boolean[numberOfCities + 1];
+        int currentCity = 1;
+        visited[currentCity] = true;
+        double result = 0.0;
+        for(int step = 1;step <= numberOfCities && result >= 0.0;step++){
+            int nextEdge = -1;
+            for(int slot = cityGraph.firstSlot(currentCity);slot < cityGraph.endSlot(currentCity);slot++){
+                int edgeIndex = cityGraph.edgeAt(slot);
+                int targetCity = cityGraph.getTarget(edgeIndex);
+                // the city 1 can only be entered at the last step:
+                boolean allowed = step == numberOfCities ? targetCity == 1 : !visited[targetCity];
+                if(allowed && (nextEdge == -1 || cityGraph.getLength(edgeIndex) < cityGraph.getLength(nextEdge)))
+                    nextEdge = edgeIndex;
+            }
+            if(nextEdge == -1){
+                result = -1.0;
+            } else {
+                result += cityGraph.getLength(nextEdge);
+                currentCity = cityGraph.getTarget(nextEdge);
+                visited[currentCity] = true;
+            }
+        }
+        if(result > 0.0)return result;
+        double lengthSum = 0.0;
+        for(int edgeIndex = 0;edgeIndex < cityGraph.getNumberOfEdges();edgeIndex++){
+            lengthSum += cityGraph.getLength(edgeIndex);
+        }
+        return cityGraph.getNumberOfEdges() == 0 ? 1.0 :
+                numberOfCities * lengthSum / cityGraph.getNumberOfEdges();
+    }
+
     /**
      * select the best candidates from the given set of next possible cities
      * @param availableCities the set of next possible cities
@@ -132,53 +253,141 @@ public class AntAgentMechanics {
             double pheromoneDecayParameter,
             double pheromoneQuantity
             ){
-        Double[] globalPheromoneLevels = Arrays.copyOf(currentPheromoneLevel, currentPheromoneLevel.length);
-        double deltaPheromone = 0.0;
-        for(int edgeIndex = 0;edgeIndex < cityGrid.size();edgeIndex++){
-            // update edge at the given index in the cityGrid List:
-            double deltaSum = 0.0;
-            for(int antIndex = 0;antIndex < antPaths.size();antIndex++){
-                if(antPaths.get(antIndex).contains(edgeIndex))deltaSum += pheromoneQuantity / tourLengths.get(antIndex);
+        double[] globalPheromoneLevels = new double[cityGrid.size()];
+        for(int edgeIndex = 0;edgeIndex < globalPheromoneLevels.length;edgeIndex++){
+            globalPheromoneLevels[edgeIndex] = currentPheromoneLevel[edgeIndex];
+        }
+        updatePheromoneLevel(globalPheromoneLevels, antPaths, tourLengths, pheromoneDecayParameter, pheromoneQuantity);
+        Double[] result = new Double[globalPheromoneLevels.length];
+        for(int edgeIndex = 0;edgeIndex < result.length;edgeIndex++){
+            result[edgeIndex] = globalPheromoneLevels[edgeIndex];
+        }
+        return result;
+    }
+
+    /**
+     * Update the pheromone levels in place, after an iteration: first, every edge evaporates, then
+     * every ant deposits pheromoneQuantity / (the length of its tour) on the edges of its path.
+     * This takes O(E + A * n) time, for E edges and A ants with paths of n edges.
+     * @param pheromoneLevel the pheromone levels that were used by the ant agents in the last iteration; they
+     *                       will be replaced by the new levels
+     * @param antPaths The paths chosen by each ant in the last iteration (the ants without a path are skipped)
+     * @param tourLengths the lengths of the paths chosen by the agents in the last iteration
+     * @param pheromoneDecayParameter a real number from the interval [0,1] that determines how much pheromone
+     *                                should evaporate after an iteration
+     * @param pheromoneQuantity how much pheromone an ant deposits on a tour of length 1
+     */
+    public static void updatePheromoneLevel(
+            double[] pheromoneLevel, List<List<Integer>> antPaths,
+            List<Double> tourLengths,
+            double pheromoneDecayParameter,
+            double pheromoneQuantity
+            ){
+        // evaporation:
+        evaporate(pheromoneLevel, pheromoneDecayParameter);
+        // deposit:
+        for(int antIndex = 0;antIndex < antPaths.size();antIndex++){
+            List<Integer> antPath = antPaths.get(antIndex);
+            if(antPath.isEmpty())continue;
+            depositPheromone(pheromoneLevel, antPath, pheromoneQuantity / tourLengths.get(antIndex));
+        }
+    }
+
+    /**
+     * The lambda-branching factor of the pheromone levels: for every city, the number of out-edges whose level is
+     * at least min + lambda * (max - min), averaged over the cities. It starts from the mean degree and goes
+     * down to about 1 (or 2 on symmetric graphs) when the colony converges to a single tour.
+     * @param cityGraph the adjacency structure of the roads
+     * @param pheromoneLevel the pheromone levels
+     * @param lambda a real number from the interval [0,1], usually 0.05
+     * @return the mean number of branches per city
+     */
+    public static double branchingFactor(CityGraph cityGraph, double[] pheromoneLevel, double lambda){
+        long branches = 0;
+        for(int city = 1;city <= cityGraph.getNumberOfCities();city++){
+            double minimumLevel = Double.POSITIVE_INFINITY;
+            double maximumLevel = Double.NEGATIVE_INFINITY;
+            for(int slot = cityGraph.firstSlot(city);slot < cityGraph.endSlot(city);slot++){
+                double level = pheromoneLevel[cityGraph.edgeAt(slot)];
+                minimumLevel = Math.min(minimumLevel, level);
+                maximumLevel = Math.max(maximumLevel, level);
+            }
+            double threshold = minimumLevel + lambda * (maximumLevel - minimumLevel);
+            for(int slot = cityGraph.firstSlot(city);slot < cityGraph.endSlot(city);slot++){
+                if(pheromoneLevel[cityGraph.edgeAt(slot)] >= threshold) branches++;
             }
-            globalPheromoneLevels[edgeIndex] = (1 - pheromoneDecayParameter) * currentPheromoneLevel[edgeIndex] +
-                    deltaSum;
         }
-        return globalPheromoneLevels;
+        return (double) branches / cityGraph.getNumberOfCities();
+    }
+
+    /**
+     * Evaporate every edge, in place.
+     * @param pheromoneLevel the pheromone levels
+     * @param pheromoneDecayParameter the fraction of the pheromone that evaporates
+     */
+    public static void evaporate(double[] pheromoneLevel, double pheromoneDecayParameter){
+        double persistence = 1 - pheromoneDecayParameter;
+        for(int edgeIndex = 0;edgeIndex < pheromoneLevel.length;edgeIndex++){
+            pheromoneLevel[edgeIndex] *= persistence;
+        }
+    }
+
+    /**
+     * Add the same amount of pheromone on every edge of a path, in place.
+     * @param pheromoneLevel the pheromone levels
+     * @param path the edge ids of the path
+     * @param amount the pheromone deposited on every edge
+     */
+    public static void depositPheromone(double[] pheromoneLevel, List<Integer> path, double amount){
+        for(int edgeIndex : path){
+            pheromoneLevel[edgeIndex] += amount;
+        }
+    }
+
+    /**
+     * Update the pheromone levels in place with deposits that were already summed up per edge
+     * (e.g. by the pheromone coordinator): first, every edge evaporates, then the deposits are added.
+     * @param pheromoneLevel the pheromone levels; they will be replaced by the new levels
+     * @param edges the edges that receive pheromone
+     * @param amounts amounts[i] = the pheromone deposited on edges[i]
+     * @param count the number of deposits
+     * @param pheromoneDecayParameter a real number from the interval [0,1] that determines how much pheromone
+     *                                should evaporate after an iteration
+     */
+    public static void applyPheromoneDeposits(
+            double[] pheromoneLevel, int[] edges, double[] amounts, int count,
+            double pheromoneDecayParameter
+            ){
+        evaporate(pheromoneLevel, pheromoneDecayParameter);
+        for(int index = 0;index < count;index++){
+            pheromoneLevel[edges[index]] += amounts[index];
+        }
     }
 
     /**
      *
-     * @param cityVisitedString the string representation of the visited cities
-     *                          ('1' - visited, '0' - not visited)
+     * @param visitedCities the set of the visited cities
      * @return true if a hamiltonian tour found, false otherwise
      */
-    public static boolean tourCondition(String cityVisitedString, long sourceCity, long currentCity){
-        for(int charIndex = 0;charIndex < cityVisitedString.length();charIndex++){
-            if(cityVisitedString.charAt(charIndex) == '0')return false;
-        }
-        if(cityVisitedString.charAt(Math.toIntExact(sourceCity - 1)) != '2')return false;
-        if(sourceCity != currentCity)return false;
-        return true;
+    public static boolean tourCondition(VisitedCitySet visitedCities, long sourceCity, long currentCity){
+        return visitedCities.allVisited() && visitedCities.isClosed() && sourceCity == currentCity;
     }
 
     /**
      * Check if the current edge can be traversed and should be considered when searching for next possible cities.
-     * @param currentCityIsVisitedString the string representation of the visited cities.
+     * @param visitedCities the set of the visited cities.
      * @param sourceCity the first city visited on this path.
      * @param targetCity the city to which this edge leads.
      * @return true if the target city can be visited, false otherwise.
      */
-    public static boolean possibleNextCity(String currentCityIsVisitedString, long sourceCity, long targetCity){
+    public static boolean possibleNextCity(VisitedCitySet visitedCities, long sourceCity, long targetCity){
         if(sourceCity == targetCity){
             // return true only if all the cities have been visited only once:
-            for(int charIndex = 0;charIndex < currentCityIsVisitedString.length();charIndex++){
-                if(currentCityIsVisitedString.charAt(charIndex) != '1')return false;
-            }
-            return true;
+            return visitedCities.allVisited() && !visitedCities.isClosed();
         }
         else {
             // return true only if target city hasn't been visited yet:
-            return currentCityIsVisitedString.charAt(Math.toIntExact(targetCity - 1)) == '0';
+            return !visitedCities.contains(targetCity);
         }
     }
 
@@ -0,0 +1,87 @@
+package agents.mechanics;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+import java.util.Map;
+
+/**
+ * Ant Colony System (Dorigo and Gambardella):
+ * - the next city is the best one with the probability q0, and it is sampled otherwise
+ * (the pseudo-random-proportional rule, see RouletteTourBuilder);
+ * - local update: every edge used by an ant moves towards the initial level,
+ * tau = (1 - xi) * tau + xi * tau0, which makes the other ants less likely to follow the same tour;
+ * - global update: only the edges of the best-so-far tour evaporate and receive pheromone,
+ * tau = (1 - decay) * tau + decay * pheromoneQuantity / (best length).
+ * The levels start from tau0 = pheromoneQuantity / (n * the reference length, e.g. of the nearest
+ * neighbour tour).
+ * The optional parameters (in the environment header) are q0 (0.9) and xi (0.1).
+ * note: every ant keeps its own pheromone levels, so its local updates only change its own future choices;
+ * the local update is applied once the tour is complete, which gives the same tour, because an edge
+ * can't be chosen again after it has been used.
+ */
+public class AntColonySystemUpdate implements PheromoneUpdateStrategy {
+
+    private final double pheromoneDecayParameter;
+    private final double pheromoneQuantity;
+    private final double exploitationProbability;
+    private final double localDecayParameter;
+    private final double initialLevel;
+
+    private List<Integer> bestPath = new ArrayList<>();
+    private double bestLength = Double.POSITIVE_INFINITY;
+
+    public AntColonySystemUpdate(Map<String, String> parameters, int numberOfCities, double referenceLength,
+                                 double pheromoneDecayParameter, double pheromoneQuantity) {
+        this.pheromoneDecayParameter = pheromoneDecayParameter;
+        this.pheromoneQuantity = pheromoneQuantity;
+        exploitationProbability = Double.parseDouble(parameters.getOrDefault("q0", "0.9"));
+        localDecayParameter = Double.parseDouble(parameters.getOrDefault("xi", "0.1"));
+        initialLevel = pheromoneQuantity / (Math.max(numberOfCities, 1) * referenceLength);
+    }
+
+    public double getInitialLevel() {
+        return initialLevel;
+    }
+
+    @Override
+    public void initialize(double[] pheromoneLevel) {
+        Arrays.fill(pheromoneLevel, initialLevel);
+    }
+
+    @Override
+    public boolean localUpdate(double[] pheromoneLevel, List<Integer> path) {
+        for (int edgeIndex : path) {
+            pheromoneLevel[edgeIndex] = (1 - localDecayParameter) * pheromoneLevel[edgeIndex] +
+                    localDecayParameter * initialLevel;
+        }
+        return !path.isEmpty();
+    }
+
+    @Override
+    public double getExploitationProbability() {
+        return exploitationProbability;
+    }
+
+    @Override
+    public void restore(int iteration, List<Integer> bestPath, double bestLength) {
+        if (bestPath.isEmpty()) return;
+        this.bestPath = new ArrayList<>(bestPath);
+        this.bestLength = bestLength;
+    }
+
+    @Override
+    public void globalUpdate(double[] pheromoneLevel, List<List<Integer>> antPaths, List<Double> tourLengths) {
+        int iterationBest = PheromoneUpdateStrategy.bestAnt(antPaths, tourLengths);
+        if (iterationBest != -1 && tourLengths.get(iterationBest) < bestLength) {
+            bestLength = tourLengths.get(iterationBest);
+            bestPath = new ArrayList<>(antPaths.get(iterationBest));
+        }
+        double deltaPheromone = pheromoneQuantity / bestLength;
+        for (int edgeIndex : bestPath) {
+            pheromoneLevel[edgeIndex] = (1 - pheromoneDecayParameter) * pheromoneLevel[edgeIndex] +
+                    pheromoneDecayParameter * deltaPheromone;
+        }
+    }
+
+}
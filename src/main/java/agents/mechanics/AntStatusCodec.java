@@ -0,0 +1,261 @@
+package agents.mechanics;
+
+import jade.lang.acl.ACLMessage;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.List;
+
+/**
+ * Encoding of the content of the UPDATE_NEIGHBOR_STATUS messages.
+ * The binary form (sent as a byte sequence) is:
+ * - 1 byte: the status (0 - not finished, 1 - finished);
+ * and, only for the finished status:
+ * - 8 bytes: the tour length, as the raw bits of a double (big-endian);
+ * - a varint: the number of edges in the path;
+ * - for every edge, a varint: its id (consecutive edges of a tour don't have close ids, so a delta wouldn't
+ * be smaller than the id itself; a varint still takes at most 3 bytes up to 2^21 edges);
+ * - optionally, the tours received from other colonies that the ant forwards to its colony: a varint count,
+ * then for every tour its length and its path, in the same form.
+ * The text form ("0", or "1 length edge1 edge2 ...", followed by " ; length edge1 edge2 ..." for every
+ * forwarded tour) is still accepted when decoding.
+ */
+public class AntStatusCodec {
+
+    /**
+     * The decoded content of a status message.
+     */
+    public static class AntStatus {
+        private final boolean finished;
+        private final double tourLength;
+        private final List<Integer> path;
+        private final List<AntStatus> immigrants;
+
+        public AntStatus(boolean finished, double tourLength, List<Integer> path) {
+            this(finished, tourLength, path, Collections.emptyList());
+        }
+
+        public AntStatus(boolean finished, double tourLength, List<Integer> path, List<AntStatus> immigrants) {
+            this.finished = finished;
+            this.tourLength = tourLength;
+            this.path = path;
+            this.immigrants = immigrants;
+        }
+
+        public boolean isFinished() {
+            return finished;
+        }
+
+        public double getTourLength() {
+            return tourLength;
+        }
+
+        public List<Integer> getPath() {
+            return path;
+        }
+
+        /**
+         * @return the tours of other colonies forwarded with this status (see AntAgent.MigrationServer).
+         */
+        public List<AntStatus> getImmigrants() {
+            return immigrants;
+        }
+    }
+
+    /**
+     * @param finished the status of the ant.
+     * @param tourLength the length of the tour (only sent if finished is true).
+     * @param path the edge ids of the tour (only sent if finished is true).
+     * @return the binary form of the status.
+     */
+    public static byte[] encode(boolean finished, double tourLength, List<Integer> path) {
+        return encode(finished, tourLength, path, Collections.emptyList());
+    }
+
+    /**
+     * @param immigrants the tours of other colonies forwarded with the status (only sent if finished is true).
+     * @return the binary form of the status.
+     */
+    public static byte[] encode(boolean finished, double tourLength, List<Integer> path,
+                                List<AntStatus> immigrants) {
+        if (!finished) return new byte[]{0};
+        // 1 + 8 bytes, and at most 5 bytes for every varint:
+        int size = 1 + 8 + 5 * (path.size() + 2);
+        for (AntStatus immigrant : immigrants) size += 8 + 5 * (immigrant.getPath().size() + 1);
+        byte[] buffer = new byte[size];
+        buffer[0] = 1;
+        int position = writeTour(buffer, 1, tourLength, path);
+        if (!immigrants.isEmpty()) {
+            position = writeVarint(buffer, position, immigrants.size());
+            for (AntStatus immigrant : immigrants) {
+                position = writeTour(buffer, position, immigrant.getTourLength(), immigrant.getPath());
+            }
+        }
+        return Arrays.copyOf(buffer, position);
+    }
+
+    /**
+     * @param content the binary form of a status.
+     * @return the decoded status.
+     */
+    public static AntStatus decode(byte[] content) {
+        if (content[0] == 0) return new AntStatus(false, 0.0, Collections.emptyList());
+        int[] position = new int[]{1};
+        double tourLength = readDouble(content, 1);
+        List<Integer> path = readTour(content, position);
+        List<AntStatus> immigrants = new ArrayList<>();
+        if (position[0] < content.length) {
+            int numberOfImmigrants = readVarint(content, position);
+            for (int immigrantIndex = 0; immigrantIndex < numberOfImmigrants; immigrantIndex++) {
+                double immigrantLength = readDouble(content, position[0]);
+                immigrants.add(new AntStatus(true, immigrantLength, readTour(content, position)));
+            }
+        }
+        return new AntStatus(true, tourLength, path, immigrants);
+    }
+
+    /**
+     * @return the text form of the status: "0", or "1 length edge1 edge2 ...".
+     */
+    public static String encodeText(boolean finished, double tourLength, List<Integer> path) {
+        return encodeText(finished, tourLength, path, Collections.emptyList());
+    }
+
+    /**
+     * @return the text form of the status: "0", or "1 length edge1 edge2 ..." followed by
+     * " ; length edge1 edge2 ..." for every forwarded tour.
+     */
+    public static String encodeText(boolean finished, double tourLength, List<Integer> path,
+                                    List<AntStatus> immigrants) {
+        if (!finished) return "0";
+        StringBuilder stringBuilder = new StringBuilder("1 ").append(tourLength);
+        for (int edgeIndex : path) stringBuilder.append(' ').append(edgeIndex);
+        for (AntStatus immigrant : immigrants) {
+            stringBuilder.append(" ; ").append(immigrant.getTourLength());
+            for (int edgeIndex : immigrant.getPath()) stringBuilder.append(' ').append(edgeIndex);
+        }
+        return stringBuilder.toString();
+    }
+
+    /**
+     * @param content the text form of a status.
+     * @return the decoded status.
+     */
+    public static AntStatus decodeText(String content) {
+        String[] tours = content.trim().split(" ; ");
+        String[] contentValues = tours[0].split(" ");
+        if (Integer.parseInt(contentValues[0]) != 1) return new AntStatus(false, 0.0, Collections.emptyList());
+        List<AntStatus> immigrants = new ArrayList<>(tours.length - 1);
+        for (int tourIndex = 1; tourIndex < tours.length; tourIndex++) {
+            String[] immigrantValues = tours[tourIndex].split(" ");
+            immigrants.add(new AntStatus(true, Double.parseDouble(immigrantValues[0]),
+                    parseEdges(immigrantValues, 1)));
+        }
+        return new AntStatus(true, Double.parseDouble(contentValues[1]), parseEdges(contentValues, 2),
+                immigrants);
+    }
+
+    private static List<Integer> parseEdges(String[] values, int firstIndex) {
+        List<Integer> path = new ArrayList<>(values.length - firstIndex);
+        for (int valueIndex = firstIndex; valueIndex < values.length; valueIndex++) {
+            path.add(Integer.parseInt(values[valueIndex]));
+        }
+        return path;
+    }
+
+    /**
+     * Set the content of a status message.
+     * @param message the message.
+     * @param binary true for the binary form, false for the text form.
+     */
+    public static void write(ACLMessage message, boolean binary, boolean finished, double tourLength,
+                             List<Integer> path) {
+        write(message, binary, finished, tourLength, path, Collections.emptyList());
+    }
+
+    /**
+     * Set the content of a status message, with the tours of other colonies forwarded by the ant.
+     * @param message the message.
+     * @param binary true for the binary form, false for the text form.
+     */
+    public static void write(ACLMessage message, boolean binary, boolean finished, double tourLength,
+                             List<Integer> path, List<AntStatus> immigrants) {
+        if (binary) message.setByteSequenceContent(encode(finished, tourLength, path, immigrants));
+        else message.setContent(encodeText(finished, tourLength, path, immigrants));
+    }
+
+    /**
+     * Read the content of a status message, in either form.
+     * @param message the message.
+     * @return the decoded status.
+     */
+    public static AntStatus read(ACLMessage message) {
+        if (message.hasByteSequenceContent()) return decode(message.getByteSequenceContent());
+        return decodeText(message.getContent());
+    }
+
+    /**
+     * Write the length of a tour (8 bytes), the number of its edges and their ids (varints).
+     * @return the position after the tour.
+     */
+    private static int writeTour(byte[] buffer, int position, double tourLength, List<Integer> path) {
+        writeDouble(buffer, position, tourLength);
+        position = writeVarint(buffer, position + 8, path.size());
+        for (int edgeIndex : path) {
+            position = writeVarint(buffer, position, edgeIndex);
+        }
+        return position;
+    }
+
+    /**
+     * Read the edge ids of a tour written by writeTour (the length is read by the caller).
+     * @param position the position of the tour; it is moved after the tour.
+     */
+    private static List<Integer> readTour(byte[] content, int[] position) {
+        position[0] += 8;
+        int numberOfEdges = readVarint(content, position);
+        List<Integer> path = new ArrayList<>(numberOfEdges);
+        for (int edgeIndex = 0; edgeIndex < numberOfEdges; edgeIndex++) {
+            path.add(readVarint(content, position));
+        }
+        return path;
+    }
+
+    static void writeDouble(byte[] buffer, int position, double value) {
+        long bits = Double.doubleToRawLongBits(value);
+        for (int byteIndex = 0; byteIndex < 8; byteIndex++) {
+            buffer[position + byteIndex] = (byte) (bits >>> (56 - 8 * byteIndex));
+        }
+    }
+
+    static double readDouble(byte[] buffer, int position) {
+        long bits = 0;
+        for (int byteIndex = 0; byteIndex < 8; byteIndex++) {
+            bits = (bits << 8) | (buffer[position + byteIndex] & 0xFF);
+        }
+        return Double.longBitsToDouble(bits);
+    }
+
+    static int writeVarint(byte[] buffer, int position, int value) {
+        while ((value & ~0x7F) != 0) {
+            buffer[position++] = (byte) ((value & 0x7F) | 0x80);
+            value >>>= 7;
+        }
+        buffer[position++] = (byte) value;
+        return position;
+    }
+
+    static int readVarint(byte[] buffer, int[] position) {
+        int result = 0;
+        int shift = 0;
+        byte currentByte;
+        do {
+            currentByte = buffer[position[0]++];
+            result |= (currentByte & 0x7F) << shift;
+            shift += 7;
+        } while ((currentByte & 0x80) != 0);
+        return result;
+    }
+
+}
@@ -0,0 +1,37 @@
+package agents.mechanics;
+
+import java.util.Arrays;
+import java.util.List;
+
+/**
+ * Ant System: every edge evaporates, then every ant deposits pheromoneQuantity / (the length of its tour)
+ * on the edges of its path (see AntAgentMechanics.updatePheromoneLevel).
+ * The pheromone levels start from 0, so the first tours only follow the heuristic.
+ */
+public class AntSystemUpdate implements PheromoneUpdateStrategy {
+
+    private final double pheromoneDecayParameter;
+    private final double pheromoneQuantity;
+
+    public AntSystemUpdate(double pheromoneDecayParameter, double pheromoneQuantity) {
+        this.pheromoneDecayParameter = pheromoneDecayParameter;
+        this.pheromoneQuantity = pheromoneQuantity;
+    }
+
+    @Override
+    public void initialize(double[] pheromoneLevel) {
+        Arrays.fill(pheromoneLevel, 0.0);
+    }
+
+    @Override
+    public void globalUpdate(double[] pheromoneLevel, List<List<Integer>> antPaths, List<Double> tourLengths) {
+        AntAgentMechanics.updatePheromoneLevel(pheromoneLevel, antPaths, tourLengths, pheromoneDecayParameter,
+                pheromoneQuantity);
+    }
+
+    @Override
+    public boolean isDepositOnly() {
+        return true;
+    }
+
+}
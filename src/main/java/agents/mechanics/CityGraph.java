@@ -0,0 +1,251 @@
+package agents.mechanics;
+
+import agents.AntAgent;
+
+import java.util.AbstractList;
+import java.util.Arrays;
+import java.util.List;
+
+/**
+ * Compact, read-only representation of the city grid in compressed-sparse-row form.
+ * The edge identifiers are the indexes of the roads in the cityGrid list they were built
+ * from, so the pheromone arrays and the paths (lists of edge indexes) keep their meaning.
+ * note: the cities are labeled with numbers from 1 to n, like in the environment file.
+ * Subclasses can compute the roads on demand instead of storing them (see CompleteCityGraph).
+ */
+public class CityGraph {
+
+    private final int numberOfCities;
+
+    // edgeSource[e], edgeTarget[e], edgeLength[e] = the endpoints and the length of the e-th road:
+    private final int[] edgeSource;
+    private final int[] edgeTarget;
+    private final double[] edgeLength;
+
+    // the out-edges of city c are outEdges[offsets[c]], ..., outEdges[offsets[c + 1] - 1]:
+    private final int[] offsets;
+    private final int[] outEdges;
+
+    // open-addressing table used for the (source, target) -> edge id lookup:
+    private final long[] lookupKeys;
+    private final int[] lookupEdges;
+    private final int lookupMask;
+
+    /**
+     * Build the graph from a list of roads; the number of cities is the largest city label.
+     * @param cityGrid the list of roads.
+     */
+    public CityGraph(List<AntAgent.CityRoad> cityGrid) {
+        this(largestCityLabel(cityGrid), cityGrid);
+    }
+
+    /**
+     * Build the graph from a list of roads.
+     * @param numberOfCities the number of cities.
+     * @param cityGrid the list of roads; the i-th road will have the edge id i.
+     */
+    public CityGraph(int numberOfCities, List<AntAgent.CityRoad> cityGrid) {
+        this.numberOfCities = numberOfCities;
+        int numberOfEdges = cityGrid.size();
+        edgeSource = new int[numberOfEdges];
+        edgeTarget = new int[numberOfEdges];
+        edgeLength = new double[numberOfEdges];
+        offsets = new int[numberOfCities + 2];
+        for (int edgeIndex = 0; edgeIndex < numberOfEdges; edgeIndex++) {
+            AntAgent.CityRoad road = cityGrid.get(edgeIndex);
+            edgeSource[edgeIndex] = Math.toIntExact(road.getSourceId());
+            edgeTarget[edgeIndex] = Math.toIntExact(road.getTargetId());
+            edgeLength[edgeIndex] = road.getLength();
+            offsets[edgeSource[edgeIndex] + 1]++;
+        }
+        // prefix sums of the out-degrees:
+        for (int city = 1; city < offsets.length; city++) {
+            offsets[city] += offsets[city - 1];
+        }
+        outEdges = new int[numberOfEdges];
+        int[] nextSlot = new int[numberOfCities + 1];
+        for (int city = 0; city <= numberOfCities; city++) nextSlot[city] = offsets[city];
+        for (int edgeIndex = 0; edgeIndex < numberOfEdges; edgeIndex++) {
+            outEdges[nextSlot[edgeSource[edgeIndex]]++] = edgeIndex;
+        }
+
+        int capacity = Integer.highestOneBit(Math.max(2, numberOfEdges * 2 - 1)) << 1;
+        lookupKeys = new long[capacity];
+        lookupEdges = new int[capacity];
+        lookupMask = capacity - 1;
+        Arrays.fill(lookupEdges, -1);
+        for (int edgeIndex = 0; edgeIndex < numberOfEdges; edgeIndex++) {
+            long key = key(edgeSource[edgeIndex], edgeTarget[edgeIndex]);
+            int slot = hash(key);
+            while (lookupEdges[slot] != -1 && lookupKeys[slot] != key) slot = (slot + 1) & lookupMask;
+            // keep the first road if the same connection appears twice:
+            if (lookupEdges[slot] == -1) {
+                lookupKeys[slot] = key;
+                lookupEdges[slot] = edgeIndex;
+            }
+        }
+    }
+
+    /**
+     * Constructor for the subclasses that don't store the roads; they have to override
+     * all the accessors of the roads.
+     * @param numberOfCities the number of cities.
+     */
+    protected CityGraph(int numberOfCities) {
+        this.numberOfCities = numberOfCities;
+        edgeSource = null;
+        edgeTarget = null;
+        edgeLength = null;
+        offsets = null;
+        outEdges = null;
+        lookupKeys = null;
+        lookupEdges = null;
+        lookupMask = 0;
+    }
+
+    private static int largestCityLabel(List<AntAgent.CityRoad> cityGrid) {
+        long result = 0;
+        for (AntAgent.CityRoad road : cityGrid) {
+            result = Math.max(result, Math.max(road.getSourceId(), road.getTargetId()));
+        }
+        return Math.toIntExact(result);
+    }
+
+    private long key(long sourceCity, long targetCity) {
+        return sourceCity * (numberOfCities + 1) + targetCity;
+    }
+
+    private int hash(long key) {
+        long mixed = key * 0x9E3779B97F4A7C15L;
+        return (int) (mixed ^ (mixed >>> 32)) & lookupMask;
+    }
+
+    public int getNumberOfCities() {
+        return numberOfCities;
+    }
+
+    public int getNumberOfEdges() {
+        return edgeSource.length;
+    }
+
+    public int getSource(int edgeIndex) {
+        return edgeSource[edgeIndex];
+    }
+
+    public int getTarget(int edgeIndex) {
+        return edgeTarget[edgeIndex];
+    }
+
+    public double getLength(int edgeIndex) {
+        return edgeLength[edgeIndex];
+    }
+
+    /**
+     * @param city the city label.
+     * @return the position of the first out-edge of the given city in the adjacency array.
+     */
+    public int firstSlot(long city) {
+        return offsets[(int) city];
+    }
+
+    /**
+     * @param city the city label.
+     * @return the position right after the last out-edge of the given city in the adjacency array.
+     */
+    public int endSlot(long city) {
+        return offsets[(int) city + 1];
+    }
+
+    /**
+     * @param slot a position in the adjacency array, between firstSlot(city) and endSlot(city).
+     * @return the id of the edge stored at that position.
+     */
+    public int edgeAt(int slot) {
+        return outEdges[slot];
+    }
+
+    public int degree(long city) {
+        return endSlot(city) - firstSlot(city);
+    }
+
+    /**
+     * Find the road that connects two cities.
+     * @param sourceCity the city where the road starts.
+     * @param targetCity the city where the road ends.
+     * @return the id of the road, or -1 if the two cities are not connected.
+     */
+    public int getEdgeId(long sourceCity, long targetCity) {
+        if (sourceCity < 1 || sourceCity > numberOfCities || targetCity < 1 || targetCity > numberOfCities)
+            return -1;
+        long key = key(sourceCity, targetCity);
+        int slot = hash(key);
+        while (lookupEdges[slot] != -1) {
+            if (lookupKeys[slot] == key) return lookupEdges[slot];
+            slot = (slot + 1) & lookupMask;
+        }
+        return -1;
+    }
+
+    /**
+     * @return true if every road has a reverse road of the same length.
+     */
+    public boolean isSymmetric() {
+        for (int edgeIndex = 0; edgeIndex < getNumberOfEdges(); edgeIndex++) {
+            int reverseEdge = getEdgeId(getTarget(edgeIndex), getSource(edgeIndex));
+            if (reverseEdge == -1 || getLength(reverseEdge) != getLength(edgeIndex)) return false;
+        }
+        return true;
+    }
+
+    /**
+     * Build the candidate lists of the cities.
+     * @param limit the largest number of out-edges kept for every city.
+     * @return result[c] = the ids of the (at most limit) shortest out-edges of the city c,
+     *          in ascending order of their length.
+     */
+    public int[][] nearestNeighbourEdges(int limit) {
+        int[][] result = new int[numberOfCities + 1][];
+        result[0] = new int[0];
+        for (int city = 1; city <= numberOfCities; city++) {
+            Integer[] cityEdges = new Integer[degree(city)];
+            for (int slot = firstSlot(city); slot < endSlot(city); slot++) {
+                cityEdges[slot - firstSlot(city)] = edgeAt(slot);
+            }
+            Arrays.sort(cityEdges, (first, second) -> Double.compare(getLength(first), getLength(second)));
+            result[city] = new int[Math.min(limit, cityEdges.length)];
+            for (int index = 0; index < result[city].length; index++) result[city][index] = cityEdges[index];
+        }
+        return result;
+    }
+
+    /**
+     * @param path a list of edge ids.
+     * @return the sum of the lengths of the given edges.
+     */
+    public double pathLength(List<Integer> path) {
+        double result = 0.0;
+        for (Integer edgeIndex : path) result += getLength(edgeIndex);
+        return result;
+    }
+
+    /**
+     * @return a read-only view of the roads, as a cityGrid list; the roads are created when they are read,
+     *          so the view doesn't use any memory of its own.
+     */
+    public List<AntAgent.CityRoad> asCityGrid() {
+        return new AbstractList<AntAgent.CityRoad>() {
+            @Override
+            public AntAgent.CityRoad get(int edgeIndex) {
+                if (edgeIndex < 0 || edgeIndex >= getNumberOfEdges()) throw new IndexOutOfBoundsException();
+                return new AntAgent.CityRoad((long) getSource(edgeIndex), (long) getTarget(edgeIndex),
+                        getLength(edgeIndex));
+            }
+
+            @Override
+            public int size() {
+                return getNumberOfEdges();
+            }
+        };
+    }
+
+}
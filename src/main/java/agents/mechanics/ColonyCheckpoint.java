@@ -0,0 +1,225 @@
+package agents.mechanics;
+
+import java.io.BufferedInputStream;
+import java.io.BufferedOutputStream;
+import java.io.DataInputStream;
+import java.io.DataOutputStream;
+import java.io.IOException;
+import java.nio.file.AtomicMoveNotSupportedException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.Paths;
+import java.nio.file.StandardCopyOption;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.List;
+
+/**
+ * A snapshot of the state of an ant: its pheromone levels, the best tour it knows, the number of iterations it
+ * has completed and the seed of its random number generator.
+ * The binary form is:
+ * - 4 bytes: the magic number "ACOC", then 4 bytes: the version;
+ * - the number of cities, the iteration, the seed (8 bytes), the best length (8 bytes);
+ * - the best tour: the number of edges, then the edge ids;
+ * - the number of edges, then 1 byte: 1 if the end cities of the edges follow, 0 for a CompleteCityGraph
+ * (whose edge ids only depend on the number of cities);
+ * - the end cities of the edges (two ints per edge), if they are present;
+ * - the pheromone levels (8 bytes per edge).
+ * The file is written to a temporary file that then replaces the previous checkpoint, so a crash while writing
+ * never leaves a truncated checkpoint.
+ */
+public class ColonyCheckpoint {
+
+    private static final int MAGIC = 0x41434f43;
+    private static final int VERSION = 1;
+
+    private final int numberOfCities;
+    private final int iteration;
+    private final long randomSeed;
+    private final List<Integer> bestPath;
+    private final double bestLength;
+    private final double[] pheromoneLevel;
+    // the end cities of the edges, or null for a CompleteCityGraph:
+    private final int[] edgeSources;
+    private final int[] edgeTargets;
+
+    private ColonyCheckpoint(int numberOfCities, int iteration, long randomSeed, List<Integer> bestPath,
+                             double bestLength, double[] pheromoneLevel, int[] edgeSources, int[] edgeTargets) {
+        this.numberOfCities = numberOfCities;
+        this.iteration = iteration;
+        this.randomSeed = randomSeed;
+        this.bestPath = bestPath;
+        this.bestLength = bestLength;
+        this.pheromoneLevel = pheromoneLevel;
+        this.edgeSources = edgeSources;
+        this.edgeTargets = edgeTargets;
+    }
+
+    /**
+     * Take a snapshot; the pheromone levels are copied.
+     * @param cityGraph the graph of the roads.
+     * @param pheromoneLevel the pheromone levels.
+     * @param iteration the number of completed iterations.
+     * @param bestPath the edge ids of the best tour (or null if there is none yet).
+     * @param bestLength the length of the best tour.
+     * @param randomSeed the seed that the random number generator was reset to.
+     * @return the snapshot.
+     */
+    public static ColonyCheckpoint capture(CityGraph cityGraph, double[] pheromoneLevel, int iteration,
+                                           List<Integer> bestPath, double bestLength, long randomSeed) {
+        int[] edgeSources = null;
+        int[] edgeTargets = null;
+        if (!(cityGraph instanceof CompleteCityGraph)) {
+            edgeSources = new int[pheromoneLevel.length];
+            edgeTargets = new int[pheromoneLevel.length];
+            for (int edgeIndex = 0; edgeIndex < pheromoneLevel.length; edgeIndex++) {
+                edgeSources[edgeIndex] = cityGraph.getSource(edgeIndex);
+                edgeTargets[edgeIndex] = cityGraph.getTarget(edgeIndex);
+            }
+        }
+        return new ColonyCheckpoint(cityGraph.getNumberOfCities(), iteration, randomSeed,
+                bestPath == null ? Collections.emptyList() : new ArrayList<>(bestPath), bestLength,
+                pheromoneLevel.clone(), edgeSources, edgeTargets);
+    }
+
+    /**
+     * Write the checkpoint, replacing the file atomically.
+     * @param fileName the name of the checkpoint file.
+     * @throws IOException if the file cannot be written.
+     */
+    public void write(String fileName) throws IOException {
+        Path target = Paths.get(fileName).toAbsolutePath();
+        Path temporaryFile = Files.createTempFile(target.getParent(), target.getFileName().toString(), ".tmp");
+        try {
+            try (DataOutputStream outputStream = new DataOutputStream(new BufferedOutputStream(
+                    Files.newOutputStream(temporaryFile)))) {
+                outputStream.writeInt(MAGIC);
+                outputStream.writeInt(VERSION);
+                outputStream.writeInt(numberOfCities);
+                outputStream.writeInt(iteration);
+                outputStream.writeLong(randomSeed);
+                outputStream.writeDouble(bestLength);
+                outputStream.writeInt(bestPath.size());
+                for (int edgeIndex : bestPath) outputStream.writeInt(edgeIndex);
+                outputStream.writeInt(pheromoneLevel.length);
+                outputStream.writeBoolean(edgeSources != null);
+                if (edgeSources != null) {
+                    for (int edgeIndex = 0; edgeIndex < pheromoneLevel.length; edgeIndex++) {
+                        outputStream.writeInt(edgeSources[edgeIndex]);
+                        outputStream.writeInt(edgeTargets[edgeIndex]);
+                    }
+                }
+                for (double level : pheromoneLevel) outputStream.writeDouble(level);
+            }
+            try {
+                Files.move(temporaryFile, target, StandardCopyOption.ATOMIC_MOVE,
+                        StandardCopyOption.REPLACE_EXISTING);
+            } catch (AtomicMoveNotSupportedException e) {
+                Files.move(temporaryFile, target, StandardCopyOption.REPLACE_EXISTING);
+            }
+        } finally {
+            Files.deleteIfExists(temporaryFile);
+        }
+    }
+
+    /**
+     * @param fileName the name of the checkpoint file.
+     * @return the checkpoint.
+     * @throws IOException if the file cannot be read, or if it is not a checkpoint.
+     */
+    public static ColonyCheckpoint read(String fileName) throws IOException {
+        try (DataInputStream inputStream = new DataInputStream(new BufferedInputStream(
+                Files.newInputStream(Paths.get(fileName))))) {
+            if (inputStream.readInt() != MAGIC) throw new IOException(fileName + " is not a colony checkpoint");
+            int version = inputStream.readInt();
+            if (version != VERSION) throw new IOException("unsupported checkpoint version: " + version);
+            int numberOfCities = inputStream.readInt();
+            int iteration = inputStream.readInt();
+            long randomSeed = inputStream.readLong();
+            double bestLength = inputStream.readDouble();
+            int pathSize = inputStream.readInt();
+            List<Integer> bestPath = new ArrayList<>(pathSize);
+            for (int index = 0; index < pathSize; index++) bestPath.add(inputStream.readInt());
+            int numberOfEdges = inputStream.readInt();
+            int[] edgeSources = null;
+            int[] edgeTargets = null;
+            if (inputStream.readBoolean()) {
+                edgeSources = new int[numberOfEdges];
+                edgeTargets = new int[numberOfEdges];
+                for (int edgeIndex = 0; edgeIndex < numberOfEdges; edgeIndex++) {
+                    edgeSources[edgeIndex] = inputStream.readInt();
+                    edgeTargets[edgeIndex] = inputStream.readInt();
+                }
+            }
+            double[] pheromoneLevel = new double[numberOfEdges];
+            for (int edgeIndex = 0; edgeIndex < numberOfEdges; edgeIndex++) {
+                pheromoneLevel[edgeIndex] = inputStream.readDouble();
+            }
+            return new ColonyCheckpoint(numberOfCities, iteration, randomSeed, bestPath, bestLength,
+                    pheromoneLevel, edgeSources, edgeTargets);
+        }
+    }
+
+    /**
+     * @return true if the checkpoint was taken on the same graph (the same cities, and the same edges with the
+     *          same ids), so that its edge ids can be used as they are.
+     */
+    public boolean matches(CityGraph cityGraph) {
+        if (cityGraph.getNumberOfCities() != numberOfCities ||
+                cityGraph.getNumberOfEdges() != pheromoneLevel.length) return false;
+        if (edgeSources == null) return cityGraph instanceof CompleteCityGraph;
+        if (cityGraph instanceof CompleteCityGraph) return false;
+        for (int edgeIndex = 0; edgeIndex < pheromoneLevel.length; edgeIndex++) {
+            if (cityGraph.getSource(edgeIndex) != edgeSources[edgeIndex] ||
+                    cityGraph.getTarget(edgeIndex) != edgeTargets[edgeIndex]) return false;
+        }
+        return true;
+    }
+
+    /**
+     * Copy the pheromone levels to the edges of a graph: as they are if the graph matches, otherwise by the end
+     * cities of the edges (the edges that don't exist in the graph are skipped, and the new edges keep their
+     * levels).
+     * @param cityGraph the graph of the roads.
+     * @param pheromoneLevel the pheromone levels of the graph.
+     * @return the number of edges whose level was copied.
+     */
+    public int copyPheromoneLevels(CityGraph cityGraph, double[] pheromoneLevel) {
+        if (matches(cityGraph)) {
+            System.arraycopy(this.pheromoneLevel, 0, pheromoneLevel, 0, pheromoneLevel.length);
+            return pheromoneLevel.length;
+        }
+        // a complete graph with a different number of cities: its edge ids can't be mapped:
+        if (edgeSources == null) return 0;
+        int copiedEdges = 0;
+        for (int edgeIndex = 0; edgeIndex < this.pheromoneLevel.length; edgeIndex++) {
+            int newEdgeIndex = cityGraph.getEdgeId(edgeSources[edgeIndex], edgeTargets[edgeIndex]);
+            if (newEdgeIndex != -1) {
+                pheromoneLevel[newEdgeIndex] = this.pheromoneLevel[edgeIndex];
+                copiedEdges++;
+            }
+        }
+        return copiedEdges;
+    }
+
+    public int getNumberOfCities() {
+        return numberOfCities;
+    }
+
+    public int getIteration() {
+        return iteration;
+    }
+
+    public long getRandomSeed() {
+        return randomSeed;
+    }
+
+    public List<Integer> getBestPath() {
+        return bestPath;
+    }
+
+    public double getBestLength() {
+        return bestLength;
+    }
+
+}
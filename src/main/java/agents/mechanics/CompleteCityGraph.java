@@ -0,0 +1,246 @@
+package agents.mechanics;
+
+import java.util.stream.IntStream;
+
+/**
+ * A complete graph that only stores the cities (their coordinates, or an explicit distance matrix)
+ * and computes the length of a road when it is read, so its memory is O(n) for the coordinate-based
+ * instances instead of O(n^2) CityRoad objects.
+ * Every ordered pair of distinct cities is connected, and the edge ids are laid out city by city:
+ * the out-edges of the city c are the ids (c - 1) * (n - 1), ..., c * (n - 1) - 1, in ascending order
+ * of their target, so the adjacency slot of an edge is its id.
+ * The lengths follow the TSPLIB conventions (rounded to integers, see TsplibReader).
+ */
+public class CompleteCityGraph extends CityGraph {
+
+    /**
+     * The TSPLIB distance functions.
+     */
+    public enum DistanceType {
+        // rounded euclidean distance:
+        EUC_2D,
+        // euclidean distance, rounded up:
+        CEIL_2D,
+        // pseudo-euclidean distance (the att48 and att532 instances):
+        ATT,
+        // geographical distance, in kilometers; the coordinates are DDD.MM latitudes and longitudes:
+        GEO,
+        // the distances are given in a matrix:
+        EXPLICIT
+    }
+
+    // the radius of the earth and the value of pi used by TSPLIB for the GEO distance:
+    private static final double EARTH_RADIUS = 6378.388;
+    private static final double TSPLIB_PI = 3.141592;
+
+    private final DistanceType distanceType;
+    private final int numberOfEdges;
+    // the coordinates of the city c are (x[c], y[c]); for GEO, they are the latitude and the longitude in radians:
+    private final double[] x;
+    private final double[] y;
+    // the EXPLICIT distance from the city i to the city j is distances[(i - 1) * n + (j - 1)]:
+    private final double[] distances;
+
+    private CompleteCityGraph(int numberOfCities, DistanceType distanceType, double[] x, double[] y,
+                              double[] distances) {
+        super(numberOfCities);
+        this.distanceType = distanceType;
+        numberOfEdges = Math.multiplyExact(numberOfCities, Math.max(numberOfCities - 1, 0));
+        this.x = x;
+        this.y = y;
+        this.distances = distances;
+    }
+
+    /**
+     * @param distanceType the distance function; it can't be EXPLICIT.
+     * @param xCoordinates xCoordinates[c - 1] = the first coordinate of the city c.
+     * @param yCoordinates yCoordinates[c - 1] = the second coordinate of the city c.
+     * @return the complete graph of the given cities.
+     */
+    public static CompleteCityGraph fromCoordinates(DistanceType distanceType, double[] xCoordinates,
+                                                    double[] yCoordinates) {
+        if (distanceType == DistanceType.EXPLICIT || xCoordinates.length != yCoordinates.length)
+            throw new IllegalArgumentException("invalid coordinates for the " + distanceType + " distance");
+        int numberOfCities = xCoordinates.length;
+        double[] x = new double[numberOfCities + 1];
+        double[] y = new double[numberOfCities + 1];
+        for (int city = 1; city <= numberOfCities; city++) {
+            if (distanceType == DistanceType.GEO) {
+                x[city] = geoRadians(xCoordinates[city - 1]);
+                y[city] = geoRadians(yCoordinates[city - 1]);
+            } else {
+                x[city] = xCoordinates[city - 1];
+                y[city] = yCoordinates[city - 1];
+            }
+        }
+        return new CompleteCityGraph(numberOfCities, distanceType, x, y, null);
+    }
+
+    /**
+     * @param numberOfCities the number of cities.
+     * @param distances distances[(i - 1) * n + (j - 1)] = the length of the road from the city i to the city j;
+     *                  the matrix doesn't have to be symmetric, and its diagonal is ignored.
+     * @return the complete graph of the given cities.
+     */
+    public static CompleteCityGraph fromMatrix(int numberOfCities, double[] distances) {
+        if (distances.length != (long) numberOfCities * numberOfCities)
+            throw new IllegalArgumentException("the distance matrix must have " + numberOfCities + "^2 entries");
+        return new CompleteCityGraph(numberOfCities, DistanceType.EXPLICIT, null, null, distances);
+    }
+
+    private static double geoRadians(double coordinate) {
+        int degrees = (int) coordinate;
+        double minutes = coordinate - degrees;
+        return TSPLIB_PI * (degrees + 5.0 * minutes / 3.0) / 180.0;
+    }
+
+    public DistanceType getDistanceType() {
+        return distanceType;
+    }
+
+    /**
+     * @return the length of the road from the city sourceCity to the city targetCity.
+     */
+    public double distance(int sourceCity, int targetCity) {
+        switch (distanceType) {
+            case EUC_2D:
+                return Math.floor(Math.hypot(x[sourceCity] - x[targetCity], y[sourceCity] - y[targetCity]) + 0.5);
+            case CEIL_2D:
+                return Math.ceil(Math.hypot(x[sourceCity] - x[targetCity], y[sourceCity] - y[targetCity]));
+            case ATT: {
+                double dx = x[sourceCity] - x[targetCity];
+                double dy = y[sourceCity] - y[targetCity];
+                double distance = Math.sqrt((dx * dx + dy * dy) / 10.0);
+                double rounded = Math.floor(distance + 0.5);
+                return rounded < distance ? rounded + 1 : rounded;
+            }
+            case GEO: {
+                double q1 = Math.cos(y[sourceCity] - y[targetCity]);
+                double q2 = Math.cos(x[sourceCity] - x[targetCity]);
+                double q3 = Math.cos(x[sourceCity] + x[targetCity]);
+                return (int) (EARTH_RADIUS * Math.acos(0.5 * ((1.0 + q1) * q2 - (1.0 - q1) * q3)) + 1.0);
+            }
+            default:
+                return distances[(sourceCity - 1) * getNumberOfCities() + targetCity - 1];
+        }
+    }
+
+    @Override
+    public int getNumberOfEdges() {
+        return numberOfEdges;
+    }
+
+    @Override
+    public int getSource(int edgeIndex) {
+        return edgeIndex / (getNumberOfCities() - 1) + 1;
+    }
+
+    @Override
+    public int getTarget(int edgeIndex) {
+        int rank = edgeIndex % (getNumberOfCities() - 1) + 1;
+        // the targets skip the source city:
+        return rank < getSource(edgeIndex) ? rank : rank + 1;
+    }
+
+    @Override
+    public double getLength(int edgeIndex) {
+        return distance(getSource(edgeIndex), getTarget(edgeIndex));
+    }
+
+    @Override
+    public int firstSlot(long city) {
+        return (int) (city - 1) * (getNumberOfCities() - 1);
+    }
+
+    @Override
+    public int endSlot(long city) {
+        return (int) city * (getNumberOfCities() - 1);
+    }
+
+    @Override
+    public int edgeAt(int slot) {
+        return slot;
+    }
+
+    @Override
+    public int getEdgeId(long sourceCity, long targetCity) {
+        int numberOfCities = getNumberOfCities();
+        if (sourceCity < 1 || sourceCity > numberOfCities || targetCity < 1 || targetCity > numberOfCities ||
+                sourceCity == targetCity) return -1;
+        return firstSlot(sourceCity) + (int) (targetCity < sourceCity ? targetCity - 1 : targetCity - 2);
+    }
+
+    @Override
+    public boolean isSymmetric() {
+        // only the explicit matrices can be asymmetric:
+        return distanceType != DistanceType.EXPLICIT || super.isSymmetric();
+    }
+
+    /**
+     * Build the candidate lists of the cities without materializing the roads:
+     * the nearest neighbours of every city are selected with a bounded max-heap, in O(n log limit),
+     * and the cities are processed in parallel.
+     */
+    @Override
+    public int[][] nearestNeighbourEdges(int limit) {
+        int numberOfCities = getNumberOfCities();
+        int[][] result = new int[numberOfCities + 1][];
+        result[0] = new int[0];
+        int size = Math.min(limit, Math.max(numberOfCities - 1, 0));
+        IntStream.rangeClosed(1, numberOfCities).parallel().forEach(city -> {
+            int[] heapEdges = new int[size];
+            double[] heapLengths = new double[size];
+            int heapSize = 0;
+            for (int edgeIndex = firstSlot(city); edgeIndex < endSlot(city); edgeIndex++) {
+                double length = getLength(edgeIndex);
+                if (heapSize < size) {
+                    siftUp(heapEdges, heapLengths, heapSize++, edgeIndex, length);
+                } else if (size > 0 && length < heapLengths[0]) {
+                    siftDown(heapEdges, heapLengths, heapSize, edgeIndex, length);
+                }
+            }
+            // pop the longest road until the heap is empty:
+            while (heapSize > 0) {
+                int longestEdge = heapEdges[0];
+                double longestLength = heapLengths[0];
+                heapSize--;
+                siftDown(heapEdges, heapLengths, heapSize, heapEdges[heapSize], heapLengths[heapSize]);
+                heapEdges[heapSize] = longestEdge;
+                heapLengths[heapSize] = longestLength;
+            }
+            result[city] = heapEdges;
+        });
+        return result;
+    }
+
+    // insert (edgeIndex, length) at the given position of a max-heap, and move it up:
+    private static void siftUp(int[] heapEdges, double[] heapLengths, int position, int edgeIndex, double length) {
+        while (position > 0) {
+            int parent = (position - 1) / 2;
+            if (heapLengths[parent] >= length) break;
+            heapEdges[position] = heapEdges[parent];
+            heapLengths[position] = heapLengths[parent];
+            position = parent;
+        }
+        heapEdges[position] = edgeIndex;
+        heapLengths[position] = length;
+    }
+
+    // replace the root of a max-heap with (edgeIndex, length), and move it down:
+    private static void siftDown(int[] heapEdges, double[] heapLengths, int heapSize, int edgeIndex, double length) {
+        int position = 0;
+        while (2 * position + 1 < heapSize) {
+            int child = 2 * position + 1;
+            if (child + 1 < heapSize && heapLengths[child + 1] > heapLengths[child]) child++;
+            if (heapLengths[child] <= length) break;
+            heapEdges[position] = heapEdges[child];
+            heapLengths[position] = heapLengths[child];
+            position = child;
+        }
+        if (heapSize > 0) {
+            heapEdges[position] = edgeIndex;
+            heapLengths[position] = length;
+        }
+    }
+
+}
@@ -0,0 +1,113 @@
+package agents.mechanics;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+import java.util.Map;
+
+/**
+ * MAX-MIN Ant System (Stutzle and Hoos):
+ * - after an iteration, every edge evaporates and only one ant deposits: the iteration-best ant, or the
+ * best-so-far ant every globalbest-th iteration;
+ * - the pheromone levels are kept between tauMin and tauMax = pheromoneQuantity / (decay * best length);
+ * tauMin = tauMax * (1 - pbest^(1/n)) / ((n / 2 - 1) * pbest^(1/n));
+ * - the levels start from tauMax (computed with the reference length), and they are reset to tauMax
+ * when the best tour hasn't improved for restart iterations (stagnation).
+ * The optional parameters (in the environment header) are pbest (0.05), globalbest (0: never) and restart (100).
+ */
+public class MaxMinAntSystemUpdate implements PheromoneUpdateStrategy {
+
+    private final double pheromoneDecayParameter;
+    private final double pheromoneQuantity;
+    private final int numberOfCities;
+    private final double pBest;
+    private final int globalBestFrequency;
+    private final int restartIterations;
+
+    private double tauMax;
+    private double tauMin;
+    private List<Integer> bestPath = new ArrayList<>();
+    private double bestLength = Double.POSITIVE_INFINITY;
+    private int iteration = 0;
+    private int iterationsWithoutImprovement = 0;
+
+    public MaxMinAntSystemUpdate(Map<String, String> parameters, int numberOfCities, double referenceLength,
+                                 double pheromoneDecayParameter, double pheromoneQuantity) {
+        this.pheromoneDecayParameter = pheromoneDecayParameter;
+        this.pheromoneQuantity = pheromoneQuantity;
+        this.numberOfCities = numberOfCities;
+        pBest = Double.parseDouble(parameters.getOrDefault("pbest", "0.05"));
+        globalBestFrequency = Integer.parseInt(parameters.getOrDefault("globalbest", "0"));
+        restartIterations = Integer.parseInt(parameters.getOrDefault("restart", "100"));
+        updateLimits(referenceLength);
+    }
+
+    private void updateLimits(double referenceLength) {
+        tauMax = pheromoneQuantity / (pheromoneDecayParameter * referenceLength);
+        double pDecision = Math.pow(pBest, 1.0 / numberOfCities);
+        double averageChoices = Math.max(numberOfCities / 2.0 - 1, 1.0);
+        tauMin = Math.min(tauMax * (1 - pDecision) / (averageChoices * pDecision), tauMax);
+    }
+
+    public double getTauMax() {
+        return tauMax;
+    }
+
+    public double getTauMin() {
+        return tauMin;
+    }
+
+    @Override
+    public void initialize(double[] pheromoneLevel) {
+        Arrays.fill(pheromoneLevel, tauMax);
+    }
+
+    /**
+     * The best tour and the iteration of the checkpoint; the limits are computed from the best length, like
+     * after the iteration that found it. The number of iterations without improvement isn't in the checkpoint,
+     * so the stagnation count starts again from 0.
+     */
+    @Override
+    public void restore(int iteration, List<Integer> bestPath, double bestLength) {
+        this.iteration = iteration;
+        iterationsWithoutImprovement = 0;
+        if (bestPath.isEmpty()) return;
+        this.bestPath = new ArrayList<>(bestPath);
+        this.bestLength = bestLength;
+        updateLimits(bestLength);
+    }
+
+    @Override
+    public void globalUpdate(double[] pheromoneLevel, List<List<Integer>> antPaths, List<Double> tourLengths) {
+        iteration++;
+        int iterationBest = PheromoneUpdateStrategy.bestAnt(antPaths, tourLengths);
+        if (iterationBest != -1 && tourLengths.get(iterationBest) < bestLength) {
+            bestLength = tourLengths.get(iterationBest);
+            bestPath = new ArrayList<>(antPaths.get(iterationBest));
+            iterationsWithoutImprovement = 0;
+            updateLimits(bestLength);
+        } else {
+            iterationsWithoutImprovement++;
+        }
+        if (restartIterations > 0 && iterationsWithoutImprovement >= restartIterations) {
+            // stagnation: forget the pheromone trails, but keep the best tour:
+            iterationsWithoutImprovement = 0;
+            initialize(pheromoneLevel);
+            return;
+        }
+        AntAgentMechanics.evaporate(pheromoneLevel, pheromoneDecayParameter);
+        // deposit:
+        boolean useGlobalBest = iterationBest == -1 ||
+                (globalBestFrequency > 0 && iteration % globalBestFrequency == 0);
+        List<Integer> depositPath = useGlobalBest ? bestPath : antPaths.get(iterationBest);
+        double depositLength = useGlobalBest ? bestLength : tourLengths.get(iterationBest);
+        for (int edgeIndex : depositPath) {
+            pheromoneLevel[edgeIndex] += pheromoneQuantity / depositLength;
+        }
+        // keep the levels between tauMin and tauMax:
+        for (int edgeIndex = 0; edgeIndex < pheromoneLevel.length; edgeIndex++) {
+            pheromoneLevel[edgeIndex] = Math.max(tauMin, Math.min(tauMax, pheromoneLevel[edgeIndex]));
+        }
+    }
+
+}
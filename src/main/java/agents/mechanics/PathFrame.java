@@ -0,0 +1,86 @@
+package agents.mechanics;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+
+/**
+ * A frame of the depth-first tour construction (the edge stack of the ants, and the exhaustive search):
+ * a path of edges, stored as its last edge and a pointer to the frame of the path without that edge, so all the
+ * frames pushed from the same path share it instead of copying it (a frame is O(1), not O(n)).
+ * Every frame also keeps the number of edges and the length of its path, computed incrementally, and the set
+ * of the visited cities (a single long word for at most 64 cities, see VisitedCitySet).
+ * The frames are immutable; the edge ids of a path are only copied into a list when the path is needed
+ * (see toPath), e.g. when the tour is complete.
+ */
+public final class PathFrame {
+
+    private final PathFrame parent;
+    private final int edgeIndex;
+    private final int depth;
+    private final double length;
+    private final VisitedCitySet visitedCities;
+
+    private PathFrame(PathFrame parent, int edgeIndex, int depth, double length, VisitedCitySet visitedCities) {
+        this.parent = parent;
+        this.edgeIndex = edgeIndex;
+        this.depth = depth;
+        this.length = length;
+        this.visitedCities = visitedCities;
+    }
+
+    /**
+     * @param edgeIndex the first edge of the path.
+     * @param edgeLength the length of the edge.
+     * @param visitedCities the cities visited after the edge.
+     * @return the frame of a path with a single edge.
+     */
+    public static PathFrame start(int edgeIndex, double edgeLength, VisitedCitySet visitedCities) {
+        return new PathFrame(null, edgeIndex, 1, edgeLength, visitedCities);
+    }
+
+    /**
+     * @param edgeIndex the edge added at the end of the path.
+     * @param edgeLength the length of the edge.
+     * @param visitedCities the cities visited after the edge.
+     * @return the frame of this path followed by the edge; this frame is not modified.
+     */
+    public PathFrame extend(int edgeIndex, double edgeLength, VisitedCitySet visitedCities) {
+        return new PathFrame(this, edgeIndex, depth + 1, length + edgeLength, visitedCities);
+    }
+
+    /**
+     * @return the last edge of the path.
+     */
+    public int getEdgeIndex() {
+        return edgeIndex;
+    }
+
+    /**
+     * @return the number of edges of the path.
+     */
+    public int getDepth() {
+        return depth;
+    }
+
+    /**
+     * @return the length of the path.
+     */
+    public double getLength() {
+        return length;
+    }
+
+    public VisitedCitySet getVisitedCities() {
+        return visitedCities;
+    }
+
+    /**
+     * @return a new list of the edge ids of the path, from the first one.
+     */
+    public List<Integer> toPath() {
+        Integer[] edges = new Integer[depth];
+        for (PathFrame frame = this; frame != null; frame = frame.parent) edges[frame.depth - 1] = frame.edgeIndex;
+        return new ArrayList<>(Arrays.asList(edges));
+    }
+
+}
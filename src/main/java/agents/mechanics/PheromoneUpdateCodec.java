@@ -0,0 +1,119 @@
+package agents.mechanics;
+
+import java.util.Arrays;
+
+/**
+ * Encoding of the pheromone updates sent by the pheromone coordinator to the ants.
+ * The binary form is:
+ * - 1 byte: the kind of the update (0 - deposits, 1 - full pheromone vector);
+ * - a varint: the round (iteration) that produced the update;
+ * - a varint: the number of entries;
+ * - deposits: for every entry, a varint (the difference between its edge id and the previous one, the
+ * edge ids being in ascending order) and 8 bytes (the amount of pheromone, as the raw bits of a double);
+ * - full vector: 8 bytes for every edge.
+ */
+public class PheromoneUpdateCodec {
+
+    private static final byte DEPOSITS = 0;
+    private static final byte FULL = 1;
+
+    /**
+     * The decoded content of a pheromone update.
+     */
+    public static class PheromoneUpdate {
+        private final int round;
+        private final boolean full;
+        // the edges and the amounts of the deposits, or null for a full vector:
+        private final int[] edges;
+        private final double[] values;
+
+        PheromoneUpdate(int round, boolean full, int[] edges, double[] values) {
+            this.round = round;
+            this.full = full;
+            this.edges = edges;
+            this.values = values;
+        }
+
+        public int getRound() {
+            return round;
+        }
+
+        public boolean isFull() {
+            return full;
+        }
+
+        /**
+         * Apply the update to the pheromone levels of an ant.
+         * @param pheromoneLevel the pheromone levels; they will be replaced by the new levels.
+         * @param pheromoneDecayParameter the evaporation rate, used by the deposits updates.
+         */
+        public void applyTo(double[] pheromoneLevel, double pheromoneDecayParameter) {
+            if (full) System.arraycopy(values, 0, pheromoneLevel, 0, pheromoneLevel.length);
+            else AntAgentMechanics.applyPheromoneDeposits(pheromoneLevel, edges, values, edges.length,
+                    pheromoneDecayParameter);
+        }
+    }
+
+    /**
+     * @param round the round that produced the deposits.
+     * @param edges the edges that receive pheromone, in ascending order.
+     * @param amounts amounts[i] = the pheromone deposited on edges[i].
+     * @param count the number of deposits.
+     * @return the binary form of the update.
+     */
+    public static byte[] encodeDeposits(int round, int[] edges, double[] amounts, int count) {
+        byte[] buffer = new byte[1 + 5 + 5 + 13 * count];
+        buffer[0] = DEPOSITS;
+        int position = AntStatusCodec.writeVarint(buffer, 1, round);
+        position = AntStatusCodec.writeVarint(buffer, position, count);
+        int previousEdge = 0;
+        for (int index = 0; index < count; index++) {
+            position = AntStatusCodec.writeVarint(buffer, position, edges[index] - previousEdge);
+            previousEdge = edges[index];
+            AntStatusCodec.writeDouble(buffer, position, amounts[index]);
+            position += 8;
+        }
+        return Arrays.copyOf(buffer, position);
+    }
+
+    /**
+     * @param round the round that produced the pheromone levels.
+     * @param pheromoneLevel the pheromone level of every edge.
+     * @return the binary form of the update.
+     */
+    public static byte[] encodeFull(int round, double[] pheromoneLevel) {
+        byte[] buffer = new byte[1 + 5 + 5 + 8 * pheromoneLevel.length];
+        buffer[0] = FULL;
+        int position = AntStatusCodec.writeVarint(buffer, 1, round);
+        position = AntStatusCodec.writeVarint(buffer, position, pheromoneLevel.length);
+        for (double value : pheromoneLevel) {
+            AntStatusCodec.writeDouble(buffer, position, value);
+            position += 8;
+        }
+        return Arrays.copyOf(buffer, position);
+    }
+
+    /**
+     * @param content the binary form of an update.
+     * @return the decoded update.
+     */
+    public static PheromoneUpdate decode(byte[] content) {
+        boolean full = content[0] == FULL;
+        int[] position = new int[]{1};
+        int round = AntStatusCodec.readVarint(content, position);
+        int count = AntStatusCodec.readVarint(content, position);
+        double[] values = new double[count];
+        int[] edges = full ? null : new int[count];
+        int previousEdge = 0;
+        for (int index = 0; index < count; index++) {
+            if (!full) {
+                previousEdge += AntStatusCodec.readVarint(content, position);
+                edges[index] = previousEdge;
+            }
+            values[index] = AntStatusCodec.readDouble(content, position[0]);
+            position[0] += 8;
+        }
+        return new PheromoneUpdate(round, full, edges, values);
+    }
+
+}
@@ -0,0 +1,119 @@
+package agents.mechanics;
+
+import java.util.List;
+import java.util.Map;
+
+/**
+ * The pheromone update rule of a colony, selected with the strategy=... entry of the environment header:
+ * - as (default): Ant System, every ant deposits on its tour (see AntSystemUpdate);
+ * - mmas: MAX-MIN Ant System (see MaxMinAntSystemUpdate);
+ * - acs: Ant Colony System (see AntColonySystemUpdate).
+ * A strategy keeps the state of one pheromone array (e.g. the best tour so far), so every agent needs its own
+ * instance; the ants that receive the same tours compute the same updates.
+ */
+public interface PheromoneUpdateStrategy {
+
+    /**
+     * Set the initial pheromone levels.
+     * @param pheromoneLevel the pheromone levels of the colony.
+     */
+    void initialize(double[] pheromoneLevel);
+
+    /**
+     * Update the pheromone levels in place, after all the ants have finished an iteration.
+     * @param pheromoneLevel the pheromone levels that were used in the last iteration.
+     * @param antPaths the paths chosen by each ant in the last iteration (the ants without a path are skipped).
+     * @param tourLengths the lengths of the paths chosen by the ants in the last iteration.
+     */
+    void globalUpdate(double[] pheromoneLevel, List<List<Integer>> antPaths, List<Double> tourLengths);
+
+    /**
+     * Update the pheromone levels on the edges used by an ant, right after it has built its tour.
+     * @param pheromoneLevel the pheromone levels of the ant.
+     * @param path the edge ids of the tour.
+     * @return true if the pheromone levels of the path have changed.
+     */
+    default boolean localUpdate(double[] pheromoneLevel, List<Integer> path) {
+        return false;
+    }
+
+    /**
+     * Restore the state of the strategy when a run is resumed from a checkpoint (see ColonyCheckpoint); the
+     * pheromone levels are restored by the caller. The strategies without a state ignore it.
+     * @param iteration the number of completed iterations.
+     * @param bestPath the edge ids of the best tour so far (empty if there isn't any).
+     * @param bestLength the length of the best tour.
+     */
+    default void restore(int iteration, List<Integer> bestPath, double bestLength) {
+    }
+
+    /**
+     * @return the probability q0 of choosing the best next edge, instead of sampling it
+     *          (the pseudo-random-proportional rule); 0 for the random-proportional rule.
+     */
+    default double getExploitationProbability() {
+        return 0.0;
+    }
+
+    /**
+     * @return true if globalUpdate only evaporates every edge and adds the deposits of the ants,
+     *          so that it can be sent as a list of summed deposits (see PheromoneUpdateCodec).
+     */
+    default boolean isDepositOnly() {
+        return false;
+    }
+
+    /**
+     * Create a strategy.
+     * @param name as, mmas or acs.
+     * @param parameters the optional parameters of the strategy (see the strategy classes).
+     * @param numberOfCities the number of cities.
+     * @param referenceLength the length of a good tour, used to scale the initial pheromone levels
+     *                        (see AntAgentMechanics.nearestNeighbourTourLength).
+     * @param pheromoneDecayParameter the evaporation rate.
+     * @param pheromoneQuantity how much pheromone an ant deposits on a tour of length 1.
+     * @return the strategy.
+     */
+    static PheromoneUpdateStrategy create(String name, Map<String, String> parameters, int numberOfCities,
+                                          double referenceLength, double pheromoneDecayParameter,
+                                          double pheromoneQuantity) {
+        switch (name) {
+            case "as":
+                return new AntSystemUpdate(pheromoneDecayParameter, pheromoneQuantity);
+            case "mmas":
+                return new MaxMinAntSystemUpdate(parameters, numberOfCities, referenceLength,
+                        pheromoneDecayParameter, pheromoneQuantity);
+            case "acs":
+                return new AntColonySystemUpdate(parameters, numberOfCities, referenceLength,
+                        pheromoneDecayParameter, pheromoneQuantity);
+            default:
+                throw new IllegalArgumentException("unknown pheromone update strategy: " + name);
+        }
+    }
+
+    /**
+     * @return the index of the shortest path; the ties are broken by comparing the paths, so that the ants that
+     *          receive the same tours in a different order choose the same one. -1 if all the paths are empty.
+     */
+    static int bestAnt(List<List<Integer>> antPaths, List<Double> tourLengths) {
+        int result = -1;
+        for (int antIndex = 0; antIndex < antPaths.size(); antIndex++) {
+            if (antPaths.get(antIndex).isEmpty()) continue;
+            if (result == -1 || tourLengths.get(antIndex) < tourLengths.get(result) ||
+                    (tourLengths.get(antIndex).equals(tourLengths.get(result)) &&
+                            comparePaths(antPaths.get(antIndex), antPaths.get(result)) < 0)) {
+                result = antIndex;
+            }
+        }
+        return result;
+    }
+
+    static int comparePaths(List<Integer> firstPath, List<Integer> secondPath) {
+        for (int index = 0; index < Math.min(firstPath.size(), secondPath.size()); index++) {
+            int comparison = Integer.compare(firstPath.get(index), secondPath.get(index));
+            if (comparison != 0) return comparison;
+        }
+        return Integer.compare(firstPath.size(), secondPath.size());
+    }
+
+}
@@ -0,0 +1,172 @@
+package agents.mechanics;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+import java.util.Random;
+
+/**
+ * Stochastic tour construction: at every step, a single next city is sampled with the
+ * random-proportional rule, P(e) ~ pheromone(e) * (1 / length(e))^beta, read from the
+ * cached choice information (see AntAgentMechanics.updateChoiceInfo).
+ * The choice is restricted to the candidate list of the current city (its k nearest neighbours);
+ * the full neighbourhood is only used when all the candidates have been visited. The ant only
+ * backtracks when it reaches a dead end, so a tour usually costs O(n * k).
+ * With an exploitation probability q0 > 0 (Ant Colony System), the best next edge is taken with the
+ * probability q0, and the edge is sampled otherwise (the pseudo-random-proportional rule).
+ * An instance keeps its scratch buffers between tours and must not be shared between threads.
+ */
+public class RouletteTourBuilder {
+
+    private final CityGraph cityGraph;
+    private final int numberOfCities;
+    // candidateEdges[c] = the out-edges of the city c that lead to its nearest neighbours:
+    private final int[][] candidateEdges;
+    private final double exploitationProbability;
+
+    // the state of the tour under construction:
+    private final int[] pathEdges;
+    private final boolean[] visited;
+    private int visitedCount;
+    // triedStamp[e] == depthStamp[d] if the edge e already led to a dead end at the depth d:
+    private final long[] triedStamp;
+    private final long[] depthStamp;
+    private long lastStamp = 0;
+    // the number of dead ends of the last tour:
+    private long backtracks = 0;
+
+    // buffers for the roulette wheel:
+    private final int[] choiceEdges;
+    private final double[] choiceWeights;
+
+    /**
+     * @param cityGraph the graph of the roads.
+     * @param candidateListSize the number of nearest neighbours considered first at every step.
+     */
+    public RouletteTourBuilder(CityGraph cityGraph, int candidateListSize) {
+        this(cityGraph, candidateListSize, 0.0);
+    }
+
+    /**
+     * @param cityGraph the graph of the roads.
+     * @param candidateListSize the number of nearest neighbours considered first at every step.
+     * @param exploitationProbability the probability q0 of taking the best next edge instead of sampling it.
+     */
+    public RouletteTourBuilder(CityGraph cityGraph, int candidateListSize, double exploitationProbability) {
+        this.cityGraph = cityGraph;
+        this.exploitationProbability = exploitationProbability;
+        numberOfCities = cityGraph.getNumberOfCities();
+        candidateEdges = cityGraph.nearestNeighbourEdges(candidateListSize);
+        pathEdges = new int[numberOfCities];
+        visited = new boolean[numberOfCities + 1];
+        triedStamp = new long[cityGraph.getNumberOfEdges()];
+        depthStamp = new long[numberOfCities + 1];
+        int maxDegree = 0;
+        for (int city = 1; city <= numberOfCities; city++) maxDegree = Math.max(maxDegree, cityGraph.degree(city));
+        choiceEdges = new int[maxDegree];
+        choiceWeights = new double[maxDegree];
+    }
+
+    /**
+     * Build a hamiltonian cycle.
+     * @param sourceCity the city where the tour starts and ends.
+     * @param choiceInfo pheromone * (1 / length) ^ beta, for every edge.
+     * @param random the random number generator of the ant.
+     * @return the list of edge ids of the tour, or null if the graph doesn't contain a hamiltonian cycle.
+     */
+    public List<Integer> construct(long sourceCity, double[] choiceInfo, Random random) {
+        Arrays.fill(visited, false);
+        visited[(int) sourceCity] = true;
+        visitedCount = 1;
+        int depth = 0;
+        int currentCity = (int) sourceCity;
+        depthStamp[0] = ++lastStamp;
+        backtracks = 0;
+        while (depth < numberOfCities) {
+            int edgeIndex = chooseEdge(currentCity, (int) sourceCity, depthStamp[depth], choiceInfo, random);
+            if (edgeIndex == -1) {
+                // dead end: go back one city and don't take the same edge again from there:
+                if (depth == 0) return null;
+                backtracks++;
+                depth--;
+                int lastEdge = pathEdges[depth];
+                triedStamp[lastEdge] = depthStamp[depth];
+                int lastCity = cityGraph.getTarget(lastEdge);
+                if (lastCity != sourceCity) {
+                    visited[lastCity] = false;
+                    visitedCount--;
+                }
+                currentCity = cityGraph.getSource(lastEdge);
+                continue;
+            }
+            pathEdges[depth++] = edgeIndex;
+            currentCity = cityGraph.getTarget(edgeIndex);
+            if (currentCity != sourceCity) {
+                visited[currentCity] = true;
+                visitedCount++;
+            }
+            depthStamp[depth] = ++lastStamp;
+        }
+        List<Integer> result = new ArrayList<>(numberOfCities);
+        for (int edgeIndex : pathEdges) result.add(edgeIndex);
+        return result;
+    }
+
+    /**
+     * @return the number of times the last tour went back one city, after a dead end.
+     */
+    public long getBacktracks() {
+        return backtracks;
+    }
+
+    private boolean feasible(int edgeIndex, int sourceCity, long stamp) {
+        if (triedStamp[edgeIndex] == stamp) return false;
+        int targetCity = cityGraph.getTarget(edgeIndex);
+        // the source city can only be visited again at the end of the tour:
+        if (targetCity == sourceCity) return visitedCount == numberOfCities;
+        return !visited[targetCity];
+    }
+
+    private int chooseEdge(int currentCity, int sourceCity, long stamp, double[] choiceInfo, Random random) {
+        int count = 0;
+        double weightSum = 0.0;
+        for (int edgeIndex : candidateEdges[currentCity]) {
+            if (feasible(edgeIndex, sourceCity, stamp)) {
+                choiceEdges[count] = edgeIndex;
+                choiceWeights[count] = choiceInfo[edgeIndex];
+                weightSum += choiceWeights[count++];
+            }
+        }
+        if (count == 0 && candidateEdges[currentCity].length < cityGraph.degree(currentCity)) {
+            // all the candidates are visited: fall back to the full neighbourhood:
+            for (int slot = cityGraph.firstSlot(currentCity); slot < cityGraph.endSlot(currentCity); slot++) {
+                int edgeIndex = cityGraph.edgeAt(slot);
+                if (feasible(edgeIndex, sourceCity, stamp)) {
+                    choiceEdges[count] = edgeIndex;
+                    choiceWeights[count] = choiceInfo[edgeIndex];
+                    weightSum += choiceWeights[count++];
+                }
+            }
+        }
+        if (count == 0) return -1;
+        if (exploitationProbability > 0.0 && random.nextDouble() < exploitationProbability) {
+            // take the best edge:
+            int bestIndex = 0;
+            for (int index = 1; index < count; index++) {
+                if (choiceWeights[index] > choiceWeights[bestIndex]) bestIndex = index;
+            }
+            return choiceEdges[bestIndex];
+        }
+        if (weightSum <= 0.0) {
+            // no pheromone on any of the edges yet: choose uniformly:
+            return choiceEdges[random.nextInt(count)];
+        }
+        double threshold = random.nextDouble() * weightSum;
+        for (int index = 0; index < count; index++) {
+            threshold -= choiceWeights[index];
+            if (threshold < 0) return choiceEdges[index];
+        }
+        return choiceEdges[count - 1];
+    }
+
+}
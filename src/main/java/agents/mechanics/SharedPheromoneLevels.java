@@ -0,0 +1,100 @@
+package agents.mechanics;
+
+import java.util.List;
+import java.util.concurrent.atomic.AtomicLongArray;
+
+/**
+ * Pheromone levels shared by the threads of the asynchronous mode, without locks:
+ * the levels are stored as the bits of doubles in an AtomicLongArray, and every deposit or evaporation of an
+ * edge is a compare-and-set loop, so concurrent updates are never lost.
+ * The choice information (pheromone level * heuristic value) read by the tour builders is a plain array that is
+ * refreshed after every update of an edge, from the level of the edge after the update (see refreshChoiceInfo);
+ * the ants may read a slightly stale value of an edge while it is being updated, which the asynchronous mode
+ * accepts.
+ */
+public class SharedPheromoneLevels {
+
+    private final AtomicLongArray levels;
+    private final double[] heuristicValues;
+    private final double[] choiceInfo;
+
+    /**
+     * @param pheromoneLevel the initial pheromone levels.
+     * @param heuristicValues the heuristic values of the edges (see AntAgentMechanics.getHeuristicValues).
+     * @param choiceInfo the choice information of the tour builders; it is refreshed by the updates.
+     */
+    public SharedPheromoneLevels(double[] pheromoneLevel, double[] heuristicValues, double[] choiceInfo) {
+        levels = new AtomicLongArray(pheromoneLevel.length);
+        for (int edgeIndex = 0; edgeIndex < pheromoneLevel.length; edgeIndex++) {
+            levels.set(edgeIndex, Double.doubleToRawLongBits(pheromoneLevel[edgeIndex]));
+        }
+        this.heuristicValues = heuristicValues;
+        this.choiceInfo = choiceInfo;
+        AntAgentMechanics.updateChoiceInfo(choiceInfo, pheromoneLevel, heuristicValues);
+    }
+
+    public int size() {
+        return levels.length();
+    }
+
+    public double get(int edgeIndex) {
+        return Double.longBitsToDouble(levels.get(edgeIndex));
+    }
+
+    /**
+     * Add the same amount of pheromone on every edge of a path.
+     * @param path the edge ids.
+     * @param amount the pheromone deposited on every edge.
+     */
+    public void deposit(List<Integer> path, double amount) {
+        for (int edgeIndex : path) {
+            long oldBits;
+            double newLevel;
+            do {
+                oldBits = levels.get(edgeIndex);
+                newLevel = Double.longBitsToDouble(oldBits) + amount;
+            } while (!levels.compareAndSet(edgeIndex, oldBits, Double.doubleToRawLongBits(newLevel)));
+            refreshChoiceInfo(edgeIndex);
+        }
+    }
+
+    /**
+     * Evaporate every edge; the deposits made at the same time are kept.
+     * @param pheromoneDecayParameter the fraction of the pheromone that evaporates.
+     */
+    public void evaporate(double pheromoneDecayParameter) {
+        double persistence = 1 - pheromoneDecayParameter;
+        for (int edgeIndex = 0; edgeIndex < levels.length(); edgeIndex++) {
+            long oldBits;
+            double newLevel;
+            do {
+                oldBits = levels.get(edgeIndex);
+                newLevel = Double.longBitsToDouble(oldBits) * persistence;
+            } while (!levels.compareAndSet(edgeIndex, oldBits, Double.doubleToRawLongBits(newLevel)));
+            refreshChoiceInfo(edgeIndex);
+        }
+    }
+
+    /**
+     * Set the choice information of an edge from its current level. The threads that update the same edge may
+     * write their values in any order, so the value is written again until the level hasn't changed in between:
+     * the last thread that writes sees the latest level.
+     */
+    private void refreshChoiceInfo(int edgeIndex) {
+        long bits;
+        do {
+            bits = levels.get(edgeIndex);
+            choiceInfo[edgeIndex] = Double.longBitsToDouble(bits) * heuristicValues[edgeIndex];
+        } while (levels.get(edgeIndex) != bits);
+    }
+
+    /**
+     * Copy the current levels into an array.
+     */
+    public void copyTo(double[] pheromoneLevel) {
+        for (int edgeIndex = 0; edgeIndex < pheromoneLevel.length; edgeIndex++) {
+            pheromoneLevel[edgeIndex] = get(edgeIndex);
+        }
+    }
+
+}
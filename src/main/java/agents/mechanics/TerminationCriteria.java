@@ -0,0 +1,80 @@
+package agents.mechanics;
+
+/**
+ * The convergence criteria that stop a colony before its number of iterations; every criterion is optional:
+ * - stall: the best length hasn't improved for the given number of iterations;
+ * - branching: the lambda-branching factor of the pheromone levels (see AntAgentMechanics.branchingFactor) has
+ * dropped below the given value, i.e. the pheromone is concentrated on the edges of very few tours;
+ * - target: a tour at most as long as the given length has been found;
+ * - time: the given number of milliseconds has elapsed since the criteria were created.
+ * The criteria are checked once per iteration, by a single agent of the colony, which then tells the others to
+ * stop (so all the ants stop after the same iteration).
+ */
+public class TerminationCriteria {
+
+    private final int stallIterations;
+    private final double branchingThreshold;
+    private final double targetLength;
+    private final long timeLimitMillis;
+    private final long startTime = System.currentTimeMillis();
+
+    private double bestLength = Double.POSITIVE_INFINITY;
+    private int lastImprovement = 0;
+
+    /**
+     * @param stallIterations the number of iterations without improvement (0 to disable this criterion).
+     * @param branchingThreshold the branching factor below which the colony has converged (0 to disable it).
+     * @param targetLength the length that is good enough (0 to disable it).
+     * @param timeLimitMillis the time limit, in milliseconds (0 to disable it).
+     */
+    public TerminationCriteria(int stallIterations, double branchingThreshold, double targetLength,
+                               long timeLimitMillis) {
+        this.stallIterations = stallIterations;
+        this.branchingThreshold = branchingThreshold;
+        this.targetLength = targetLength;
+        this.timeLimitMillis = timeLimitMillis;
+    }
+
+    /**
+     * @return true if at least one criterion is enabled.
+     */
+    public boolean isEnabled() {
+        return stallIterations > 0 || branchingThreshold > 0.0 || targetLength > 0.0 || timeLimitMillis > 0;
+    }
+
+    /**
+     * @return true if check uses the branching factor (otherwise it doesn't need to be computed).
+     */
+    public boolean usesBranchingFactor() {
+        return branchingThreshold > 0.0;
+    }
+
+    /**
+     * Record the end of an iteration, and check the criteria.
+     * @param iteration the number of completed iterations.
+     * @param bestLength the length of the best tour so far (or of the iteration).
+     * @param branchingFactor the branching factor of the pheromone levels (ignored if usesBranchingFactor is
+     *                        false).
+     * @return the criterion that is met, as a short description, or null if the colony should go on.
+     */
+    public String check(int iteration, double bestLength, double branchingFactor) {
+        if (bestLength < this.bestLength) {
+            this.bestLength = bestLength;
+            lastImprovement = iteration;
+        }
+        if (targetLength > 0.0 && this.bestLength <= targetLength) {
+            return "target length " + targetLength + " reached";
+        }
+        if (stallIterations > 0 && iteration - lastImprovement >= stallIterations) {
+            return "no improvement for " + stallIterations + " iterations";
+        }
+        if (branchingThreshold > 0.0 && branchingFactor < branchingThreshold) {
+            return "branching factor " + branchingFactor + " below " + branchingThreshold;
+        }
+        if (timeLimitMillis > 0 && System.currentTimeMillis() - startTime >= timeLimitMillis) {
+            return "time limit of " + timeLimitMillis + " ms reached";
+        }
+        return null;
+    }
+
+}
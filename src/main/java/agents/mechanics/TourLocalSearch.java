@@ -0,0 +1,292 @@
+package agents.mechanics;
+
+import java.util.ArrayList;
+import java.util.List;
+
+/**
+ * 2-opt and Or-opt local search for the tours built by the ants.
+ * The tour is kept as an array of cities plus the position of every city in the array, so the
+ * successor and the predecessor of a city, and the gain of a move, are found in O(1).
+ * The moves are restricted to the k nearest neighbours of the cities, and every city has a don't-look bit:
+ * a city is only examined again after one of its tour neighbours has changed.
+ * - 2-opt: two edges (a, b), (c, d) are replaced with (a, c), (b, d), by reversing the path b..c;
+ * - Or-opt: a segment of 1 to 3 cities is moved between two other cities, possibly reversed.
+ * The moves reverse parts of the tour, so the graph must be symmetric; on asymmetric graphs the tours
+ * are returned unchanged. On sparse graphs, the moves that need a missing road are never applied.
+ * An instance keeps its buffers between tours and must not be shared between threads.
+ */
+public class TourLocalSearch {
+
+    private static final double EPSILON = 1e-10;
+    private static final int MAX_SEGMENT_LENGTH = 3;
+
+    private final CityGraph cityGraph;
+    private final int numberOfCities;
+    private final boolean enabled;
+    // neighbours[c] = the nearest neighbours of the city c, in ascending order of their distance:
+    private final int[][] neighbours;
+
+    // tour[i] = the i-th city of the tour, position[tour[i]] = i:
+    private final int[] tour;
+    private final int[] position;
+    // the don't-look bits, and the queue of the cities that have to be examined:
+    private final boolean[] queued;
+    private final int[] queue;
+    private int queueHead;
+    private int queueSize;
+    private final int[] segment = new int[MAX_SEGMENT_LENGTH];
+
+    /**
+     * @param cityGraph the graph of the roads.
+     * @param neighbourListSize the number of nearest neighbours considered for every city.
+     */
+    public TourLocalSearch(CityGraph cityGraph, int neighbourListSize) {
+        this.cityGraph = cityGraph;
+        numberOfCities = cityGraph.getNumberOfCities();
+        enabled = cityGraph.isSymmetric();
+        int[][] neighbourEdges = cityGraph.nearestNeighbourEdges(neighbourListSize);
+        neighbours = new int[numberOfCities + 1][];
+        for (int city = 0; city <= numberOfCities; city++) {
+            neighbours[city] = new int[neighbourEdges[city].length];
+            for (int index = 0; index < neighbours[city].length; index++) {
+                neighbours[city][index] = cityGraph.getTarget(neighbourEdges[city][index]);
+            }
+        }
+        tour = new int[numberOfCities];
+        position = new int[numberOfCities + 1];
+        queued = new boolean[numberOfCities + 1];
+        queue = new int[numberOfCities];
+    }
+
+    /**
+     * @return false if the graph is not symmetric, in which case the tours are not changed.
+     */
+    public boolean isEnabled() {
+        return enabled;
+    }
+
+    /**
+     * Improve a tour until none of the cities whose don't-look bit is off gives an improving move.
+     * @param path the edge ids of a hamiltonian cycle.
+     * @return the edge ids of the improved cycle; it starts from the same city as the given path.
+     */
+    public List<Integer> improve(List<Integer> path) {
+        if (!enabled || path.size() != numberOfCities || numberOfCities < 5) return path;
+        int startCity = cityGraph.getSource(path.get(0));
+        queueHead = 0;
+        queueSize = 0;
+        for (int index = 0; index < numberOfCities; index++) {
+            tour[index] = cityGraph.getSource(path.get(index));
+            position[tour[index]] = index;
+            queued[tour[index]] = false;
+            enqueue(tour[index]);
+        }
+        while (queueSize > 0) {
+            int city = queue[queueHead];
+            queueHead = (queueHead + 1) % numberOfCities;
+            queueSize--;
+            queued[city] = false;
+            if (twoOptMove(city) || orOptMove(city)) enqueue(city);
+        }
+        List<Integer> result = new ArrayList<>(numberOfCities);
+        int city = startCity;
+        for (int index = 0; index < numberOfCities; index++) {
+            result.add(cityGraph.getEdgeId(city, successor(city)));
+            city = successor(city);
+        }
+        return result;
+    }
+
+    private void enqueue(int city) {
+        if (queued[city]) return;
+        queued[city] = true;
+        queue[(queueHead + queueSize) % numberOfCities] = city;
+        queueSize++;
+    }
+
+    private int successor(int city) {
+        int index = position[city] + 1;
+        return tour[index == numberOfCities ? 0 : index];
+    }
+
+    private int predecessor(int city) {
+        int index = position[city] - 1;
+        return tour[index < 0 ? numberOfCities - 1 : index];
+    }
+
+    // the length of the road, or infinity if the two cities are not connected:
+    private double distance(int sourceCity, int targetCity) {
+        int edgeIndex = cityGraph.getEdgeId(sourceCity, targetCity);
+        return edgeIndex == -1 ? Double.POSITIVE_INFINITY : cityGraph.getLength(edgeIndex);
+    }
+
+    /**
+     * Reverse the path firstCity..lastCity of the tour (in the successor direction); the shorter of the path
+     * and the rest of the tour is reversed, which gives the same cycle on a symmetric graph.
+     */
+    private void reverse(int firstCity, int lastCity) {
+        int first = position[firstCity];
+        int last = position[lastCity];
+        int length = (last - first + numberOfCities) % numberOfCities + 1;
+        if (2 * length > numberOfCities) {
+            // reverse the rest of the tour instead:
+            int newFirst = last + 1;
+            last = first - 1;
+            first = newFirst;
+            length = numberOfCities - length;
+        }
+        for (int step = 0; step < length / 2; step++) {
+            int left = (first + step) % numberOfCities;
+            int right = (last - step + numberOfCities) % numberOfCities;
+            int leftCity = tour[left];
+            tour[left] = tour[right];
+            tour[right] = leftCity;
+            position[tour[left]] = left;
+            position[tour[right]] = right;
+        }
+    }
+
+    /**
+     * Try the 2-opt moves that replace one of the two tour edges of the given city.
+     * @return true if a move was applied.
+     */
+    private boolean twoOptMove(int a) {
+        for (int direction = 0; direction < 2; direction++) {
+            boolean forward = direction == 0;
+            int b = forward ? successor(a) : predecessor(a);
+            double removedLength = distance(a, b);
+            for (int c : neighbours[a]) {
+                double partialGain = removedLength - distance(a, c);
+                // the neighbours are sorted, so the next ones can't give a positive gain either:
+                if (partialGain <= EPSILON) break;
+                int d = forward ? successor(c) : predecessor(c);
+                if (c == b || d == a) continue;
+                double gain = partialGain + distance(c, d) - distance(b, d);
+                if (gain > EPSILON) {
+                    // forward: a b ... c d -> a c ... b d; backward: d c ... b a -> d b ... c a
+                    if (forward) reverse(b, c);
+                    else reverse(c, b);
+                    enqueue(a);
+                    enqueue(b);
+                    enqueue(c);
+                    enqueue(d);
+                    return true;
+                }
+            }
+        }
+        return false;
+    }
+
+    /**
+     * Try the Or-opt moves of the segments that start (or end) at the given city.
+     * @return true if a move was applied.
+     */
+    private boolean orOptMove(int city) {
+        for (int direction = 0; direction < 2; direction++) {
+            boolean forward = direction == 0;
+            int firstCity = city;
+            int lastCity = city;
+            // the segments of a single city are only tried once:
+            for (int segmentLength = forward ? 1 : 2; segmentLength <= MAX_SEGMENT_LENGTH; segmentLength++) {
+                if (forward) {
+                    if (segmentLength > 1) lastCity = successor(lastCity);
+                } else {
+                    firstCity = predecessor(firstCity);
+                }
+                // the segment, in the order of the tour:
+                for (int index = 0, segmentCity = firstCity; index < segmentLength; index++) {
+                    segment[index] = segmentCity;
+                    segmentCity = successor(segmentCity);
+                }
+                if (moveSegment(segmentLength, firstCity, lastCity)) return true;
+            }
+        }
+        return false;
+    }
+
+    /**
+     * Try to move the segment firstCity..lastCity (stored in segment) next to one of the nearest neighbours
+     * of its ends.
+     * @return true if a move was applied.
+     */
+    private boolean moveSegment(int segmentLength, int firstCity, int lastCity) {
+        int before = predecessor(firstCity);
+        int after = successor(lastCity);
+        double removalGain = distance(before, firstCity) + distance(lastCity, after) - distance(before, after);
+        if (removalGain <= EPSILON) return false;
+        for (int end = 0; end < 2; end++) {
+            int endCity = end == 0 ? firstCity : lastCity;
+            for (int c : neighbours[endCity]) {
+                if (distance(endCity, c) >= removalGain) break;
+                if (inSegment(c, segmentLength)) continue;
+                // insert between c and its successor, or between its predecessor and c:
+                for (int side = 0; side < 2; side++) {
+                    int x = side == 0 ? c : predecessor(c);
+                    int y = side == 0 ? successor(c) : c;
+                    if (inSegment(x, segmentLength) || inSegment(y, segmentLength)) continue;
+                    double forwardGain = removalGain + distance(x, y) - distance(x, firstCity) -
+                            distance(lastCity, y);
+                    double reversedGain = removalGain + distance(x, y) - distance(x, lastCity) -
+                            distance(firstCity, y);
+                    if (forwardGain > EPSILON || reversedGain > EPSILON) {
+                        insertSegment(segmentLength, x, y, reversedGain > forwardGain);
+                        enqueue(before);
+                        enqueue(after);
+                        enqueue(firstCity);
+                        enqueue(lastCity);
+                        enqueue(x);
+                        enqueue(y);
+                        return true;
+                    }
+                }
+            }
+        }
+        return false;
+    }
+
+    private boolean inSegment(int city, int segmentLength) {
+        for (int index = 0; index < segmentLength; index++) {
+            if (segment[index] == city) return true;
+        }
+        return false;
+    }
+
+    /**
+     * Move segment[0..segmentLength) between the adjacent cities x and y (y = successor(x)), by shifting the
+     * cities between the segment and the insertion point, on the shorter side of the tour.
+     */
+    private void insertSegment(int segmentLength, int x, int y, boolean reversed) {
+        int first = position[segment[0]];
+        int last = position[segment[segmentLength - 1]];
+        int forwardShift = (position[x] - last + numberOfCities) % numberOfCities;
+        int backwardShift = (first - position[y] + numberOfCities) % numberOfCities;
+        int index;
+        if (forwardShift <= backwardShift) {
+            // ... segment after ... x y -> ... after ... x segment y:
+            index = first;
+            for (int step = 0; step < forwardShift; step++) {
+                int city = tour[(last + 1 + step) % numberOfCities];
+                tour[index] = city;
+                position[city] = index;
+                index = (index + 1) % numberOfCities;
+            }
+        } else {
+            // x y ... before segment ... -> x segment y ... before ...:
+            index = last;
+            for (int step = 0; step < backwardShift; step++) {
+                int city = tour[(first - 1 - step + numberOfCities) % numberOfCities];
+                tour[index] = city;
+                position[city] = index;
+                index = (index - 1 + numberOfCities) % numberOfCities;
+            }
+            index = (index - segmentLength + 1 + numberOfCities) % numberOfCities;
+        }
+        for (int step = 0; step < segmentLength; step++) {
+            int city = segment[reversed ? segmentLength - 1 - step : step];
+            tour[index] = city;
+            position[city] = index;
+            index = (index + 1) % numberOfCities;
+        }
+    }
+
+}
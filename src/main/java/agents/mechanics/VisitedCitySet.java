@@ -0,0 +1,96 @@
+package agents.mechanics;
+
+import java.util.Arrays;
+
+/**
+ * Immutable set of visited cities, used by the tour construction and the exhaustive search
+ * instead of the '0'/'1'/'2' strings:
+ * - every city is a bit (a single long word when there are at most 64 cities);
+ * - closed = true if the ant has returned to the source city (the old '2' marker);
+ * - the number of visited cities is kept, so checking if all the cities have been visited is O(1).
+ * note: the cities are labeled with numbers from 1 to n.
+ */
+public final class VisitedCitySet {
+
+    private final int numberOfCities;
+    private final int visitedCount;
+    private final boolean closed;
+    // the bits of the cities 1..64, used when numberOfCities <= 64:
+    private final long word;
+    // the bits of all the cities, used when numberOfCities > 64:
+    private final long[] words;
+
+    private VisitedCitySet(int numberOfCities, int visitedCount, boolean closed, long word, long[] words) {
+        this.numberOfCities = numberOfCities;
+        this.visitedCount = visitedCount;
+        this.closed = closed;
+        this.word = word;
+        this.words = words;
+    }
+
+    /**
+     * @param numberOfCities the number of cities in the grid.
+     * @return a set in which no city has been visited.
+     */
+    public static VisitedCitySet empty(int numberOfCities) {
+        return new VisitedCitySet(numberOfCities, 0, false, 0L,
+                numberOfCities <= 64 ? null : new long[(numberOfCities + 63) >>> 6]);
+    }
+
+    public boolean contains(long city) {
+        int bit = (int) city - 1;
+        if (words == null) return (word & (1L << bit)) != 0;
+        return (words[bit >>> 6] & (1L << bit)) != 0;
+    }
+
+    /**
+     * @param city the city that is visited next.
+     * @return a copy of this set in which the given city is visited.
+     */
+    public VisitedCitySet with(long city) {
+        if (contains(city)) return this;
+        int bit = (int) city - 1;
+        if (words == null)
+            return new VisitedCitySet(numberOfCities, visitedCount + 1, closed, word | (1L << bit), null);
+        long[] newWords = Arrays.copyOf(words, words.length);
+        newWords[bit >>> 6] |= 1L << bit;
+        return new VisitedCitySet(numberOfCities, visitedCount + 1, closed, 0L, newWords);
+    }
+
+    /**
+     * @return a copy of this set marking that the ant went back to the source city.
+     */
+    public VisitedCitySet close() {
+        return new VisitedCitySet(numberOfCities, visitedCount, true, word, words);
+    }
+
+    public boolean allVisited() {
+        return visitedCount == numberOfCities;
+    }
+
+    public boolean isClosed() {
+        return closed;
+    }
+
+    public int size() {
+        return visitedCount;
+    }
+
+    public int getNumberOfCities() {
+        return numberOfCities;
+    }
+
+    /**
+     * @return the old string representation ('0' - not visited, '1' - visited, '2' - source visited twice),
+     *          given the source city of the tour.
+     */
+    public String toString(long sourceCity) {
+        StringBuilder stringBuilder = new StringBuilder(numberOfCities);
+        for (int city = 1; city <= numberOfCities; city++) {
+            if (closed && city == sourceCity) stringBuilder.append('2');
+            else stringBuilder.append(contains(city) ? '1' : '0');
+        }
+        return stringBuilder.toString();
+    }
+
+}
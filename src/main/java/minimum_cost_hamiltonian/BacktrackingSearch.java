@@ -1,12 +1,13 @@
 package minimum_cost_hamiltonian;
 
 import agents.AntAgent;
+import agents.Environment;
 import agents.mechanics.AntAgentMechanics;
+import agents.mechanics.CityGraph;
+import agents.mechanics.PathFrame;
+import agents.mechanics.VisitedCitySet;
 
-import java.io.BufferedReader;
 import java.io.BufferedWriter;
-import java.io.FileReader;
-import java.io.IOException;
 import java.util.*;
 import java.util.stream.Collectors;
 
@@ -15,51 +16,18 @@ public class BacktrackingSearch {
     static int numberOfCities = -1;
 
     public static List<AntAgent.CityRoad> readGrid() {
-        List<AntAgent.CityRoad> cityGrid = new ArrayList<>();
-        FileReader fileReader = null;
-        BufferedReader bufferedReader = null;
-        try {
-            fileReader = new FileReader("src\\main\\resources\\environment.txt");
-            bufferedReader = new BufferedReader(fileReader);
-            String[] firstLine = bufferedReader.readLine().split(" ");
-            numberOfCities = Integer.parseInt(firstLine[0]);
-            String currentLine;
-            while ((currentLine = bufferedReader.readLine()) != null) {
-                String[] values = currentLine.split(" ");
-                cityGrid.add(new AntAgent.CityRoad(Long.parseLong(values[0]), Long.parseLong(values[1]),
-                        Double.parseDouble(values[2])));
-                // for the moment, I just assume that the roads are bidirectional:
-                cityGrid.add(new AntAgent.CityRoad(Long.parseLong(values[1]), Long.parseLong(values[0]),
-                        Double.parseDouble(values[2])));
-            }
-        } catch (IOException e) {
-            e.printStackTrace();
-        } finally {
-            if (bufferedReader != null) {
-                try {
-                    bufferedReader.close();
-                } catch (IOException e) {
-                    e.printStackTrace();
-                }
-            }
-            if (fileReader != null) {
-                try {
-                    fileReader.close();
-                } catch (IOException e) {
-                    e.printStackTrace();
-                }
-            }
-        }
-        return cityGrid;
+        Environment environment = Environment.load(Environment.DEFAULT_INPUT_FILE);
+        numberOfCities = environment.getNumberOfCities();
+        return environment.getCityGrid();
     }
 
-    private static List<Integer> getPossibleEdges(String currentVisitedCitiesString, long sourceCity,
-                                                  List<AntAgent.CityRoad> cityGrid, long startCity) {
+    private static List<Integer> getPossibleEdges(VisitedCitySet currentVisitedCities, long sourceCity,
+                                                  CityGraph cityGraph, long startCity) {
         List<Integer> result = new ArrayList<>();
-        for (int edgeIndex = 0; edgeIndex < cityGrid.size(); edgeIndex++) {
-            AntAgent.CityRoad currentRoad = cityGrid.get(edgeIndex);
-            if (currentRoad.getSourceId() == sourceCity && AntAgentMechanics
-                    .possibleNextCity(currentVisitedCitiesString, startCity, currentRoad.getTargetId())) {
+        for (int slot = cityGraph.firstSlot(sourceCity); slot < cityGraph.endSlot(sourceCity); slot++) {
+            int edgeIndex = cityGraph.edgeAt(slot);
+            if (AntAgentMechanics.possibleNextCity(currentVisitedCities, startCity,
+                    cityGraph.getTarget(edgeIndex))) {
                 result.add(edgeIndex);
             }
         }
@@ -67,50 +35,50 @@ public class BacktrackingSearch {
     }
 
     public static List<Integer> findOptimalTour(List<AntAgent.CityRoad> cityGrid) {
+        return findOptimalTour(new CityGraph(numberOfCities, cityGrid));
+    }
+
+    /**
+     * Find the minimum cost hamiltonian cycle with the branch-and-bound search.
+     * @param cityGraph the graph of the roads.
+     * @return the list of edge ids of the optimal tour.
+     */
+    public static List<Integer> findOptimalTour(CityGraph cityGraph) {
+        return BranchAndBoundSearch.findOptimalTour(cityGraph, null);
+    }
+
+    /**
+     * Enumerate all the hamiltonian cycles (without any pruning) and print the length of the best and
+     * of the worst one; this is only usable on very small graphs.
+     * The frames of the stack share the prefixes of their paths (see PathFrame), and only the best tour is
+     * copied into a list.
+     * @param cityGraph the graph of the roads.
+     * @return the list of edge ids of the optimal tour.
+     */
+    public static List<Integer> enumerateTours(CityGraph cityGraph) {
         List<Integer> optimalPath = new ArrayList<>();
         double bestLengh = -1.0;
         double worstLength = -1.0;
         int numberOfPossiblePaths = 0;
-        class StackRecord {
-            final long currentCity;
-            final String visitedCitiesString;
-            final List<Integer> currentPath;
-
-            public StackRecord(long currentCity, String toString, List<Integer> newList) {
-                this.currentCity = currentCity;
-                visitedCitiesString = toString;
-                this.currentPath = newList;
-            }
-        }
-        Stack<StackRecord> stackRecords = new Stack<>();
+        Stack<PathFrame> stackRecords = new Stack<>();
         long sourceCity = 11;
         // add the possible edges:
-        for (int edgeIndex = 0; edgeIndex < cityGrid.size(); edgeIndex++) {
-            AntAgent.CityRoad currentEdge = cityGrid.get(edgeIndex);
-            if (currentEdge.getSourceId() == sourceCity) {
-                StringBuilder stringBuilder = new StringBuilder();
-                for (int cityIndex = 0; cityIndex < numberOfCities; cityIndex++) {
-                    if (cityIndex == sourceCity - 1 || cityIndex == currentEdge.getTargetId() - 1)
-                        stringBuilder.append(1);
-                    else stringBuilder.append(0);
-                }
-                stackRecords.add(new StackRecord(currentEdge.getTargetId(), stringBuilder.toString(),
-                        new ArrayList<Integer>(Collections.singletonList(edgeIndex))));
-            }
+        VisitedCitySet sourceVisited = VisitedCitySet.empty(cityGraph.getNumberOfCities()).with(sourceCity);
+        for (int slot = cityGraph.firstSlot(sourceCity); slot < cityGraph.endSlot(sourceCity); slot++) {
+            int edgeIndex = cityGraph.edgeAt(slot);
+            int targetCity = cityGraph.getTarget(edgeIndex);
+            stackRecords.add(PathFrame.start(edgeIndex, cityGraph.getLength(edgeIndex),
+                    sourceVisited.with(targetCity)));
         }
         while (!stackRecords.empty()) {
-            StackRecord currentRecord = stackRecords.pop();
-            long currentCity = currentRecord.currentCity;
-            List<Integer> currentRecordPath = currentRecord.currentPath;
-            List<Integer> possibleEdges = getPossibleEdges(currentRecord.visitedCitiesString, currentCity,
-                    cityGrid, sourceCity);
-            if (AntAgentMechanics.tourCondition(currentRecord.visitedCitiesString, sourceCity, currentCity)) {
+            PathFrame currentRecord = stackRecords.pop();
+            long currentCity = cityGraph.getTarget(currentRecord.getEdgeIndex());
+            VisitedCitySet currentVisitedCities = currentRecord.getVisitedCities();
+            if (AntAgentMechanics.tourCondition(currentVisitedCities, sourceCity, currentCity)) {
                 numberOfPossiblePaths ++;
-                double currentLength = currentRecordPath.stream()
-                        .map(edgeIndex -> cityGrid.get(edgeIndex).getLength())
-                        .reduce(0.0, Double::sum);
+                double currentLength = currentRecord.getLength();
                 if(optimalPath.isEmpty() || bestLengh > currentLength){
-                    optimalPath = new ArrayList<>(currentRecordPath);
+                    optimalPath = currentRecord.toPath();
                     bestLengh = currentLength;
                 }
                 if(worstLength == -1.0 || worstLength < currentLength){
@@ -118,15 +86,14 @@ public class BacktrackingSearch {
                 }
             } else {
                 // add all possible next cities to the stack:
-                for (Integer edgeIndex : possibleEdges) {
-                    AntAgent.CityRoad currentRoad = cityGrid.get(edgeIndex);
-                    StringBuilder newVisitedCities = new StringBuilder(currentRecord.visitedCitiesString);
-                    if (currentRoad.getTargetId() != sourceCity)
-                        newVisitedCities.setCharAt(Math.toIntExact(currentRoad.getTargetId() - 1), '1');
-                    else newVisitedCities.setCharAt(Math.toIntExact(sourceCity - 1), '2');
-                    List<Integer> newPathCopy = new ArrayList<>(currentRecordPath);
-                    newPathCopy.add(edgeIndex);
-                    stackRecords.add(new StackRecord(currentRoad.getTargetId(), newVisitedCities.toString(), newPathCopy));
+                for (Integer edgeIndex : getPossibleEdges(currentVisitedCities, currentCity, cityGraph, sourceCity)) {
+                    int targetCity = cityGraph.getTarget(edgeIndex);
+                    VisitedCitySet newVisitedCities;
+                    if (targetCity != sourceCity)
+                        newVisitedCities = currentVisitedCities.with(targetCity);
+                    else newVisitedCities = currentVisitedCities.close();
+                    stackRecords.add(currentRecord.extend(edgeIndex, cityGraph.getLength(edgeIndex),
+                            newVisitedCities));
                 }
             }
         }
@@ -142,6 +109,7 @@ public class BacktrackingSearch {
 
         List<Integer> bestPath = findOptimalTour(cityGrid);
 
+        System.out.println("bestLength = " + new CityGraph(numberOfCities, cityGrid).pathLength(bestPath));
         System.out.println("bestTour: " + bestPath.stream().map(id -> cityGrid.get(id).toString())
                 .collect(Collectors.toList()));
 
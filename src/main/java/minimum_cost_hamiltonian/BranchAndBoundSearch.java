@@ -0,0 +1,290 @@
+package minimum_cost_hamiltonian;
+
+import agents.AntAgent;
+import agents.mechanics.CityGraph;
+
+import java.io.IOException;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Paths;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+import java.util.concurrent.ForkJoinPool;
+import java.util.concurrent.RecursiveAction;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.stream.Collectors;
+
+/**
+ * Exact minimum cost hamiltonian cycle, using a parallel depth-first branch-and-bound:
+ * - the incumbent (the best tour found so far) is seeded with a given tour (e.g. the last ACO path)
+ * or with a greedy nearest-neighbour tour;
+ * - a partial path is dropped as soon as its lower bound reaches the incumbent length;
+ * - the subtrees close to the root are searched in parallel, on a ForkJoinPool.
+ * The lower bound of a partial path is its length plus the larger of:
+ * - the sum of the cheapest incoming roads of the cities that still have to be entered;
+ * - the sum of the cheapest outgoing roads of the cities that still have to be left;
+ * both sums are updated in O(1) when the path is extended.
+ */
+public class BranchAndBoundSearch {
+
+    // the subtrees are split into parallel tasks down to this depth:
+    private static final int SPLIT_DEPTH = 3;
+
+    private final CityGraph cityGraph;
+    private final int numberOfCities;
+    // the out-edges of every city, in ascending order of their length:
+    private final int[][] sortedOutEdges;
+    // the length of the cheapest road that enters / leaves every city:
+    private final double[] minIncoming;
+    private final double[] minOutgoing;
+
+    // the length of the incumbent, as the bits of a (non-negative) double, so that it can be read without locking:
+    private final AtomicLong bestLengthBits = new AtomicLong(Double.doubleToLongBits(Double.POSITIVE_INFINITY));
+    private int[] bestTour = null;
+
+    private BranchAndBoundSearch(CityGraph cityGraph) {
+        this.cityGraph = cityGraph;
+        numberOfCities = cityGraph.getNumberOfCities();
+        sortedOutEdges = cityGraph.nearestNeighbourEdges(Integer.MAX_VALUE);
+        minIncoming = new double[numberOfCities + 1];
+        minOutgoing = new double[numberOfCities + 1];
+        Arrays.fill(minIncoming, Double.POSITIVE_INFINITY);
+        Arrays.fill(minOutgoing, Double.POSITIVE_INFINITY);
+        for (int edgeIndex = 0; edgeIndex < cityGraph.getNumberOfEdges(); edgeIndex++) {
+            double length = cityGraph.getLength(edgeIndex);
+            int source = cityGraph.getSource(edgeIndex);
+            int target = cityGraph.getTarget(edgeIndex);
+            minOutgoing[source] = Math.min(minOutgoing[source], length);
+            minIncoming[target] = Math.min(minIncoming[target], length);
+        }
+    }
+
+    private double getBestLength() {
+        return Double.longBitsToDouble(bestLengthBits.get());
+    }
+
+    /**
+     * Replace the incumbent if the given tour is shorter.
+     * @param length the length of the tour.
+     * @param tour the edge ids of the tour.
+     */
+    private synchronized void offer(double length, int[] tour) {
+        if (length < getBestLength()) {
+            bestTour = Arrays.copyOf(tour, tour.length);
+            bestLengthBits.set(Double.doubleToLongBits(length));
+        }
+    }
+
+    /**
+     * The state of a partial path; every search task owns one.
+     */
+    private class PartialPath {
+        final int[] edges = new int[numberOfCities];
+        final boolean[] visited = new boolean[numberOfCities + 1];
+        int depth = 0;
+        int currentCity = 1;
+        double length = 0.0;
+        // the sums used by the lower bound:
+        double remainingIncoming;
+        double remainingOutgoing;
+
+        PartialPath() {
+            visited[1] = true;
+            for (int city = 1; city <= numberOfCities; city++) {
+                remainingIncoming += minIncoming[city];
+                remainingOutgoing += minOutgoing[city];
+            }
+        }
+
+        PartialPath copy() {
+            PartialPath result = new PartialPath();
+            System.arraycopy(edges, 0, result.edges, 0, depth);
+            System.arraycopy(visited, 0, result.visited, 0, visited.length);
+            result.depth = depth;
+            result.currentCity = currentCity;
+            result.length = length;
+            result.remainingIncoming = remainingIncoming;
+            result.remainingOutgoing = remainingOutgoing;
+            return result;
+        }
+
+        double lowerBound() {
+            return length + Math.max(remainingIncoming, remainingOutgoing);
+        }
+
+        void push(int edgeIndex) {
+            int target = cityGraph.getTarget(edgeIndex);
+            edges[depth++] = edgeIndex;
+            remainingOutgoing -= minOutgoing[currentCity];
+            remainingIncoming -= minIncoming[target];
+            length += cityGraph.getLength(edgeIndex);
+            visited[target] = true;
+            currentCity = target;
+        }
+
+        void pop() {
+            int edgeIndex = edges[--depth];
+            int target = cityGraph.getTarget(edgeIndex);
+            visited[target] = false;
+            currentCity = cityGraph.getSource(edgeIndex);
+            length -= cityGraph.getLength(edgeIndex);
+            remainingIncoming += minIncoming[target];
+            remainingOutgoing += minOutgoing[currentCity];
+        }
+    }
+
+    /**
+     * Expand the given partial path; returns the children that can still lead to a better tour.
+     */
+    private List<Integer> promisingEdges(PartialPath path) {
+        List<Integer> result = new ArrayList<>();
+        for (int edgeIndex : sortedOutEdges[path.currentCity]) {
+            int target = cityGraph.getTarget(edgeIndex);
+            if (path.visited[target]) continue;
+            path.push(edgeIndex);
+            if (path.lowerBound() < getBestLength()) result.add(edgeIndex);
+            path.pop();
+        }
+        return result;
+    }
+
+    private void search(PartialPath path) {
+        if (path.depth == numberOfCities - 1) {
+            // close the tour:
+            int closingEdge = cityGraph.getEdgeId(path.currentCity, 1);
+            if (closingEdge == -1) return;
+            path.edges[path.depth] = closingEdge;
+            offer(path.length + cityGraph.getLength(closingEdge), path.edges);
+            return;
+        }
+        for (int edgeIndex : sortedOutEdges[path.currentCity]) {
+            if (path.visited[cityGraph.getTarget(edgeIndex)]) continue;
+            path.push(edgeIndex);
+            if (path.lowerBound() < getBestLength()) search(path);
+            path.pop();
+        }
+    }
+
+    private class SearchTask extends RecursiveAction {
+        private static final long serialVersionUID = 1L;
+        private final PartialPath path;
+
+        SearchTask(PartialPath path) {
+            this.path = path;
+        }
+
+        @Override
+        protected void compute() {
+            if (path.depth >= SPLIT_DEPTH || path.depth >= numberOfCities - 1) {
+                search(path);
+                return;
+            }
+            List<SearchTask> subtasks = new ArrayList<>();
+            for (int edgeIndex : promisingEdges(path)) {
+                PartialPath child = path.copy();
+                child.push(edgeIndex);
+                subtasks.add(new SearchTask(child));
+            }
+            invokeAll(subtasks);
+        }
+    }
+
+    /**
+     * @return the edge ids of the given tour, if it is a hamiltonian cycle of the graph, or null otherwise.
+     */
+    private int[] validTour(List<Integer> tour) {
+        if (tour == null || tour.size() != numberOfCities) return null;
+        boolean[] entered = new boolean[numberOfCities + 1];
+        for (int index = 0; index < tour.size(); index++) {
+            int edgeIndex = tour.get(index);
+            if (edgeIndex < 0 || edgeIndex >= cityGraph.getNumberOfEdges()) return null;
+            int nextEdge = tour.get((index + 1) % tour.size());
+            if (nextEdge < 0 || nextEdge >= cityGraph.getNumberOfEdges() ||
+                    cityGraph.getTarget(edgeIndex) != cityGraph.getSource(nextEdge)) return null;
+            if (entered[cityGraph.getTarget(edgeIndex)]) return null;
+            entered[cityGraph.getTarget(edgeIndex)] = true;
+        }
+        return tour.stream().mapToInt(Integer::intValue).toArray();
+    }
+
+    /**
+     * Greedy nearest-neighbour tour from the city 1; it might not exist on sparse graphs.
+     * @return the edge ids of the tour, or null if the greedy walk reached a dead end.
+     */
+    private int[] greedyTour() {
+        PartialPath path = new PartialPath();
+        while (path.depth < numberOfCities - 1) {
+            int nextEdge = -1;
+            for (int edgeIndex : sortedOutEdges[path.currentCity]) {
+                if (!path.visited[cityGraph.getTarget(edgeIndex)]) {
+                    nextEdge = edgeIndex;
+                    break;
+                }
+            }
+            if (nextEdge == -1) return null;
+            path.push(nextEdge);
+        }
+        int closingEdge = cityGraph.getEdgeId(path.currentCity, 1);
+        if (closingEdge == -1) return null;
+        path.edges[path.depth] = closingEdge;
+        return path.edges;
+    }
+
+    /**
+     * Find the minimum cost hamiltonian cycle of the given graph.
+     * @param cityGraph the graph of the roads.
+     * @param initialTour a known tour (a list of edge ids) used as the first incumbent; it is ignored if it is
+     *                    null or not a hamiltonian cycle of the graph.
+     * @return the list of edge ids of the optimal tour, or an empty list if the graph doesn't contain
+     *          a hamiltonian cycle.
+     */
+    public static List<Integer> findOptimalTour(CityGraph cityGraph, List<Integer> initialTour) {
+        BranchAndBoundSearch search = new BranchAndBoundSearch(cityGraph);
+        if (search.numberOfCities < 2) return new ArrayList<>();
+        for (int[] seed : new int[][]{search.validTour(initialTour), search.greedyTour()}) {
+            if (seed != null) {
+                double length = 0.0;
+                for (int edgeIndex : seed) length += cityGraph.getLength(edgeIndex);
+                search.offer(length, seed);
+            }
+        }
+        ForkJoinPool.commonPool().invoke(search.new SearchTask(search.new PartialPath()));
+        if (search.bestTour == null) return new ArrayList<>();
+        return Arrays.stream(search.bestTour).boxed().collect(Collectors.toList());
+    }
+
+    /**
+     * Read a tour written by writer.Writer (a list of edge ids, e.g. "[40, 129, 115]").
+     * @param fileName the name of the file.
+     * @return the list of edge ids, or an empty list if the file cannot be read.
+     */
+    public static List<Integer> readTour(String fileName) {
+        try {
+            String content = new String(Files.readAllBytes(Paths.get(fileName)), StandardCharsets.UTF_8)
+                    .replace("[", "").replace("]", "").trim();
+            if (content.isEmpty()) return new ArrayList<>();
+            return Arrays.stream(content.split(","))
+                    .map(String::trim)
+                    .map(Integer::parseInt)
+                    .collect(Collectors.toList());
+        } catch (IOException | NumberFormatException e) {
+            System.out.println("cannot read the tour from " + fileName + ": " + e.getMessage());
+            return new ArrayList<>();
+        }
+    }
+
+    public static void main(String[] args) {
+
+        List<AntAgent.CityRoad> cityGrid = BacktrackingSearch.readGrid();
+        CityGraph cityGraph = new CityGraph(BacktrackingSearch.numberOfCities, cityGrid);
+
+        List<Integer> bestPath = findOptimalTour(cityGraph, readTour("last_path.txt"));
+
+        System.out.println("bestLength = " + cityGraph.pathLength(bestPath));
+        System.out.println("bestTour: " + bestPath.stream().map(id -> cityGrid.get(id).toString())
+                .collect(Collectors.toList()));
+
+    }
+
+}
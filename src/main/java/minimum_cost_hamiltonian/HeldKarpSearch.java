@@ -0,0 +1,175 @@
+package minimum_cost_hamiltonian;
+
+import agents.AntAgent;
+import agents.mechanics.CityGraph;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.List;
+import java.util.stream.Collectors;
+import java.util.stream.IntStream;
+
+/**
+ * Exact minimum cost hamiltonian cycle, using the Held-Karp dynamic programming algorithm.
+ * The tour starts from the city 1; for every subset S of the other cities and every city j from S,
+ * cost(S, j) = the length of the shortest path that starts from the city 1, visits all the cities
+ * from S exactly once and ends in j:
+ * - cost({j}, j) = d(1, j);
+ * - cost(S, j) = min{cost(S - {j}, k) + d(k, j) | k from S - {j}}.
+ * The subsets with the same number of cities only depend on the smaller ones, so every
+ * layer is filled in parallel. Time: O(n^2 * 2^n), memory: O(n * 2^n) doubles.
+ */
+public class HeldKarpSearch {
+
+    // the largest number of entries stored in a single array of the cost table:
+    private static final int CHUNK_BITS = 27;
+    private static final int CHUNK_SIZE = 1 << CHUNK_BITS;
+
+    /**
+     * Flat cost table, split into several double arrays when it doesn't fit in one.
+     * The entry of (subset, j) is at subset * width + j.
+     */
+    private static class CostTable {
+        private final double[][] chunks;
+        private final int width;
+
+        CostTable(int numberOfSubsets, int width) {
+            this.width = width;
+            long size = (long) numberOfSubsets * width;
+            chunks = new double[(int) ((size + CHUNK_SIZE - 1) >>> CHUNK_BITS)][];
+            for (int chunkIndex = 0; chunkIndex < chunks.length; chunkIndex++) {
+                chunks[chunkIndex] = new double[(int) Math.min(CHUNK_SIZE, size - ((long) chunkIndex << CHUNK_BITS))];
+                Arrays.fill(chunks[chunkIndex], Double.POSITIVE_INFINITY);
+            }
+        }
+
+        double get(int subset, int city) {
+            long index = (long) subset * width + city;
+            return chunks[(int) (index >>> CHUNK_BITS)][(int) (index & (CHUNK_SIZE - 1))];
+        }
+
+        void set(int subset, int city, double value) {
+            long index = (long) subset * width + city;
+            chunks[(int) (index >>> CHUNK_BITS)][(int) (index & (CHUNK_SIZE - 1))] = value;
+        }
+    }
+
+    /**
+     * Find the minimum cost hamiltonian cycle of the given graph.
+     * @param cityGraph the graph of the roads.
+     * @return the list of edge ids of the optimal tour, starting from the city 1, or an empty list if the
+     *          graph doesn't contain a hamiltonian cycle.
+     */
+    public static List<Integer> findOptimalTour(CityGraph cityGraph) {
+        int numberOfCities = cityGraph.getNumberOfCities();
+        if (numberOfCities < 2) return new ArrayList<>();
+        if (numberOfCities > 31)
+            throw new IllegalArgumentException("too many cities for the Held-Karp search: " + numberOfCities);
+
+        // distance[i][j] = the length of the road from the city i + 1 to the city j + 1 (or infinity):
+        double[][] distance = new double[numberOfCities][numberOfCities];
+        for (double[] row : distance) Arrays.fill(row, Double.POSITIVE_INFINITY);
+        for (int edgeIndex = 0; edgeIndex < cityGraph.getNumberOfEdges(); edgeIndex++) {
+            int source = cityGraph.getSource(edgeIndex) - 1;
+            int target = cityGraph.getTarget(edgeIndex) - 1;
+            distance[source][target] = Math.min(distance[source][target], cityGraph.getLength(edgeIndex));
+        }
+
+        // the bit j of a subset stands for the city j + 2 (the city 1 is the start of the tour):
+        int width = numberOfCities - 1;
+        int numberOfSubsets = 1 << width;
+        CostTable cost = new CostTable(numberOfSubsets, width);
+        for (int city = 0; city < width; city++) {
+            cost.set(1 << city, city, distance[0][city + 1]);
+        }
+        for (int layer = 2; layer <= width; layer++) {
+            final int subsetSize = layer;
+            IntStream.range(0, numberOfSubsets).parallel()
+                    .filter(subset -> Integer.bitCount(subset) == subsetSize)
+                    .forEach(subset -> {
+                        for (int last = 0; last < width; last++) {
+                            if ((subset & (1 << last)) == 0) continue;
+                            int previousSubset = subset & ~(1 << last);
+                            double best = Double.POSITIVE_INFINITY;
+                            for (int previous = 0; previous < width; previous++) {
+                                if ((previousSubset & (1 << previous)) == 0) continue;
+                                double candidate = cost.get(previousSubset, previous) +
+                                        distance[previous + 1][last + 1];
+                                if (candidate < best) best = candidate;
+                            }
+                            cost.set(subset, last, best);
+                        }
+                    });
+        }
+
+        // close the tour:
+        int fullSubset = numberOfSubsets - 1;
+        int bestLast = -1;
+        double bestLength = Double.POSITIVE_INFINITY;
+        for (int last = 0; last < width; last++) {
+            double candidate = cost.get(fullSubset, last) + distance[last + 1][0];
+            if (candidate < bestLength) {
+                bestLength = candidate;
+                bestLast = last;
+            }
+        }
+        if (bestLast == -1) return new ArrayList<>();
+
+        // reconstruct the tour backwards, by finding the predecessor that produced each cost:
+        List<Integer> cities = new ArrayList<>();
+        int subset = fullSubset;
+        int last = bestLast;
+        while (last != -1) {
+            cities.add(last + 1);
+            int previousSubset = subset & ~(1 << last);
+            int predecessor = -1;
+            for (int previous = 0; previous < width && previousSubset != 0; previous++) {
+                if ((previousSubset & (1 << previous)) == 0) continue;
+                if (cost.get(previousSubset, previous) + distance[previous + 1][last + 1] == cost.get(subset, last)) {
+                    predecessor = previous;
+                    break;
+                }
+            }
+            subset = previousSubset;
+            last = predecessor;
+        }
+        cities.add(0);
+        Collections.reverse(cities);
+        cities.add(0);
+
+        List<Integer> optimalPath = new ArrayList<>();
+        for (int cityIndex = 0; cityIndex + 1 < cities.size(); cityIndex++) {
+            optimalPath.add(shortestEdge(cityGraph, cities.get(cityIndex) + 1, cities.get(cityIndex + 1) + 1));
+        }
+        return optimalPath;
+    }
+
+    /**
+     * @return the id of the shortest road between the two cities.
+     */
+    private static int shortestEdge(CityGraph cityGraph, int sourceCity, int targetCity) {
+        int result = -1;
+        for (int slot = cityGraph.firstSlot(sourceCity); slot < cityGraph.endSlot(sourceCity); slot++) {
+            int edgeIndex = cityGraph.edgeAt(slot);
+            if (cityGraph.getTarget(edgeIndex) == targetCity &&
+                    (result == -1 || cityGraph.getLength(edgeIndex) < cityGraph.getLength(result)))
+                result = edgeIndex;
+        }
+        return result;
+    }
+
+    public static void main(String[] args) {
+
+        List<AntAgent.CityRoad> cityGrid = BacktrackingSearch.readGrid();
+        CityGraph cityGraph = new CityGraph(BacktrackingSearch.numberOfCities, cityGrid);
+
+        List<Integer> bestPath = findOptimalTour(cityGraph);
+
+        System.out.println("bestLength = " + cityGraph.pathLength(bestPath));
+        System.out.println("bestTour: " + bestPath.stream().map(id -> cityGrid.get(id).toString())
+                .collect(Collectors.toList()));
+
+    }
+
+}
@@ -0,0 +1,119 @@
+package writer;
+
+import java.io.BufferedWriter;
+import java.io.FileWriter;
+import java.io.IOException;
+import java.nio.file.Paths;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+
+/**
+ * A JSON-lines file, written while the colony runs: every line is one JSON object, flushed right away,
+ * so that the file can be followed (e.g. with tail -f) and the lines of a killed run are kept.
+ * All the agents of the JVM that use the same file share one writer (see open), and the lines
+ * of the agents are never interleaved.
+ */
+public class MetricsWriter {
+
+    private static final Map<String, MetricsWriter> openWriters = new ConcurrentHashMap<>();
+
+    private final BufferedWriter bufferedWriter;
+
+    private MetricsWriter(String fileName) throws IOException {
+        bufferedWriter = new BufferedWriter(new FileWriter(fileName));
+    }
+
+    /**
+     * Get the writer of a file; the file is truncated when it is opened for the first time in the JVM.
+     * @param fileName the name of the file.
+     * @return the shared writer of the file, or null if the file cannot be created.
+     */
+    public static MetricsWriter open(String fileName) {
+        String key = Paths.get(fileName).toAbsolutePath().normalize().toString();
+        return openWriters.computeIfAbsent(key, path -> {
+            try {
+                return new MetricsWriter(path);
+            } catch (IOException e) {
+                e.printStackTrace();
+                return null;
+            }
+        });
+    }
+
+    /**
+     * Append a line to the file.
+     * @param line a JSON object, see JsonLine.
+     */
+    public synchronized void write(JsonLine line) {
+        try {
+            bufferedWriter.write(line.toString());
+            bufferedWriter.newLine();
+            bufferedWriter.flush();
+        } catch (IOException e) {
+            e.printStackTrace();
+        }
+    }
+
+    /**
+     * Close the file, for all the agents that use it; the next call to open truncates it again.
+     */
+    public synchronized void close() {
+        openWriters.values().remove(this);
+        try {
+            bufferedWriter.close();
+        } catch (IOException e) {
+            e.printStackTrace();
+        }
+    }
+
+    /**
+     * A flat JSON object, built field by field.
+     */
+    public static class JsonLine {
+        private final StringBuilder stringBuilder = new StringBuilder("{");
+
+        private JsonLine name(String name) {
+            if (stringBuilder.length() > 1) stringBuilder.append(',');
+            stringBuilder.append('"').append(name).append("\":");
+            return this;
+        }
+
+        public JsonLine field(String name, long value) {
+            name(name).stringBuilder.append(value);
+            return this;
+        }
+
+        /**
+         * note: JSON has no infinity or NaN, so they are written as null.
+         */
+        public JsonLine field(String name, double value) {
+            if (Double.isNaN(value) || Double.isInfinite(value)) {
+                name(name).stringBuilder.append("null");
+            } else {
+                name(name).stringBuilder.append(value);
+            }
+            return this;
+        }
+
+        public JsonLine field(String name, String value) {
+            name(name).stringBuilder.append('"');
+            for (char character : value.toCharArray()) {
+                if (character == '"' || character == '\\') {
+                    stringBuilder.append('\\').append(character);
+                } else if (character < 0x20) {
+                    stringBuilder.append(String.format("\\u%04x", (int) character));
+                } else {
+                    stringBuilder.append(character);
+                }
+            }
+            stringBuilder.append('"');
+            return this;
+        }
+
+        @Override
+        public String toString() {
+            return stringBuilder + "}";
+        }
+    }
+
+}
@@ -0,0 +1,159 @@
+package writer;
+
+import java.io.EOFException;
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.file.Paths;
+import java.nio.file.StandardOpenOption;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.List;
+
+/**
+ * Reads a stream written by SnapshotStreamWriter, and rebuilds the full pheromone levels of every record by
+ * applying the changed levels to the levels of the previous records.
+ * It can also be run from the command line:
+ * java writer.SnapshotStreamReader stream_file [iteration]
+ * prints one line per record (the iteration, the best length, the number of changed levels and the largest level),
+ * or, with an iteration, the best tour and the pheromone levels of that iteration (one "edge level" per line).
+ */
+public class SnapshotStreamReader implements AutoCloseable {
+
+    private final FileChannel fileChannel;
+    private final double threshold;
+    private final double[] pheromoneLevel;
+    private ByteBuffer recordBuffer = ByteBuffer.allocate(1024);
+
+    private int iteration = -1;
+    private double bestLength = Double.POSITIVE_INFINITY;
+    private List<Integer> bestPath = Collections.emptyList();
+    private int changedLevels = 0;
+
+    /**
+     * @param fileName the name of the stream file.
+     * @throws IOException if the file cannot be read, or if it is not a snapshot stream.
+     */
+    public SnapshotStreamReader(String fileName) throws IOException {
+        fileChannel = FileChannel.open(Paths.get(fileName), StandardOpenOption.READ);
+        try {
+            ByteBuffer header = ByteBuffer.allocate(20);
+            if (!readFully(header)) throw new IOException(fileName + " is not a snapshot stream");
+            if (header.getInt() != SnapshotStreamWriter.MAGIC) {
+                throw new IOException(fileName + " is not a snapshot stream");
+            }
+            int version = header.getInt();
+            if (version != SnapshotStreamWriter.VERSION) {
+                throw new IOException("unsupported snapshot stream version: " + version);
+            }
+            pheromoneLevel = new double[header.getInt()];
+            threshold = header.getDouble();
+        } catch (IOException e) {
+            fileChannel.close();
+            throw e;
+        }
+    }
+
+    /**
+     * Read the next record.
+     * @return false at the end of the stream (a record truncated by a killed run is ignored).
+     * @throws IOException if the file cannot be read.
+     */
+    public boolean next() throws IOException {
+        ByteBuffer sizeBuffer = ByteBuffer.allocate(4);
+        if (!readFully(sizeBuffer)) return false;
+        int recordSize = sizeBuffer.getInt();
+        if (recordBuffer.capacity() < recordSize) recordBuffer = ByteBuffer.allocate(recordSize);
+        recordBuffer.clear();
+        recordBuffer.limit(recordSize);
+        if (!readFully(recordBuffer)) return false;
+        iteration = SnapshotStreamWriter.getVarint(recordBuffer);
+        bestLength = recordBuffer.getDouble();
+        int pathSize = SnapshotStreamWriter.getVarint(recordBuffer);
+        bestPath = new ArrayList<>(pathSize);
+        for (int index = 0; index < pathSize; index++) bestPath.add(SnapshotStreamWriter.getVarint(recordBuffer));
+        changedLevels = SnapshotStreamWriter.getVarint(recordBuffer);
+        int edgeIndex = 0;
+        for (int changeIndex = 0; changeIndex < changedLevels; changeIndex++) {
+            edgeIndex += SnapshotStreamWriter.getVarint(recordBuffer);
+            pheromoneLevel[edgeIndex] = recordBuffer.getDouble();
+        }
+        return true;
+    }
+
+    /**
+     * Fill the buffer from the file.
+     * @return false if the file ends first.
+     */
+    private boolean readFully(ByteBuffer buffer) throws IOException {
+        while (buffer.hasRemaining()) {
+            if (fileChannel.read(buffer) == -1) return false;
+        }
+        buffer.flip();
+        return true;
+    }
+
+    public double getThreshold() {
+        return threshold;
+    }
+
+    public int getIteration() {
+        return iteration;
+    }
+
+    public double getBestLength() {
+        return bestLength;
+    }
+
+    public List<Integer> getBestPath() {
+        return bestPath;
+    }
+
+    /**
+     * @return the number of levels stored in the current record.
+     */
+    public int getChangedLevels() {
+        return changedLevels;
+    }
+
+    /**
+     * @return the full pheromone levels of the current record; the array is reused by the next record.
+     */
+    public double[] getPheromoneLevel() {
+        return pheromoneLevel;
+    }
+
+    @Override
+    public void close() throws IOException {
+        fileChannel.close();
+    }
+
+    public static void main(String[] args) throws IOException {
+        if (args.length < 1) {
+            System.out.println("usage: java writer.SnapshotStreamReader stream_file [iteration]");
+            return;
+        }
+        Integer selectedIteration = args.length > 1 ? Integer.valueOf(args[1]) : null;
+        try (SnapshotStreamReader reader = new SnapshotStreamReader(args[0])) {
+            while (reader.next()) {
+                if (selectedIteration == null) {
+                    double maximumLevel = 0.0;
+                    for (double level : reader.getPheromoneLevel()) maximumLevel = Math.max(maximumLevel, level);
+                    System.out.println(reader.getIteration() + " " + reader.getBestLength() + " " +
+                            reader.getChangedLevels() + " " + maximumLevel);
+                } else if (reader.getIteration() == selectedIteration) {
+                    System.out.println(reader.getBestPath() + ", " + reader.getBestLength());
+                    double[] levels = reader.getPheromoneLevel();
+                    for (int edgeIndex = 0; edgeIndex < levels.length; edgeIndex++) {
+                        System.out.println(edgeIndex + " " + levels[edgeIndex]);
+                    }
+                    return;
+                }
+            }
+            if (selectedIteration != null) {
+                throw new EOFException("iteration " + selectedIteration + " is not in " + args[0]);
+            }
+        }
+    }
+
+}
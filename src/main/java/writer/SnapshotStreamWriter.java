@@ -0,0 +1,221 @@
+package writer;
+
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.file.Paths;
+import java.nio.file.StandardOpenOption;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+import java.util.concurrent.ArrayBlockingQueue;
+import java.util.concurrent.BlockingQueue;
+import java.util.concurrent.atomic.AtomicLong;
+
+/**
+ * A binary stream of the state of the colony, one record per iteration, written by a background thread:
+ * the ant only copies its pheromone levels into a bounded queue (see offer), and the encoding and the file writes
+ * happen on the writer thread, so a slow disk never blocks the behaviours of the ant. When the queue is full the
+ * snapshot is dropped (and counted), rather than waiting.
+ * Only the pheromone levels that changed by more than threshold * (the largest level of the snapshot) since
+ * they were last written are stored; the first record stores all of them. SnapshotStreamReader rebuilds the full
+ * snapshots.
+ * The binary form (big-endian) is:
+ * - a header: 4 bytes: the magic number "ACOS", 4 bytes: the version, 4 bytes: the number of edges,
+ * 8 bytes: the threshold;
+ * - for every record: 4 bytes: the size of the rest of the record, then a varint: the iteration,
+ * 8 bytes: the best length, a varint: the number of edges of the best tour, a varint per edge id,
+ * a varint: the number of changed levels, then for every changed level a varint: the difference between its
+ * edge id and the previous one, and 8 bytes: the level.
+ */
+public class SnapshotStreamWriter implements AutoCloseable {
+
+    static final int MAGIC = 0x41434f53;
+    static final int VERSION = 1;
+    static final int DEFAULT_QUEUE_CAPACITY = 64;
+
+    private static class Snapshot {
+        private final int iteration;
+        private final double[] pheromoneLevel;
+        private final List<Integer> bestPath;
+        private final double bestLength;
+
+        private Snapshot(int iteration, double[] pheromoneLevel, List<Integer> bestPath, double bestLength) {
+            this.iteration = iteration;
+            this.pheromoneLevel = pheromoneLevel;
+            this.bestPath = bestPath;
+            this.bestLength = bestLength;
+        }
+    }
+
+    // put in the queue by close, to stop the writer thread:
+    private static final Snapshot END_OF_STREAM = new Snapshot(-1, null, null, 0.0);
+
+    private final FileChannel fileChannel;
+    private final double threshold;
+    private final BlockingQueue<Snapshot> queue;
+    private final Thread writerThread;
+    private final AtomicLong droppedSnapshots = new AtomicLong();
+    private volatile boolean closed = false;
+    private IOException writeError = null;
+
+    // the levels as they were last written (only used by the writer thread):
+    private final double[] writtenLevel;
+    private ByteBuffer recordBuffer = ByteBuffer.allocate(1024);
+
+    /**
+     * Create (or truncate) the file and start the writer thread.
+     * @param fileName the name of the file.
+     * @param numberOfEdges the number of pheromone levels of every snapshot.
+     * @param threshold the relative change of a level below which it is not written (0 writes every change).
+     * @param queueCapacity the number of snapshots that can wait for the writer thread.
+     * @throws IOException if the file cannot be created.
+     */
+    public SnapshotStreamWriter(String fileName, int numberOfEdges, double threshold, int queueCapacity)
+            throws IOException {
+        fileChannel = FileChannel.open(Paths.get(fileName), StandardOpenOption.CREATE,
+                StandardOpenOption.WRITE, StandardOpenOption.TRUNCATE_EXISTING);
+        this.threshold = threshold;
+        queue = new ArrayBlockingQueue<>(queueCapacity);
+        writtenLevel = new double[numberOfEdges];
+        Arrays.fill(writtenLevel, Double.NaN);
+        ByteBuffer header = ByteBuffer.allocate(20);
+        header.putInt(MAGIC).putInt(VERSION).putInt(numberOfEdges).putDouble(threshold);
+        header.flip();
+        writeFully(header);
+        writerThread = new Thread(this::writeSnapshots, "snapshot-writer-" + Paths.get(fileName).getFileName());
+        writerThread.setDaemon(true);
+        writerThread.start();
+    }
+
+    public SnapshotStreamWriter(String fileName, int numberOfEdges, double threshold) throws IOException {
+        this(fileName, numberOfEdges, threshold, DEFAULT_QUEUE_CAPACITY);
+    }
+
+    /**
+     * Queue the snapshot of an iteration; the pheromone levels and the path are copied, so the caller can keep
+     * updating them. Never blocks.
+     * @param iteration the number of the iteration.
+     * @param pheromoneLevel the pheromone levels.
+     * @param bestPath the edge ids of the best tour so far (or null if there is none).
+     * @param bestLength the length of the best tour so far.
+     * @return false if the snapshot was dropped, because the queue is full or the stream is closed.
+     */
+    public boolean offer(int iteration, double[] pheromoneLevel, List<Integer> bestPath, double bestLength) {
+        if (closed) return false;
+        if (pheromoneLevel.length != writtenLevel.length) {
+            throw new IllegalArgumentException("expected " + writtenLevel.length + " pheromone levels, got " +
+                    pheromoneLevel.length);
+        }
+        Snapshot snapshot = new Snapshot(iteration, pheromoneLevel.clone(),
+                bestPath == null ? new ArrayList<>() : new ArrayList<>(bestPath), bestLength);
+        if (queue.offer(snapshot)) return true;
+        droppedSnapshots.incrementAndGet();
+        return false;
+    }
+
+    /**
+     * @return the number of snapshots dropped because the queue was full.
+     */
+    public long getDroppedSnapshots() {
+        return droppedSnapshots.get();
+    }
+
+    /**
+     * Write the snapshots that are still queued, then close the file; calling it again does nothing.
+     * @throws IOException if a snapshot could not be written.
+     */
+    @Override
+    public synchronized void close() throws IOException {
+        if (closed) return;
+        closed = true;
+        try {
+            queue.put(END_OF_STREAM);
+            writerThread.join();
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+        } finally {
+            fileChannel.close();
+        }
+        if (writeError != null) throw writeError;
+    }
+
+    private void writeSnapshots() {
+        try {
+            while (true) {
+                Snapshot snapshot = queue.take();
+                if (snapshot == END_OF_STREAM) return;
+                if (writeError == null) writeSnapshot(snapshot);
+            }
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+        }
+    }
+
+    private void writeSnapshot(Snapshot snapshot) {
+        double maximumLevel = 0.0;
+        for (double level : snapshot.pheromoneLevel) maximumLevel = Math.max(maximumLevel, level);
+        double minimumChange = threshold * maximumLevel;
+        int[] changedEdges = new int[snapshot.pheromoneLevel.length];
+        int numberOfChanges = 0;
+        for (int edgeIndex = 0; edgeIndex < snapshot.pheromoneLevel.length; edgeIndex++) {
+            double level = snapshot.pheromoneLevel[edgeIndex];
+            double change = Math.abs(level - writtenLevel[edgeIndex]);
+            // (NaN for the levels that were never written)
+            if (Double.isNaN(change) || change > minimumChange) {
+                changedEdges[numberOfChanges++] = edgeIndex;
+                writtenLevel[edgeIndex] = level;
+            }
+        }
+        // at most 5 bytes for every varint:
+        int maximumSize = 4 + 5 + 8 + 5 * (snapshot.bestPath.size() + 1) + 5 + 13 * numberOfChanges;
+        if (recordBuffer.capacity() < maximumSize) recordBuffer = ByteBuffer.allocate(2 * maximumSize);
+        recordBuffer.clear();
+        recordBuffer.position(4);
+        putVarint(recordBuffer, snapshot.iteration);
+        recordBuffer.putDouble(snapshot.bestLength);
+        putVarint(recordBuffer, snapshot.bestPath.size());
+        for (int edgeIndex : snapshot.bestPath) putVarint(recordBuffer, edgeIndex);
+        putVarint(recordBuffer, numberOfChanges);
+        int previousEdge = 0;
+        for (int changeIndex = 0; changeIndex < numberOfChanges; changeIndex++) {
+            int edgeIndex = changedEdges[changeIndex];
+            putVarint(recordBuffer, edgeIndex - previousEdge);
+            recordBuffer.putDouble(writtenLevel[edgeIndex]);
+            previousEdge = edgeIndex;
+        }
+        recordBuffer.putInt(0, recordBuffer.position() - 4);
+        recordBuffer.flip();
+        try {
+            writeFully(recordBuffer);
+        } catch (IOException e) {
+            // the next snapshots are discarded, and close reports the error:
+            writeError = e;
+        }
+    }
+
+    private void writeFully(ByteBuffer buffer) throws IOException {
+        while (buffer.hasRemaining()) fileChannel.write(buffer);
+    }
+
+    static void putVarint(ByteBuffer buffer, int value) {
+        while ((value & ~0x7F) != 0) {
+            buffer.put((byte) ((value & 0x7F) | 0x80));
+            value >>>= 7;
+        }
+        buffer.put((byte) value);
+    }
+
+    static int getVarint(ByteBuffer buffer) {
+        int result = 0;
+        int shift = 0;
+        byte currentByte;
+        do {
+            currentByte = buffer.get();
+            result |= (currentByte & 0x7F) << shift;
+            shift += 7;
+        } while ((currentByte & 0x80) != 0);
+        return result;
+    }
+
+}
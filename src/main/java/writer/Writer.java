@@ -16,6 +16,15 @@ public class Writer {
      * @param cityGrid
      */
     public static void write(Double[] pheromoneLevel, List<AntAgent.CityRoad> cityGrid){
+        write(Arrays.stream(pheromoneLevel).mapToDouble(Double::doubleValue).toArray(), cityGrid);
+    }
+
+    /**
+     *
+     * @param pheromoneLevel
+     * @param cityGrid
+     */
+    public static void write(double[] pheromoneLevel, List<AntAgent.CityRoad> cityGrid){
         try {
             BufferedWriter bufferedWriter = new BufferedWriter(new
                     FileWriter("pheromone_levels.txt"));
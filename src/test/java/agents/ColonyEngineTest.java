@@ -0,0 +1,92 @@
+package agents;
+
+import agents.mechanics.TerminationCriteria;
+import org.junit.jupiter.api.Test;
+
+import java.util.concurrent.ForkJoinPool;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+public class ColonyEngineTest {
+
+    private static ColonyEngine run(int threads, long seed) {
+        ForkJoinPool pool = new ForkJoinPool(threads);
+        try {
+            ColonyEngine colonyEngine = new ColonyEngine(Environment.load(Environment.DEFAULT_INPUT_FILE),
+                    8, 10, true, pool, seed);
+            for (int iteration = 0; iteration < 20; iteration++) colonyEngine.runIteration();
+            return colonyEngine;
+        } finally {
+            pool.shutdown();
+        }
+    }
+
+    @Test
+    public void sameSeedTest() {
+        // the results only depend on the seed, not on the number of threads:
+        ColonyEngine firstEngine = run(1, 42);
+        ColonyEngine secondEngine = run(4, 42);
+        assertEquals(firstEngine.getBestPath(), secondEngine.getBestPath());
+        assertEquals(firstEngine.getIterationLengths(), secondEngine.getIterationLengths());
+        assertArrayEquals(firstEngine.getPheromoneLevel(), secondEngine.getPheromoneLevel(), 0.0);
+    }
+
+    @Test
+    public void optimalTourTest() {
+        ColonyEngine colonyEngine = run(2, 1);
+        assertEquals(20, colonyEngine.getCurrentIteration());
+        // the optimal tour of environment.txt, found with the Held-Karp algorithm:
+        assertEquals(1.596714941040003, colonyEngine.getBestLength(), 1e-9);
+    }
+
+    @Test
+    public void asynchronousTest() {
+        ForkJoinPool pool = new ForkJoinPool(2);
+        try {
+            ColonyEngine colonyEngine = new ColonyEngine(Environment.load(Environment.DEFAULT_INPUT_FILE),
+                    8, 10, true, pool, 1);
+            colonyEngine.runAsynchronous(20);
+            assertEquals(20, colonyEngine.getCurrentIteration());
+            assertEquals(20, colonyEngine.getIterationLengths().size());
+            assertEquals(1.596714941040003, colonyEngine.getBestLength(), 1e-9);
+        } finally {
+            pool.shutdown();
+        }
+    }
+
+    @Test
+    public void earlyTerminationTest() {
+        ForkJoinPool pool = new ForkJoinPool(2);
+        try {
+            ColonyEngine colonyEngine = new ColonyEngine(Environment.load(Environment.DEFAULT_INPUT_FILE),
+                    8, 10, true, pool, 1);
+            // stop as soon as the optimal tour is found:
+            colonyEngine.setTerminationCriteria(new TerminationCriteria(0, 0.0, 1.5967149411, 0));
+            colonyEngine.run();
+            assertNotNull(colonyEngine.getTerminationReason());
+            assertTrue(colonyEngine.getCurrentIteration() < Environment.load(Environment.DEFAULT_INPUT_FILE)
+                    .getNumberOfIterations());
+            assertEquals(1.596714941040003, colonyEngine.getBestLength(), 1e-9);
+        } finally {
+            pool.shutdown();
+        }
+    }
+
+    @Test
+    public void asynchronousTerminationTest() {
+        ForkJoinPool pool = new ForkJoinPool(2);
+        try {
+            ColonyEngine colonyEngine = new ColonyEngine(Environment.load(Environment.DEFAULT_INPUT_FILE),
+                    8, 10, true, pool, 1);
+            colonyEngine.setTerminationCriteria(new TerminationCriteria(0, 0.0, 1.5967149411, 0));
+            colonyEngine.runAsynchronous(1000);
+            assertNotNull(colonyEngine.getTerminationReason());
+            assertTrue(colonyEngine.getCurrentIteration() < 1000);
+            assertEquals(colonyEngine.getCurrentIteration(), colonyEngine.getIterationLengths().size());
+            assertEquals(1.596714941040003, colonyEngine.getBestLength(), 1e-9);
+        } finally {
+            pool.shutdown();
+        }
+    }
+
+}
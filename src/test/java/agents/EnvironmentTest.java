@@ -0,0 +1,35 @@
+package agents;
+
+import org.junit.jupiter.api.Test;
+
+import java.io.IOException;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.Arrays;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+public class EnvironmentTest {
+
+    @Test
+    public void loadOnceTest() throws IOException {
+        Path environmentFile = Files.createTempFile("environment", ".txt");
+        try {
+            Files.write(environmentFile, Arrays.asList("3 2.0 0.5 1.0 10", "1 2 1.0", "2 3 2.0", "3 1 3.0"),
+                    StandardCharsets.UTF_8);
+            Environment environment = Environment.load(environmentFile.toString());
+            assertEquals(3, environment.getNumberOfCities());
+            assertEquals(6, environment.getCityGrid().size());
+            assertEquals(6, environment.getCityGraph().getNumberOfEdges());
+            // the same file is only read once, even through a different path:
+            assertSame(environment, Environment.load(environmentFile.getParent().resolve(".")
+                    .resolve(environmentFile.getFileName()).toString()));
+            // the shared grid cannot be changed by one of the agents:
+            assertThrows(UnsupportedOperationException.class, () -> environment.getCityGrid().clear());
+        } finally {
+            Files.delete(environmentFile);
+        }
+    }
+
+}
@@ -0,0 +1,56 @@
+package agents;
+
+import agents.mechanics.CityGraph;
+import org.junit.jupiter.api.Test;
+
+import java.io.IOException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.List;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+public class InstanceGeneratorTest {
+
+    @Test
+    public void sameSeedTest() {
+        for (String kind : new String[]{InstanceGenerator.RANDOM, InstanceGenerator.EUCLIDEAN,
+                InstanceGenerator.CLUSTERED}) {
+            List<AntAgent.CityRoad> roads = InstanceGenerator.generate(kind, 30, 0.2, 7);
+            assertEquals(roads.toString(), InstanceGenerator.generate(kind, 30, 0.2, 7).toString());
+            assertNotEquals(roads.toString(), InstanceGenerator.generate(kind, 30, 0.2, 8).toString());
+        }
+        // a complete graph has a road per pair of cities:
+        assertEquals(30 * 29 / 2, InstanceGenerator.generate(InstanceGenerator.EUCLIDEAN, 30, 1.0, 7).size());
+        assertThrows(IllegalArgumentException.class, () -> InstanceGenerator.generate("grid", 30, 1.0, 7));
+    }
+
+    @Test
+    public void textAndBinaryTest() throws IOException {
+        List<AntAgent.CityRoad> roads = InstanceGenerator.generate(InstanceGenerator.CLUSTERED, 25, 0.3, 3);
+        Path textFile = Files.createTempFile("generated", ".txt");
+        Path binaryFile = Files.createTempFile("generated", ".envb");
+        try {
+            InstanceGenerator.writeText(textFile, 25, roads, 40);
+            InstanceGenerator.writeBinary(binaryFile, 25, roads, 40);
+            Environment textEnvironment = Environment.read(textFile.toString());
+            Environment binaryEnvironment = Environment.read(binaryFile.toString());
+            assertEquals(25, binaryEnvironment.getNumberOfCities());
+            assertEquals(40, binaryEnvironment.getNumberOfIterations());
+            assertEquals(textEnvironment.getBetaParameter(), binaryEnvironment.getBetaParameter());
+            assertEquals(textEnvironment.getStrategyName(), binaryEnvironment.getStrategyName());
+            CityGraph textGraph = textEnvironment.getCityGraph();
+            CityGraph binaryGraph = binaryEnvironment.getCityGraph();
+            assertEquals(2 * roads.size(), binaryGraph.getNumberOfEdges());
+            for (int edgeIndex = 0; edgeIndex < textGraph.getNumberOfEdges(); edgeIndex++) {
+                assertEquals(textGraph.getSource(edgeIndex), binaryGraph.getSource(edgeIndex));
+                assertEquals(textGraph.getTarget(edgeIndex), binaryGraph.getTarget(edgeIndex));
+                assertEquals(textGraph.getLength(edgeIndex), binaryGraph.getLength(edgeIndex));
+            }
+        } finally {
+            Files.delete(textFile);
+            Files.delete(binaryFile);
+        }
+    }
+
+}
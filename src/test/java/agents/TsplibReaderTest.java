@@ -0,0 +1,52 @@
+package agents;
+
+import agents.mechanics.CompleteCityGraph;
+import org.junit.jupiter.api.Test;
+
+import java.io.IOException;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.Arrays;
+import java.util.List;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+public class TsplibReaderTest {
+
+    private static CompleteCityGraph read(List<String> lines) throws IOException {
+        Path tsplibFile = Files.createTempFile("instance", ".tsp");
+        try {
+            Files.write(tsplibFile, lines, StandardCharsets.UTF_8);
+            return TsplibReader.read(tsplibFile.toString());
+        } finally {
+            Files.delete(tsplibFile);
+        }
+    }
+
+    @Test
+    public void coordinatesTest() throws IOException {
+        CompleteCityGraph cityGraph = read(Arrays.asList("NAME : square4", "TYPE : TSP", "DIMENSION : 4",
+                "EDGE_WEIGHT_TYPE : EUC_2D", "NODE_COORD_SECTION", "1 0 0", "2 0 10", "4 10 0", "3 10 10", "EOF"));
+        assertEquals(4, cityGraph.getNumberOfCities());
+        assertEquals(10.0, cityGraph.distance(1, 2));
+        assertEquals(14.0, cityGraph.distance(1, 3));
+        assertEquals(10.0, cityGraph.distance(3, 4));
+    }
+
+    @Test
+    public void explicitTest() throws IOException {
+        CompleteCityGraph upperRow = read(Arrays.asList("TYPE: TSP", "DIMENSION: 3", "EDGE_WEIGHT_TYPE: EXPLICIT",
+                "EDGE_WEIGHT_FORMAT: UPPER_ROW", "EDGE_WEIGHT_SECTION", "5 7", "9", "EOF"));
+        CompleteCityGraph lowerDiagRow = read(Arrays.asList("TYPE: TSP", "DIMENSION: 3",
+                "EDGE_WEIGHT_TYPE: EXPLICIT", "EDGE_WEIGHT_FORMAT: LOWER_DIAG_ROW", "EDGE_WEIGHT_SECTION",
+                "0 5 0 7 9 0", "EOF"));
+        for (CompleteCityGraph cityGraph : Arrays.asList(upperRow, lowerDiagRow)) {
+            assertEquals(5.0, cityGraph.distance(1, 2));
+            assertEquals(5.0, cityGraph.distance(2, 1));
+            assertEquals(7.0, cityGraph.distance(3, 1));
+            assertEquals(9.0, cityGraph.distance(2, 3));
+        }
+    }
+
+}
@@ -43,11 +43,83 @@ public class AntAgentMechanicsTest {
         System.out.print("\tfor a random pheromone level array: ");
         assertEquals(expectedRandomPheromoneResult, randomPheromoneResult);
         System.out.println("Passed");
+        CityGraph cityGraph = new CityGraph(cityGrid);
+        double[] choiceInfo = new double[cityGrid.size()];
+        AntAgentMechanics.updateChoiceInfo(choiceInfo,
+                Arrays.stream(randomSubjectivePheromoneLevel).mapToDouble(Double::doubleValue).toArray(),
+                AntAgentMechanics.getHeuristicValues(cityGraph, betaParameter));
+        System.out.print("\tfor the cached choice information: ");
+        assertEquals(expectedRandomPheromoneResult, AntAgentMechanics.getNextStateProbability(
+                currentCity, availableCities, cityGraph, choiceInfo));
+        System.out.println("Passed");
+    }
+
+    @Test
+    public void tourConditionTest(){
+        for(int numberOfCities : new int[]{5, 130}){
+            long sourceCity = 3;
+            VisitedCitySet visitedCities = VisitedCitySet.empty(numberOfCities).with(sourceCity);
+            for(long city = 1;city <= numberOfCities;city++){
+                if(city == sourceCity)continue;
+                assertTrue(AntAgentMechanics.possibleNextCity(visitedCities, sourceCity, city));
+                assertFalse(AntAgentMechanics.possibleNextCity(visitedCities, sourceCity, sourceCity));
+                visitedCities = visitedCities.with(city);
+                assertFalse(AntAgentMechanics.possibleNextCity(visitedCities, sourceCity, city));
+            }
+            assertEquals(numberOfCities, visitedCities.size());
+            assertTrue(AntAgentMechanics.possibleNextCity(visitedCities, sourceCity, sourceCity));
+            assertFalse(AntAgentMechanics.tourCondition(visitedCities, sourceCity, sourceCity));
+            visitedCities = visitedCities.close();
+            assertFalse(AntAgentMechanics.tourCondition(visitedCities, sourceCity, 1));
+            assertTrue(AntAgentMechanics.tourCondition(visitedCities, sourceCity, sourceCity));
+        }
     }
 
     @Test
     public void updatePheromoneLevelTest(){
+        List<AntAgent.CityRoad> cityGrid = Arrays.asList(
+                new AntAgent.CityRoad(1L, 2L, 1.0),
+                new AntAgent.CityRoad(2L, 3L, 2.0),
+                new AntAgent.CityRoad(3L, 1L, 3.0),
+                new AntAgent.CityRoad(1L, 3L, 3.0),
+                new AntAgent.CityRoad(3L, 2L, 2.0),
+                new AntAgent.CityRoad(2L, 1L, 1.0)
+        );
+        List<List<Integer>> antPaths = Arrays.asList(Arrays.asList(0, 1, 2), Arrays.asList(3, 4, 5),
+                Arrays.asList(0, 1, 2), java.util.Collections.emptyList());
+        List<Double> tourLengths = Arrays.asList(6.0, 6.0, 6.0, 0.0);
+        Double[] currentPheromoneLevel = new Double[]{1.0, 2.0, 3.0, 4.0, 5.0, 6.0};
+        double[] expected = new double[]{0.7, 1.2, 1.7, 2.1, 2.6, 3.1};
 
+        Double[] adapterResult = AntAgentMechanics.updatePheromoneLevel(currentPheromoneLevel, antPaths, cityGrid,
+                tourLengths, 0.5, 0.6);
+        double[] pheromoneLevel = new double[]{1.0, 2.0, 3.0, 4.0, 5.0, 6.0};
+        AntAgentMechanics.updatePheromoneLevel(pheromoneLevel, antPaths, tourLengths, 0.5, 0.6);
+        for(int edgeIndex = 0;edgeIndex < expected.length;edgeIndex++){
+            assertEquals(expected[edgeIndex], adapterResult[edgeIndex], 1e-12);
+            assertEquals(expected[edgeIndex], pheromoneLevel[edgeIndex], 1e-12);
+        }
+        // the input of the adapter must not change:
+        assertEquals(1.0, currentPheromoneLevel[0], 0.0);
+    }
+
+    @Test
+    public void branchingFactorTest(){
+        List<AntAgent.CityRoad> cityGrid = Arrays.asList(
+                new AntAgent.CityRoad(1L, 2L, 1.0),
+                new AntAgent.CityRoad(1L, 3L, 1.0),
+                new AntAgent.CityRoad(2L, 1L, 1.0),
+                new AntAgent.CityRoad(2L, 3L, 1.0),
+                new AntAgent.CityRoad(3L, 1L, 1.0),
+                new AntAgent.CityRoad(3L, 2L, 1.0)
+        );
+        CityGraph cityGraph = new CityGraph(3, cityGrid);
+        // uniform levels: every edge is a branch:
+        assertEquals(2.0, AntAgentMechanics.branchingFactor(cityGraph, new double[]{1, 1, 1, 1, 1, 1}, 0.05),
+                1e-12);
+        // a single strong edge per city:
+        assertEquals(1.0, AntAgentMechanics.branchingFactor(cityGraph, new double[]{5, 0, 0, 5, 5, 0}, 0.05),
+                1e-12);
     }
 
 }
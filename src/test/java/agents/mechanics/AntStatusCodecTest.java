@@ -0,0 +1,52 @@
+package agents.mechanics;
+
+import org.junit.jupiter.api.Test;
+
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.List;
+import static org.junit.jupiter.api.Assertions.*;
+
+public class AntStatusCodecTest {
+
+    @Test
+    public void binaryRoundTripTest(){
+        List<Integer> path = Arrays.asList(40, 129, 115, 116, 109, 91, 77, 61, 68, 53, 3, 0, 1 << 30);
+        AntStatusCodec.AntStatus antStatus = AntStatusCodec.decode(AntStatusCodec.encode(true, 1.5967149410400032, path));
+        assertTrue(antStatus.isFinished());
+        assertEquals(1.5967149410400032, antStatus.getTourLength(), 0.0);
+        assertEquals(path, antStatus.getPath());
+
+        assertFalse(AntStatusCodec.decode(AntStatusCodec.encode(false, 0.0, Collections.emptyList())).isFinished());
+        assertEquals(1, AntStatusCodec.encode(false, 0.0, Collections.emptyList()).length);
+    }
+
+    @Test
+    public void forwardedToursTest(){
+        List<AntStatusCodec.AntStatus> immigrants = Arrays.asList(
+                new AntStatusCodec.AntStatus(true, 2.5, Arrays.asList(7, 300, 2)),
+                new AntStatusCodec.AntStatus(true, 3.25, Arrays.asList(1, 2, 3)));
+        for (AntStatusCodec.AntStatus antStatus : new AntStatusCodec.AntStatus[]{
+                AntStatusCodec.decode(AntStatusCodec.encode(true, 1.5, Arrays.asList(4, 5, 6), immigrants)),
+                AntStatusCodec.decodeText(AntStatusCodec.encodeText(true, 1.5, Arrays.asList(4, 5, 6), immigrants))}) {
+            assertEquals(Arrays.asList(4, 5, 6), antStatus.getPath());
+            assertEquals(2, antStatus.getImmigrants().size());
+            assertEquals(3.25, antStatus.getImmigrants().get(1).getTourLength(), 0.0);
+            assertEquals(Arrays.asList(7, 300, 2), antStatus.getImmigrants().get(0).getPath());
+        }
+        assertTrue(AntStatusCodec.decode(AntStatusCodec.encode(true, 1.5, Arrays.asList(4, 5, 6)))
+                .getImmigrants().isEmpty());
+    }
+
+    @Test
+    public void textFallbackTest(){
+        // the content built by the earlier versions of the agent:
+        AntStatusCodec.AntStatus antStatus = AntStatusCodec.decodeText("1 4.26232051 19 14 26");
+        assertTrue(antStatus.isFinished());
+        assertEquals(4.26232051, antStatus.getTourLength(), 0.0);
+        assertEquals(Arrays.asList(19, 14, 26), antStatus.getPath());
+        assertFalse(AntStatusCodec.decodeText("0").isFinished());
+        assertEquals("1 4.5 19 14 26", AntStatusCodec.encodeText(true, 4.5, Arrays.asList(19, 14, 26)));
+    }
+
+}
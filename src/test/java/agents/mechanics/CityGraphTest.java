@@ -0,0 +1,47 @@
+package agents.mechanics;
+
+import agents.AntAgent;
+import org.junit.jupiter.api.Test;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+import static org.junit.jupiter.api.Assertions.*;
+
+public class CityGraphTest {
+
+    private final List<AntAgent.CityRoad> cityGrid = Arrays.asList(
+            new AntAgent.CityRoad(1L, 2L, 3.24),
+            new AntAgent.CityRoad(1L, 3L, 4.65),
+            new AntAgent.CityRoad(1L, 4L, 5.43),
+            new AntAgent.CityRoad(2L, 4L, 4.65),
+            new AntAgent.CityRoad(4L, 5L, 5.76),
+            new AntAgent.CityRoad(4L, 3L, 2.48)
+    );
+
+    @Test
+    public void neighbourIterationTest(){
+        CityGraph cityGraph = new CityGraph(cityGrid);
+        assertEquals(5, cityGraph.getNumberOfCities());
+        List<Integer> outEdges = new ArrayList<>();
+        for(int slot = cityGraph.firstSlot(4);slot < cityGraph.endSlot(4);slot++){
+            outEdges.add(cityGraph.edgeAt(slot));
+        }
+        assertEquals(Arrays.asList(4, 5), outEdges);
+        assertEquals(3, cityGraph.degree(1));
+        assertEquals(0, cityGraph.degree(3));
+    }
+
+    @Test
+    public void edgeLookupTest(){
+        CityGraph cityGraph = new CityGraph(cityGrid);
+        for(int edgeIndex = 0;edgeIndex < cityGrid.size();edgeIndex++){
+            AntAgent.CityRoad road = cityGrid.get(edgeIndex);
+            assertEquals(edgeIndex, cityGraph.getEdgeId(road.getSourceId(), road.getTargetId()));
+        }
+        assertEquals(-1, cityGraph.getEdgeId(3, 1));
+        assertEquals(-1, cityGraph.getEdgeId(1, 6));
+        assertEquals(3.24 + 4.65, cityGraph.pathLength(Arrays.asList(0, 3)), 1e-12);
+    }
+
+}
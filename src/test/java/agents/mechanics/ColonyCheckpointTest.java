@@ -0,0 +1,55 @@
+package agents.mechanics;
+
+import agents.AntAgent;
+import org.junit.jupiter.api.Test;
+
+import java.io.IOException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.Arrays;
+import java.util.List;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+public class ColonyCheckpointTest {
+
+    private static final List<AntAgent.CityRoad> TRIANGLE = Arrays.asList(
+            new AntAgent.CityRoad(1L, 2L, 1.0),
+            new AntAgent.CityRoad(2L, 3L, 2.0),
+            new AntAgent.CityRoad(3L, 1L, 3.0),
+            new AntAgent.CityRoad(1L, 3L, 3.0),
+            new AntAgent.CityRoad(3L, 2L, 2.0),
+            new AntAgent.CityRoad(2L, 1L, 1.0)
+    );
+
+    @Test
+    public void writeReadTest() throws IOException {
+        CityGraph cityGraph = new CityGraph(3, TRIANGLE);
+        Path checkpointFile = Files.createTempFile("colony", ".ckpt");
+        try {
+            ColonyCheckpoint.capture(cityGraph, new double[]{1, 2, 3, 4, 5, 6}, 7, Arrays.asList(0, 1, 2), 6.0,
+                    42L).write(checkpointFile.toString());
+            ColonyCheckpoint checkpoint = ColonyCheckpoint.read(checkpointFile.toString());
+            assertEquals(3, checkpoint.getNumberOfCities());
+            assertEquals(7, checkpoint.getIteration());
+            assertEquals(42L, checkpoint.getRandomSeed());
+            assertEquals(Arrays.asList(0, 1, 2), checkpoint.getBestPath());
+            assertEquals(6.0, checkpoint.getBestLength(), 0.0);
+            assertTrue(checkpoint.matches(cityGraph));
+            double[] pheromoneLevel = new double[6];
+            assertEquals(6, checkpoint.copyPheromoneLevels(cityGraph, pheromoneLevel));
+            assertArrayEquals(new double[]{1, 2, 3, 4, 5, 6}, pheromoneLevel, 0.0);
+
+            // another instance, with the roads in another order and without the road 3 -> 1:
+            CityGraph changedGraph = new CityGraph(3, Arrays.asList(TRIANGLE.get(5), TRIANGLE.get(4),
+                    TRIANGLE.get(3), TRIANGLE.get(1), TRIANGLE.get(0)));
+            assertFalse(checkpoint.matches(changedGraph));
+            double[] changedLevel = new double[5];
+            assertEquals(5, checkpoint.copyPheromoneLevels(changedGraph, changedLevel));
+            assertArrayEquals(new double[]{6, 5, 4, 2, 1}, changedLevel, 0.0);
+        } finally {
+            Files.delete(checkpointFile);
+        }
+    }
+
+}
@@ -0,0 +1,75 @@
+package agents.mechanics;
+
+import minimum_cost_hamiltonian.HeldKarpSearch;
+import org.junit.jupiter.api.Test;
+
+import java.util.Random;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+public class CompleteCityGraphTest {
+
+    private static CompleteCityGraph randomGraph(int numberOfCities, long seed) {
+        Random random = new Random(seed);
+        double[] x = new double[numberOfCities];
+        double[] y = new double[numberOfCities];
+        for (int city = 0; city < numberOfCities; city++) {
+            x[city] = random.nextInt(1000);
+            y[city] = random.nextInt(1000);
+        }
+        return CompleteCityGraph.fromCoordinates(CompleteCityGraph.DistanceType.EUC_2D, x, y);
+    }
+
+    @Test
+    public void edgeIdsTest(){
+        CompleteCityGraph cityGraph = randomGraph(7, 1);
+        assertEquals(42, cityGraph.getNumberOfEdges());
+        for (int city = 1; city <= 7; city++) {
+            assertEquals(6, cityGraph.degree(city));
+            for (int slot = cityGraph.firstSlot(city); slot < cityGraph.endSlot(city); slot++) {
+                int edgeIndex = cityGraph.edgeAt(slot);
+                assertEquals(city, cityGraph.getSource(edgeIndex));
+                assertTrue(cityGraph.getTarget(edgeIndex) != city);
+                assertEquals(edgeIndex, cityGraph.getEdgeId(city, cityGraph.getTarget(edgeIndex)));
+            }
+            assertEquals(-1, cityGraph.getEdgeId(city, city));
+        }
+    }
+
+    @Test
+    public void distanceTest(){
+        CompleteCityGraph euclidean = CompleteCityGraph.fromCoordinates(CompleteCityGraph.DistanceType.EUC_2D,
+                new double[]{0, 3, 1}, new double[]{0, 4, 1});
+        assertEquals(5.0, euclidean.distance(1, 2));
+        // sqrt(2) is rounded to the nearest integer:
+        assertEquals(1.0, euclidean.distance(1, 3));
+        CompleteCityGraph ceiling = CompleteCityGraph.fromCoordinates(CompleteCityGraph.DistanceType.CEIL_2D,
+                new double[]{0, 1}, new double[]{0, 1});
+        assertEquals(2.0, ceiling.distance(1, 2));
+        // att: sqrt((30^2 + 40^2) / 10) = 15.81..., rounded up:
+        CompleteCityGraph att = CompleteCityGraph.fromCoordinates(CompleteCityGraph.DistanceType.ATT,
+                new double[]{0, 30}, new double[]{0, 40});
+        assertEquals(16.0, att.distance(1, 2));
+        CompleteCityGraph matrix = CompleteCityGraph.fromMatrix(2, new double[]{0, 3, 4, 0});
+        assertEquals(3.0, matrix.getLength(matrix.getEdgeId(1, 2)));
+        assertEquals(4.0, matrix.getLength(matrix.getEdgeId(2, 1)));
+    }
+
+    @Test
+    public void sameAsExplicitGraphTest(){
+        CompleteCityGraph completeGraph = randomGraph(9, 2);
+        CityGraph explicitGraph = new CityGraph(9, completeGraph.asCityGrid());
+        int[][] completeCandidates = completeGraph.nearestNeighbourEdges(4);
+        int[][] explicitCandidates = explicitGraph.nearestNeighbourEdges(4);
+        for (int city = 1; city <= 9; city++) {
+            assertEquals(4, completeCandidates[city].length);
+            for (int index = 0; index < 4; index++) {
+                assertEquals(explicitGraph.getLength(explicitCandidates[city][index]),
+                        completeGraph.getLength(completeCandidates[city][index]));
+            }
+        }
+        assertEquals(explicitGraph.pathLength(HeldKarpSearch.findOptimalTour(explicitGraph)),
+                completeGraph.pathLength(HeldKarpSearch.findOptimalTour(completeGraph)), 1e-9);
+    }
+
+}
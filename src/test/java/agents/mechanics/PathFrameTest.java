@@ -0,0 +1,33 @@
+package agents.mechanics;
+
+import org.junit.jupiter.api.Test;
+
+import java.util.Arrays;
+import java.util.Collections;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+public class PathFrameTest {
+
+    @Test
+    public void sharedPrefixTest() {
+        VisitedCitySet visitedCities = VisitedCitySet.empty(4).with(1).with(2);
+        PathFrame first = PathFrame.start(3, 1.5, visitedCities);
+        PathFrame second = first.extend(7, 2.0, visitedCities.with(3));
+        // two frames pushed from the same path:
+        PathFrame left = second.extend(8, 0.25, visitedCities.with(3).with(4));
+        PathFrame right = second.extend(9, 0.5, visitedCities.with(3).with(4));
+
+        assertEquals(Collections.singletonList(3), first.toPath());
+        assertEquals(Arrays.asList(3, 7, 8), left.toPath());
+        assertEquals(Arrays.asList(3, 7, 9), right.toPath());
+        assertEquals(Arrays.asList(3, 7), second.toPath());
+        assertEquals(3, right.getDepth());
+        assertEquals(9, right.getEdgeIndex());
+        assertEquals(3.75, left.getLength(), 1e-12);
+        assertEquals(4.0, right.getLength(), 1e-12);
+        assertTrue(right.getVisitedCities().allVisited());
+        assertFalse(second.getVisitedCities().allVisited());
+    }
+
+}
@@ -0,0 +1,46 @@
+package agents.mechanics;
+
+import org.junit.jupiter.api.Test;
+
+import java.util.Arrays;
+import java.util.List;
+import static org.junit.jupiter.api.Assertions.*;
+
+public class PheromoneUpdateCodecTest {
+
+    @Test
+    public void depositsAndFullUpdateTest(){
+        double[] coordinatorLevels = new double[]{0.5, 1.0, 0.0, 2.0, 0.25};
+        double[] antLevels = Arrays.copyOf(coordinatorLevels, coordinatorLevels.length);
+        double[] lateAntLevels = new double[coordinatorLevels.length];
+        int[] edges = new int[]{1, 3, 4};
+        double[] amounts = new double[]{0.125, 0.5, 3.0};
+
+        AntAgentMechanics.applyPheromoneDeposits(coordinatorLevels, edges, amounts, edges.length, 0.5);
+        PheromoneUpdateCodec.PheromoneUpdate deposits = PheromoneUpdateCodec.decode(
+                PheromoneUpdateCodec.encodeDeposits(7, edges, amounts, edges.length));
+        assertFalse(deposits.isFull());
+        assertEquals(7, deposits.getRound());
+        deposits.applyTo(antLevels, 0.5);
+        assertArrayEquals(coordinatorLevels, antLevels, 0.0);
+
+        PheromoneUpdateCodec.PheromoneUpdate full = PheromoneUpdateCodec.decode(
+                PheromoneUpdateCodec.encodeFull(7, coordinatorLevels));
+        assertTrue(full.isFull());
+        full.applyTo(lateAntLevels, 0.5);
+        assertArrayEquals(coordinatorLevels, lateAntLevels, 0.0);
+        assertArrayEquals(new double[]{0.25, 0.625, 0.0, 1.5, 3.125}, coordinatorLevels, 0.0);
+    }
+
+    @Test
+    public void depositsMatchUpdatePheromoneLevelTest(){
+        List<List<Integer>> antPaths = Arrays.asList(Arrays.asList(0, 2), Arrays.asList(2, 3));
+        List<Double> tourLengths = Arrays.asList(2.0, 4.0);
+        double[] expected = new double[]{1.0, 1.0, 1.0, 1.0};
+        AntAgentMechanics.updatePheromoneLevel(expected, antPaths, tourLengths, 0.1, 1.0);
+        double[] actual = new double[]{1.0, 1.0, 1.0, 1.0};
+        AntAgentMechanics.applyPheromoneDeposits(actual, new int[]{0, 2, 3}, new double[]{0.5, 0.75, 0.25}, 3, 0.1);
+        assertArrayEquals(expected, actual, 1e-12);
+    }
+
+}
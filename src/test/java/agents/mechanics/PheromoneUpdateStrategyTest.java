@@ -0,0 +1,115 @@
+package agents.mechanics;
+
+import org.junit.jupiter.api.Test;
+
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+public class PheromoneUpdateStrategyTest {
+
+    private static final List<List<Integer>> antPaths = Arrays.asList(Arrays.asList(0, 2), Arrays.asList(2, 3),
+            Collections.emptyList());
+    private static final List<Double> tourLengths = Arrays.asList(4.0, 2.0, 0.0);
+
+    @Test
+    public void antSystemTest(){
+        PheromoneUpdateStrategy strategy = PheromoneUpdateStrategy.create("as", new HashMap<>(), 4, 10.0, 0.1, 1.0);
+        double[] pheromoneLevel = new double[]{1.0, 1.0, 1.0, 1.0};
+        double[] expected = Arrays.copyOf(pheromoneLevel, pheromoneLevel.length);
+        strategy.globalUpdate(pheromoneLevel, antPaths, tourLengths);
+        AntAgentMechanics.updatePheromoneLevel(expected, antPaths, tourLengths, 0.1, 1.0);
+        assertArrayEquals(expected, pheromoneLevel, 0.0);
+        assertTrue(strategy.isDepositOnly());
+        assertFalse(strategy.localUpdate(pheromoneLevel, antPaths.get(0)));
+    }
+
+    @Test
+    public void maxMinAntSystemTest(){
+        Map<String, String> parameters = new HashMap<>();
+        parameters.put("restart", "3");
+        MaxMinAntSystemUpdate strategy = new MaxMinAntSystemUpdate(parameters, 20, 8.0, 0.5, 1.0);
+        double[] pheromoneLevel = new double[4];
+        strategy.initialize(pheromoneLevel);
+        assertArrayEquals(new double[]{0.25, 0.25, 0.25, 0.25}, pheromoneLevel, 0.0);
+
+        strategy.globalUpdate(pheromoneLevel, antPaths, tourLengths);
+        // the best tour has the length 2, so tauMax = 1 / (0.5 * 2):
+        assertEquals(1.0, strategy.getTauMax(), 0.0);
+        // only the iteration-best ant (the second one) deposits:
+        assertEquals(0.125, pheromoneLevel[0], 1e-12);
+        assertEquals(0.625, pheromoneLevel[2], 1e-12);
+        assertEquals(0.625, pheromoneLevel[3], 1e-12);
+
+        // the levels are kept between tauMin and tauMax:
+        for (int iteration = 0; iteration < 2; iteration++) {
+            strategy.globalUpdate(pheromoneLevel, antPaths, tourLengths);
+            for (double level : pheromoneLevel) {
+                assertTrue(level >= strategy.getTauMin() && level <= strategy.getTauMax());
+            }
+        }
+        // no improvement for 3 iterations: restart from tauMax:
+        strategy.globalUpdate(pheromoneLevel, antPaths, tourLengths);
+        assertArrayEquals(new double[]{1.0, 1.0, 1.0, 1.0}, pheromoneLevel, 0.0);
+    }
+
+    @Test
+    public void restoreTest(){
+        // the best-so-far tour deposits at every iteration:
+        Map<String, String> parameters = new HashMap<>();
+        parameters.put("globalbest", "1");
+        MaxMinAntSystemUpdate strategy = new MaxMinAntSystemUpdate(parameters, 20, 8.0, 0.5, 1.0);
+        double[] pheromoneLevel = new double[4];
+        strategy.initialize(pheromoneLevel);
+        strategy.globalUpdate(pheromoneLevel, antPaths, tourLengths);
+
+        // a strategy resumed from a checkpoint of this iteration continues the same way:
+        MaxMinAntSystemUpdate resumedStrategy = new MaxMinAntSystemUpdate(parameters, 20, 8.0, 0.5, 1.0);
+        resumedStrategy.restore(1, antPaths.get(1), 2.0);
+        assertEquals(strategy.getTauMax(), resumedStrategy.getTauMax(), 0.0);
+        assertEquals(strategy.getTauMin(), resumedStrategy.getTauMin(), 0.0);
+        double[] resumedLevel = Arrays.copyOf(pheromoneLevel, pheromoneLevel.length);
+        List<List<Integer>> worsePaths = Collections.singletonList(Arrays.asList(0, 1));
+        List<Double> worseLengths = Collections.singletonList(5.0);
+        strategy.globalUpdate(pheromoneLevel, worsePaths, worseLengths);
+        resumedStrategy.globalUpdate(resumedLevel, worsePaths, worseLengths);
+        assertArrayEquals(pheromoneLevel, resumedLevel, 0.0);
+    }
+
+    @Test
+    public void antColonySystemTest(){
+        Map<String, String> parameters = new HashMap<>();
+        parameters.put("q0", "0.8");
+        AntColonySystemUpdate strategy = new AntColonySystemUpdate(parameters, 4, 5.0, 0.5, 1.0);
+        assertEquals(0.8, strategy.getExploitationProbability(), 0.0);
+        double[] pheromoneLevel = new double[4];
+        strategy.initialize(pheromoneLevel);
+        assertEquals(0.05, strategy.getInitialLevel(), 1e-12);
+
+        pheromoneLevel[0] = 1.05;
+        assertTrue(strategy.localUpdate(pheromoneLevel, antPaths.get(0)));
+        // tau = 0.9 * tau + 0.1 * tau0:
+        assertArrayEquals(new double[]{0.95, 0.05, 0.05, 0.05}, pheromoneLevel, 1e-12);
+
+        strategy.globalUpdate(pheromoneLevel, antPaths, tourLengths);
+        // only the edges of the best tour change: tau = 0.5 * tau + 0.5 * (1 / 2):
+        assertArrayEquals(new double[]{0.95, 0.05, 0.275, 0.275}, pheromoneLevel, 1e-12);
+    }
+
+    @Test
+    public void bestAntTest(){
+        List<List<Integer>> paths = Arrays.asList(Arrays.asList(3, 1), Arrays.asList(1, 3), Arrays.asList(0, 2));
+        List<Double> lengths = Arrays.asList(2.0, 2.0, 3.0);
+        assertEquals(1, PheromoneUpdateStrategy.bestAnt(paths, lengths));
+        // the same tour is chosen if the ants are listed in a different order:
+        assertEquals(0, PheromoneUpdateStrategy.bestAnt(Arrays.asList(paths.get(1), paths.get(0)),
+                Arrays.asList(2.0, 2.0)));
+        assertEquals(-1, PheromoneUpdateStrategy.bestAnt(Collections.singletonList(Collections.emptyList()),
+                Collections.singletonList(0.0)));
+    }
+
+}
@@ -0,0 +1,62 @@
+package agents.mechanics;
+
+import agents.AntAgent;
+import org.junit.jupiter.api.Test;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+import java.util.Random;
+import static org.junit.jupiter.api.Assertions.*;
+
+public class RouletteTourBuilderTest {
+
+    private static List<AntAgent.CityRoad> bidirectional(double[][] roads) {
+        List<AntAgent.CityRoad> cityGrid = new ArrayList<>();
+        for (double[] road : roads) {
+            cityGrid.add(new AntAgent.CityRoad((long) road[0], (long) road[1], road[2]));
+            cityGrid.add(new AntAgent.CityRoad((long) road[1], (long) road[0], road[2]));
+        }
+        return cityGrid;
+    }
+
+    @Test
+    public void constructTest() {
+        // a ring 1-2-3-4-5-6-1 with a few chords; the chords lead to dead ends:
+        CityGraph cityGraph = new CityGraph(bidirectional(new double[][]{
+                {1, 2, 0.5}, {2, 3, 0.4}, {3, 4, 0.9}, {4, 5, 0.3}, {5, 6, 0.8}, {6, 1, 0.2},
+                {1, 4, 0.1}, {2, 5, 0.1}, {3, 6, 0.1}
+        }));
+        double[] pheromoneLevel = new double[cityGraph.getNumberOfEdges()];
+        Arrays.fill(pheromoneLevel, 1.0);
+        double[] choiceInfo = new double[cityGraph.getNumberOfEdges()];
+        AntAgentMechanics.updateChoiceInfo(choiceInfo, pheromoneLevel,
+                AntAgentMechanics.getHeuristicValues(cityGraph, 2.0));
+        RouletteTourBuilder tourBuilder = new RouletteTourBuilder(cityGraph, 2);
+        Random random = new Random(7);
+        for (int attempt = 0; attempt < 50; attempt++) {
+            long sourceCity = random.nextInt(6) + 1;
+            List<Integer> tour = tourBuilder.construct(sourceCity, choiceInfo, random);
+            assertNotNull(tour);
+            assertEquals(6, tour.size());
+            boolean[] entered = new boolean[7];
+            assertEquals(sourceCity, cityGraph.getSource(tour.get(0)));
+            for (int index = 0; index < tour.size(); index++) {
+                int edgeIndex = tour.get(index);
+                assertFalse(entered[cityGraph.getTarget(edgeIndex)]);
+                entered[cityGraph.getTarget(edgeIndex)] = true;
+                assertEquals(cityGraph.getTarget(edgeIndex),
+                        cityGraph.getSource(tour.get((index + 1) % tour.size())));
+            }
+        }
+    }
+
+    @Test
+    public void noTourTest() {
+        // a star graph doesn't contain a hamiltonian cycle:
+        CityGraph cityGraph = new CityGraph(bidirectional(new double[][]{{1, 2, 1.0}, {1, 3, 1.0}, {1, 4, 1.0}}));
+        double[] choiceInfo = new double[cityGraph.getNumberOfEdges()];
+        assertNull(new RouletteTourBuilder(cityGraph, 10).construct(1, choiceInfo, new Random(1)));
+    }
+
+}
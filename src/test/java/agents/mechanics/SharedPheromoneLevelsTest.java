@@ -0,0 +1,35 @@
+package agents.mechanics;
+
+import org.junit.jupiter.api.Test;
+
+import java.util.Arrays;
+import java.util.List;
+import java.util.stream.IntStream;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+public class SharedPheromoneLevelsTest {
+
+    @Test
+    public void concurrentDepositsTest() {
+        double[] heuristicValues = {1.0, 2.0, 4.0};
+        double[] choiceInfo = new double[3];
+        SharedPheromoneLevels sharedLevels = new SharedPheromoneLevels(new double[]{1.0, 1.0, 1.0},
+                heuristicValues, choiceInfo);
+        List<Integer> path = Arrays.asList(0, 2);
+        // none of the concurrent deposits is lost:
+        IntStream.range(0, 10000).parallel().forEach(index -> sharedLevels.deposit(path, 0.5));
+        assertEquals(5001.0, sharedLevels.get(0), 1e-9);
+        assertEquals(1.0, sharedLevels.get(1), 1e-9);
+        assertEquals(5001.0, sharedLevels.get(2), 1e-9);
+        // the last refresh of an edge uses its final level:
+        assertArrayEquals(new double[]{5001.0, 2.0, 20004.0}, choiceInfo, 1e-9);
+        sharedLevels.evaporate(0.5);
+        double[] pheromoneLevel = new double[3];
+        sharedLevels.copyTo(pheromoneLevel);
+        assertArrayEquals(new double[]{2500.5, 0.5, 2500.5}, pheromoneLevel, 1e-9);
+        // the choice information follows the levels:
+        assertArrayEquals(new double[]{2500.5, 1.0, 10002.0}, choiceInfo, 1e-9);
+    }
+
+}
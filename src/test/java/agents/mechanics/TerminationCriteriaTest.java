@@ -0,0 +1,32 @@
+package agents.mechanics;
+
+import org.junit.jupiter.api.Test;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+public class TerminationCriteriaTest {
+
+    @Test
+    public void stallTest() {
+        TerminationCriteria terminationCriteria = new TerminationCriteria(3, 0.0, 0.0, 0);
+        assertTrue(terminationCriteria.isEnabled());
+        assertFalse(terminationCriteria.usesBranchingFactor());
+        assertNull(terminationCriteria.check(1, 10.0, Double.NaN));
+        assertNull(terminationCriteria.check(2, 9.0, Double.NaN));
+        assertNull(terminationCriteria.check(3, 9.0, Double.NaN));
+        assertNull(terminationCriteria.check(4, 9.0, Double.NaN));
+        // no improvement since iteration 2:
+        assertNotNull(terminationCriteria.check(5, 9.0, Double.NaN));
+    }
+
+    @Test
+    public void targetAndBranchingTest() {
+        assertFalse(new TerminationCriteria(0, 0.0, 0.0, 0).isEnabled());
+        TerminationCriteria terminationCriteria = new TerminationCriteria(0, 2.5, 5.0, 0);
+        assertTrue(terminationCriteria.usesBranchingFactor());
+        assertNull(terminationCriteria.check(1, 6.0, 4.0));
+        assertNotNull(terminationCriteria.check(2, 6.0, 2.0));
+        assertNotNull(new TerminationCriteria(0, 2.5, 5.0, 0).check(1, 5.0, 4.0));
+    }
+
+}
@@ -0,0 +1,74 @@
+package agents.mechanics;
+
+import org.junit.jupiter.api.Test;
+
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.List;
+import java.util.Random;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+public class TourLocalSearchTest {
+
+    private static void assertHamiltonianCycle(CityGraph cityGraph, List<Integer> path, int startCity) {
+        assertEquals(cityGraph.getNumberOfCities(), path.size());
+        assertEquals(startCity, cityGraph.getSource(path.get(0)));
+        boolean[] visited = new boolean[cityGraph.getNumberOfCities() + 1];
+        for (int index = 0; index < path.size(); index++) {
+            int edgeIndex = path.get(index);
+            assertTrue(edgeIndex >= 0);
+            assertEquals(cityGraph.getTarget(edgeIndex), cityGraph.getSource(path.get((index + 1) % path.size())));
+            assertFalse(visited[cityGraph.getTarget(edgeIndex)]);
+            visited[cityGraph.getTarget(edgeIndex)] = true;
+        }
+    }
+
+    @Test
+    public void improveRandomToursTest(){
+        Random random = new Random(3);
+        double[] x = new double[200];
+        double[] y = new double[200];
+        for (int city = 0; city < 200; city++) {
+            x[city] = random.nextInt(10000);
+            y[city] = random.nextInt(10000);
+        }
+        CompleteCityGraph cityGraph = CompleteCityGraph.fromCoordinates(CompleteCityGraph.DistanceType.EUC_2D, x, y);
+        TourLocalSearch localSearch = new TourLocalSearch(cityGraph, 10);
+        assertTrue(localSearch.isEnabled());
+        for (int trial = 0; trial < 5; trial++) {
+            List<Integer> cities = new ArrayList<>();
+            for (int city = 1; city <= 200; city++) cities.add(city);
+            Collections.shuffle(cities, random);
+            List<Integer> path = new ArrayList<>();
+            for (int index = 0; index < cities.size(); index++) {
+                path.add(cityGraph.getEdgeId(cities.get(index), cities.get((index + 1) % cities.size())));
+            }
+            List<Integer> improvedPath = localSearch.improve(path);
+            assertHamiltonianCycle(cityGraph, improvedPath, cities.get(0));
+            // a random tour is several times longer than a 2-opt local optimum:
+            assertTrue(cityGraph.pathLength(improvedPath) < cityGraph.pathLength(path) / 5);
+            // the result is close to a local optimum (the don't-look bits can miss a few moves):
+            List<Integer> secondPath = localSearch.improve(improvedPath);
+            assertHamiltonianCycle(cityGraph, secondPath, cities.get(0));
+            assertTrue(cityGraph.pathLength(secondPath) <= cityGraph.pathLength(improvedPath));
+            assertTrue(cityGraph.pathLength(secondPath) > 0.97 * cityGraph.pathLength(improvedPath));
+        }
+    }
+
+    @Test
+    public void asymmetricGraphTest(){
+        CompleteCityGraph cityGraph = CompleteCityGraph.fromMatrix(5, new double[]{
+                0, 1, 2, 3, 4,
+                5, 0, 1, 2, 3,
+                1, 1, 0, 1, 1,
+                1, 1, 1, 0, 1,
+                1, 1, 1, 1, 0});
+        TourLocalSearch localSearch = new TourLocalSearch(cityGraph, 3);
+        assertFalse(localSearch.isEnabled());
+        List<Integer> path = new ArrayList<>();
+        for (int city = 1; city <= 5; city++) path.add(cityGraph.getEdgeId(city, city % 5 + 1));
+        assertEquals(path, localSearch.improve(path));
+    }
+
+}
@@ -0,0 +1,39 @@
+package minimum_cost_hamiltonian;
+
+import agents.AntAgent;
+import agents.mechanics.CityGraph;
+import org.junit.jupiter.api.Test;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Random;
+import static org.junit.jupiter.api.Assertions.*;
+
+public class BranchAndBoundSearchTest {
+
+    @Test
+    public void findOptimalTourTest() {
+        for (long seed = 0; seed < 8; seed++) {
+            int numberOfCities = 10;
+            Random random = new Random(seed);
+            List<AntAgent.CityRoad> cityGrid = new ArrayList<>();
+            for (long source = 1; source <= numberOfCities; source++) {
+                for (long target = source + 1; target <= numberOfCities; target++) {
+                    if (seed >= 4 && random.nextDouble() > 0.5) continue;
+                    double length = random.nextDouble();
+                    cityGrid.add(new AntAgent.CityRoad(source, target, length));
+                    cityGrid.add(new AntAgent.CityRoad(target, source, length));
+                }
+            }
+            CityGraph cityGraph = new CityGraph(numberOfCities, cityGrid);
+            List<Integer> expected = HeldKarpSearch.findOptimalTour(cityGraph);
+            List<Integer> tour = BranchAndBoundSearch.findOptimalTour(cityGraph, null);
+            assertEquals(expected.size(), tour.size());
+            assertEquals(cityGraph.pathLength(expected), cityGraph.pathLength(tour), 1e-9);
+            // seeding with the optimal tour must not change the result:
+            List<Integer> seeded = BranchAndBoundSearch.findOptimalTour(cityGraph, expected);
+            assertEquals(cityGraph.pathLength(expected), cityGraph.pathLength(seeded), 1e-9);
+        }
+    }
+
+}
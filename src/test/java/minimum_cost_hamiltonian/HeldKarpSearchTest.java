@@ -0,0 +1,76 @@
+package minimum_cost_hamiltonian;
+
+import agents.AntAgent;
+import agents.mechanics.CityGraph;
+import org.junit.jupiter.api.Test;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Random;
+import static org.junit.jupiter.api.Assertions.*;
+
+public class HeldKarpSearchTest {
+
+    private static List<AntAgent.CityRoad> randomGrid(int numberOfCities, double density, long seed) {
+        Random random = new Random(seed);
+        List<AntAgent.CityRoad> cityGrid = new ArrayList<>();
+        for (long source = 1; source <= numberOfCities; source++) {
+            for (long target = source + 1; target <= numberOfCities; target++) {
+                if (random.nextDouble() > density) continue;
+                double length = random.nextDouble();
+                cityGrid.add(new AntAgent.CityRoad(source, target, length));
+                cityGrid.add(new AntAgent.CityRoad(target, source, length));
+            }
+        }
+        return cityGrid;
+    }
+
+    /**
+     * the length of the shortest tour, by trying all the permutations of the cities 2..n.
+     */
+    private static double bruteForce(double[][] distance, int[] permutation, int position) {
+        if (position == permutation.length) {
+            double length = distance[1][permutation[0]];
+            for (int index = 1; index < permutation.length; index++)
+                length += distance[permutation[index - 1]][permutation[index]];
+            return length + distance[permutation[permutation.length - 1]][1];
+        }
+        double best = Double.POSITIVE_INFINITY;
+        for (int index = position; index < permutation.length; index++) {
+            int swap = permutation[position]; permutation[position] = permutation[index]; permutation[index] = swap;
+            best = Math.min(best, bruteForce(distance, permutation, position + 1));
+            swap = permutation[position]; permutation[position] = permutation[index]; permutation[index] = swap;
+        }
+        return best;
+    }
+
+    @Test
+    public void findOptimalTourTest() {
+        for (long seed = 0; seed < 6; seed++) {
+            int numberOfCities = 8;
+            List<AntAgent.CityRoad> cityGrid = randomGrid(numberOfCities, seed < 3 ? 1.0 : 0.6, seed);
+            CityGraph cityGraph = new CityGraph(numberOfCities, cityGrid);
+            double[][] distance = new double[numberOfCities + 1][numberOfCities + 1];
+            for (double[] row : distance) java.util.Arrays.fill(row, Double.POSITIVE_INFINITY);
+            for (AntAgent.CityRoad road : cityGrid)
+                distance[Math.toIntExact(road.getSourceId())][Math.toIntExact(road.getTargetId())] = road.getLength();
+            int[] permutation = new int[numberOfCities - 1];
+            for (int index = 0; index < permutation.length; index++) permutation[index] = index + 2;
+            double expected = bruteForce(distance, permutation, 0);
+
+            List<Integer> tour = HeldKarpSearch.findOptimalTour(cityGraph);
+            if (expected == Double.POSITIVE_INFINITY) {
+                assertTrue(tour.isEmpty());
+                continue;
+            }
+            assertEquals(numberOfCities, tour.size());
+            assertEquals(expected, cityGraph.pathLength(tour), 1e-9);
+            // the edges must form a cycle that starts from the city 1:
+            assertEquals(1, cityGraph.getSource(tour.get(0)));
+            for (int index = 1; index < tour.size(); index++)
+                assertEquals(cityGraph.getTarget(tour.get(index - 1)), cityGraph.getSource(tour.get(index)));
+            assertEquals(1, cityGraph.getTarget(tour.get(tour.size() - 1)));
+        }
+    }
+
+}
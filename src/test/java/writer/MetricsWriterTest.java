@@ -0,0 +1,32 @@
+package writer;
+
+import org.junit.jupiter.api.Test;
+
+import java.io.IOException;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.Arrays;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+public class MetricsWriterTest {
+
+    @Test
+    public void jsonLinesTest() throws IOException {
+        Path metricsFile = Files.createTempFile("metrics", ".jsonl");
+        try {
+            MetricsWriter metricsWriter = MetricsWriter.open(metricsFile.toString());
+            assertSame(metricsWriter, MetricsWriter.open(metricsFile.toString()));
+            metricsWriter.write(new MetricsWriter.JsonLine().field("ant", "ant\"1").field("iteration", 1)
+                    .field("tourLength", 2.5));
+            metricsWriter.write(new MetricsWriter.JsonLine().field("bestSoFar", Double.POSITIVE_INFINITY));
+            metricsWriter.close();
+            assertEquals(Arrays.asList("{\"ant\":\"ant\\\"1\",\"iteration\":1,\"tourLength\":2.5}",
+                    "{\"bestSoFar\":null}"), Files.readAllLines(metricsFile, StandardCharsets.UTF_8));
+        } finally {
+            Files.delete(metricsFile);
+        }
+    }
+
+}
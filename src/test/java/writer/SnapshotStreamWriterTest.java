@@ -0,0 +1,80 @@
+package writer;
+
+import org.junit.jupiter.api.Test;
+
+import java.io.IOException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.Arrays;
+import java.util.Collections;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+public class SnapshotStreamWriterTest {
+
+    @Test
+    public void roundTripTest() throws IOException {
+        Path streamFile = Files.createTempFile("snapshots", ".bin");
+        try {
+            double[][] levels = {
+                    {1.0, 1.0, 1.0, 1.0, 1.0},
+                    {0.9, 1.9, 0.9, 0.9, 0.9},
+                    {0.9, 1.9, 0.9, 0.9, 2.0}};
+            SnapshotStreamWriter snapshotStream = new SnapshotStreamWriter(streamFile.toString(), 5, 0.0);
+            assertTrue(snapshotStream.offer(1, levels[0], null, Double.POSITIVE_INFINITY));
+            assertTrue(snapshotStream.offer(2, levels[1], Arrays.asList(1, 3, 200), 2.5));
+            assertTrue(snapshotStream.offer(3, levels[2], Arrays.asList(1, 3, 200), 2.5));
+            snapshotStream.close();
+            assertFalse(snapshotStream.offer(4, levels[2], null, 2.5));
+
+            try (SnapshotStreamReader reader = new SnapshotStreamReader(streamFile.toString())) {
+                assertTrue(reader.next());
+                assertEquals(1, reader.getIteration());
+                assertEquals(Collections.emptyList(), reader.getBestPath());
+                assertEquals(5, reader.getChangedLevels());
+                assertArrayEquals(levels[0], reader.getPheromoneLevel(), 0.0);
+                assertTrue(reader.next());
+                assertEquals(2, reader.getIteration());
+                assertEquals(Arrays.asList(1, 3, 200), reader.getBestPath());
+                assertEquals(2.5, reader.getBestLength());
+                assertArrayEquals(levels[1], reader.getPheromoneLevel(), 0.0);
+                assertTrue(reader.next());
+                // only the last level changed:
+                assertEquals(1, reader.getChangedLevels());
+                assertArrayEquals(levels[2], reader.getPheromoneLevel(), 0.0);
+                assertFalse(reader.next());
+            }
+        } finally {
+            Files.delete(streamFile);
+        }
+    }
+
+    @Test
+    public void thresholdTest() throws IOException {
+        Path streamFile = Files.createTempFile("snapshots", ".bin");
+        try {
+            SnapshotStreamWriter snapshotStream = new SnapshotStreamWriter(streamFile.toString(), 3, 0.1);
+            snapshotStream.offer(1, new double[]{1.0, 1.0, 1.0}, null, 3.0);
+            // the changes of the first two levels are below 0.1 * 1.5, the last one is above:
+            snapshotStream.offer(2, new double[]{1.05, 0.9, 1.5}, null, 3.0);
+            // the first level has drifted by more than the threshold since it was written:
+            snapshotStream.offer(3, new double[]{1.2, 0.9, 1.5}, null, 3.0);
+            snapshotStream.close();
+
+            try (SnapshotStreamReader reader = new SnapshotStreamReader(streamFile.toString())) {
+                assertEquals(0.1, reader.getThreshold());
+                assertTrue(reader.next());
+                assertTrue(reader.next());
+                assertEquals(1, reader.getChangedLevels());
+                assertArrayEquals(new double[]{1.0, 1.0, 1.5}, reader.getPheromoneLevel(), 0.0);
+                assertTrue(reader.next());
+                assertEquals(1, reader.getChangedLevels());
+                assertArrayEquals(new double[]{1.2, 1.0, 1.5}, reader.getPheromoneLevel(), 0.0);
+                assertFalse(reader.next());
+            }
+        } finally {
+            Files.delete(streamFile);
+        }
+    }
+
+}
@@ -0,0 +1,3 @@
+start java -cp jade.jar;classfiles jade.Boot -agents ant1:agents.AntAgent(colony=a,migration=10);ant2:agents.AntAgent(colony=a,migration=10);ant3:agents.AntAgent(colony=a,migration=10)
+timeout /t 5
+java -cp jade.jar;classfiles jade.Boot -container -host localhost -agents ant4:agents.AntAgent(colony=b,migration=10);ant5:agents.AntAgent(colony=b,migration=10);ant6:agents.AntAgent(colony=b,migration=10)